@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps.benchmarks;
+
+import com.jasonhhouse.gaps.BasicMovie;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of comparing movies by each of the identifiers {@link BasicMovie#equals(Object)} falls back through, and of
+ * building a movie, which normalizes the title
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BasicMovieBenchmark {
+
+    private BasicMovie movie;
+    private BasicMovie sameTmdbId;
+    private BasicMovie sameImdbId;
+    private BasicMovie sameTitleAndYear;
+    private BasicMovie different;
+
+    @Setup
+    public void setUp() {
+        List<BasicMovie> movies = Fixtures.movies(2);
+        movie = movies.get(0);
+        different = movies.get(1);
+        sameTmdbId = new BasicMovie.Builder("Something Else", 2000).setTmdbId(movie.getTmdbId()).build();
+        sameImdbId = new BasicMovie.Builder("Something Else", 2000).setImdbId(movie.getImdbId()).build();
+        sameTitleAndYear = new BasicMovie.Builder(movie.getName(), movie.getYear()).build();
+    }
+
+    @Benchmark
+    public boolean equalByTmdbId() {
+        return movie.equals(sameTmdbId);
+    }
+
+    @Benchmark
+    public boolean equalByImdbId() {
+        return movie.equals(sameImdbId);
+    }
+
+    @Benchmark
+    public boolean equalByTitleAndYear() {
+        return movie.equals(sameTitleAndYear);
+    }
+
+    @Benchmark
+    public boolean notEqual() {
+        return movie.equals(different);
+    }
+
+    @Benchmark
+    public int hashCodeOfMovie() {
+        return movie.hashCode();
+    }
+
+    @Benchmark
+    public BasicMovie build() {
+        return new BasicMovie.Builder("Star Wars: Episode IV - A New Hope", 1977).setTmdbId(11).build();
+    }
+}
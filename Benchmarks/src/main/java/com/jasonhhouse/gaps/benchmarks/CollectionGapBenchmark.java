@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps.benchmarks;
+
+import com.jasonhhouse.gaps.BasicMovie;
+import com.jasonhhouse.gaps.MovieIndex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Works out which parts of every collection are missing from a library, the way handleCollection does for each
+ * collection it gets back from TMDB. Compares looking the parts up in a {@link MovieIndex} with walking a list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CollectionGapBenchmark {
+
+    @Param({"500", "5000"})
+    public int ownedMovies;
+
+    @Param({"3", "20"})
+    public int partsPerCollection;
+
+    private List<BasicMovie> owned;
+    private MovieIndex ownedIndex;
+    private List<List<BasicMovie>> collections;
+
+    @Setup
+    public void setUp() {
+        owned = Fixtures.movies(ownedMovies);
+        ownedIndex = new MovieIndex(owned);
+
+        //One collection for every tenth owned movie, about half of the parts are owned
+        collections = new ArrayList<>();
+        for (int i = 0; i < ownedMovies; i += 10) {
+            List<BasicMovie> parts = new ArrayList<>(partsPerCollection);
+            for (int part = 0; part < partsPerCollection; part++) {
+                int index = part % 2 == 0 ? (i + part) % ownedMovies : ownedMovies + i * partsPerCollection + part;
+                parts.add(new BasicMovie.Builder(Fixtures.title(index), Fixtures.year(index)).setTmdbId(100_000 + index).build());
+            }
+            collections.add(parts);
+        }
+    }
+
+    @Benchmark
+    public int missingWithMovieIndex() {
+        int missing = 0;
+        for (List<BasicMovie> parts : collections) {
+            for (BasicMovie part : parts) {
+                if (ownedIndex.find(part) == null) {
+                    missing++;
+                }
+            }
+        }
+        return missing;
+    }
+
+    @Benchmark
+    public int missingWithListIndexOf() {
+        int missing = 0;
+        for (List<BasicMovie> parts : collections) {
+            for (BasicMovie part : parts) {
+                if (owned.indexOf(part) == -1) {
+                    missing++;
+                }
+            }
+        }
+        return missing;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps.benchmarks;
+
+import com.jasonhhouse.gaps.BasicMovie;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Builds libraries and Plex responses with made up but realistic looking movies, the same input every run
+ */
+final class Fixtures {
+
+    private static final String[] WORDS = {"The", "Dark", "Return", "of", "Star", "Night", "Lost", "City", "King", "Last", "Man", "Story", "War", "Blue", "Road",
+            "Ghost", "Iron", "Wild", "Home", "Alone", "2", "Part", "Rise", "Fall", "Empire"};
+
+    private Fixtures() {
+    }
+
+    static @NotNull String title(int index) {
+        StringBuilder title = new StringBuilder();
+        int value = index;
+        for (int i = 0; i < 3; i++) {
+            if (i > 0) {
+                title.append(i == 1 ? ": " : " ");
+            }
+            title.append(WORDS[value % WORDS.length]);
+            value = value / WORDS.length + 7 * i + 1;
+        }
+        return title.append(' ').append(index).toString();
+    }
+
+    static int year(int index) {
+        return 1950 + index % 70;
+    }
+
+    /**
+     * @return owned movies, every other one already has its TMDB id, every third its IMDB id
+     */
+    static @NotNull List<BasicMovie> movies(int count) {
+        List<BasicMovie> movies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BasicMovie.Builder builder = new BasicMovie.Builder(title(i), year(i))
+                    .setRatingKey(i)
+                    .setKey("/library/metadata/" + i);
+            if (i % 2 == 0) {
+                builder.setTmdbId(100_000 + i);
+            }
+            if (i % 3 == 0) {
+                builder.setImdbId(String.format("tt%07d", i));
+            }
+            movies.add(builder.build());
+        }
+        return movies;
+    }
+
+    /**
+     * @return a /library/sections/{key}/all response with a Media and Part per video
+     */
+    static @NotNull String libraryXml(int count) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<MediaContainer size=\"").append(count).append("\" librarySectionID=\"1\" librarySectionTitle=\"Movies\">");
+        for (int i = 0; i < count; i++) {
+            String title = title(i);
+            //Every tenth file is named differently from its title
+            String fileName = i % 10 == 0 ? title(i + 1) : title.replace(":", "");
+            xml.append("<Video ratingKey=\"").append(i).append("\" key=\"/library/metadata/").append(i)
+                    .append("\" guid=\"plex://movie/").append(Integer.toHexString(i))
+                    .append("\" type=\"movie\" title=\"").append(title).append("\" year=\"").append(year(i))
+                    .append("\" thumb=\"/library/metadata/").append(i).append("/thumb\" addedAt=\"1600000000\" updatedAt=\"1600000000\">")
+                    .append("<Media id=\"").append(i).append("\" duration=\"7200000\" videoResolution=\"1080\">")
+                    .append("<Part id=\"").append(i).append("\" file=\"/movies/").append(fileName).append(" (").append(year(i)).append(")/")
+                    .append(fileName).append(" (").append(year(i)).append(").mkv\" size=\"8000000000\"/>")
+                    .append("</Media>")
+                    .append("<Genre tag=\"Action\"/>")
+                    .append("<Director tag=\"Director ").append(i % 50).append("\"/>")
+                    .append("</Video>");
+        }
+        return xml.append("</MediaContainer>").toString();
+    }
+
+    /**
+     * @return a /library/metadata/{ratingKey} response with the new agent Guid elements
+     */
+    static @NotNull String metadataXml(int index) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                "<MediaContainer size=\"1\">" +
+                "<Video ratingKey=\"" + index + "\" title=\"" + title(index) + "\" year=\"" + year(index) + "\">" +
+                "<Guid id=\"imdb://" + String.format("tt%07d", index) + "\"/>" +
+                "<Guid id=\"tmdb://" + (100_000 + index) + "\"/>" +
+                "<Guid id=\"tvdb://" + (200_000 + index) + "\"/>" +
+                "</Video>" +
+                "</MediaContainer>";
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps.benchmarks;
+
+import com.jasonhhouse.gaps.Mislabeled;
+import com.jasonhhouse.gaps.service.MislabeledService;
+import com.jasonhhouse.plex.video.MediaContainer;
+import com.jasonhhouse.plex.xml.PlexXmlParser;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.xml.bind.JAXBException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matching every title of a library against its file name, one in ten of them is named after another movie
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MislabeledBenchmark {
+
+    @Param({"1000", "10000"})
+    public int libraryMovies;
+
+    @Param({"0.5", "0.9"})
+    public double percentage;
+
+    private MislabeledService mislabeledService;
+    private MediaContainer mediaContainer;
+
+    @Setup
+    public void setUp() throws JAXBException {
+        mislabeledService = new MislabeledService();
+        byte[] library = Fixtures.libraryXml(libraryMovies).getBytes(StandardCharsets.UTF_8);
+        mediaContainer = PlexXmlParser.unmarshal(new ByteArrayInputStream(library), MediaContainer.class);
+    }
+
+    @Benchmark
+    public List<Mislabeled> findMatchPercentage() {
+        return mislabeledService.findMatchPercentage(mediaContainer, percentage);
+    }
+}
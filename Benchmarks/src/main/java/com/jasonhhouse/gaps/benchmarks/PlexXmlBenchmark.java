@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps.benchmarks;
+
+import com.jasonhhouse.plex.video.MediaContainer;
+import com.jasonhhouse.plex.xml.PlexXmlParser;
+import com.jasonhhouse.plex.xml.VideoStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Parsing what Plex sends back: a whole library, once per library scan, and the metadata of a single movie, once
+ * per movie without a TMDB id. The per movie benchmarks compare the shared parsers in {@link PlexXmlParser} with
+ * building the factories and compiling the expression on every call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlexXmlBenchmark {
+
+    private static final String GUID_EXPRESSION = "/MediaContainer/Video/Guid";
+
+    @Param({"1000", "10000"})
+    public int libraryMovies;
+
+    private byte[] library;
+    private byte[] metadata;
+
+    @Setup
+    public void setUp() {
+        library = Fixtures.libraryXml(libraryMovies).getBytes(StandardCharsets.UTF_8);
+        metadata = Fixtures.metadataXml(42).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int streamLibrary(Blackhole blackhole) throws XMLStreamException {
+        return VideoStreamReader.forEachVideo(new ByteArrayInputStream(library), blackhole::consume);
+    }
+
+    @Benchmark
+    public MediaContainer unmarshalLibrary() throws JAXBException {
+        return PlexXmlParser.unmarshal(new ByteArrayInputStream(library), MediaContainer.class);
+    }
+
+    @Benchmark
+    public MediaContainer unmarshalLibraryWithNewContext() throws JAXBException {
+        return (MediaContainer) JAXBContext.newInstance(MediaContainer.class).createUnmarshaller().unmarshal(new ByteArrayInputStream(library));
+    }
+
+    @Benchmark
+    public int movieGuidsWithSharedParser() throws IOException, SAXException, XPathExpressionException {
+        Document document = PlexXmlParser.parse(new ByteArrayInputStream(metadata));
+        return PlexXmlParser.evaluate(document, GUID_EXPRESSION).getLength();
+    }
+
+    @Benchmark
+    public int movieGuidsWithNewFactories() throws IOException, SAXException, XPathExpressionException, ParserConfigurationException {
+        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        Document document = documentBuilderFactory.newDocumentBuilder().parse(new ByteArrayInputStream(metadata));
+        XPath xPath = XPathFactory.newInstance().newXPath();
+        NodeList nodeList = (NodeList) xPath.compile(GUID_EXPRESSION).evaluate(document, XPathConstants.NODESET);
+        return nodeList.getLength();
+    }
+}
@@ -42,6 +42,10 @@ public final class BasicMovie implements Comparable<BasicMovie> {
     @NotNull
     private final String key;
     @NotNull
+    private final Long addedAt;
+    @NotNull
+    private final Long updatedAt;
+    @NotNull
     private String imdbId;
     @NotNull
     private String collectionTitle;
@@ -61,7 +65,9 @@ public final class BasicMovie implements Comparable<BasicMovie> {
                        @NotNull String overview,
                        @NotNull List<MovieFromCollection> moviesInCollection,
                        @NotNull Integer ratingKey,
-                       @NotNull String key) {
+                       @NotNull String key,
+                       @NotNull Long addedAt,
+                       @NotNull Long updatedAt) {
         this.name = name;
         this.nameWithoutBadCharacters = name.replaceAll("[<>`~\\[\\]()*&^%$#@!|{}.,?\\-_=+:;]", "");
         this.year = year;
@@ -75,6 +81,8 @@ public final class BasicMovie implements Comparable<BasicMovie> {
         this.moviesInCollection = moviesInCollection;
         this.ratingKey = ratingKey;
         this.key = key;
+        this.addedAt = addedAt;
+        this.updatedAt = updatedAt;
     }
 
     public @NotNull Integer getCollectionId() {
@@ -146,6 +154,20 @@ public final class BasicMovie implements Comparable<BasicMovie> {
         return key;
     }
 
+    /**
+     * @return when Plex added the movie, in seconds since the epoch, -1 if unknown
+     */
+    public @NotNull Long getAddedAt() {
+        return addedAt;
+    }
+
+    /**
+     * @return when Plex last changed the movie, in seconds since the epoch, -1 if unknown
+     */
+    public @NotNull Long getUpdatedAt() {
+        return updatedAt;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -195,6 +217,8 @@ public final class BasicMovie implements Comparable<BasicMovie> {
                 ", tvdbId=" + tmdbId +
                 ", ratingKey=" + ratingKey +
                 ", key='" + key + '\'' +
+                ", addedAt=" + addedAt +
+                ", updatedAt=" + updatedAt +
                 '}';
     }
 
@@ -251,6 +275,14 @@ public final class BasicMovie implements Comparable<BasicMovie> {
         @JsonProperty
         private String key;
 
+        @NotNull
+        @JsonProperty
+        private Long addedAt;
+
+        @NotNull
+        @JsonProperty
+        private Long updatedAt;
+
         @JsonCreator
         public Builder(@JsonProperty(value = "name") @NotNull String name,
                        @JsonProperty(value = "year") @NotNull Integer year) {
@@ -266,10 +298,12 @@ public final class BasicMovie implements Comparable<BasicMovie> {
             this.moviesInCollection = new ArrayList<>();
             this.ratingKey = -1;
             this.key = "";
+            this.addedAt = -1L;
+            this.updatedAt = -1L;
         }
 
         public @NotNull BasicMovie build() {
-            return new BasicMovie(name, year, posterUrl, collectionTitle, collectionId, tmdbId, imdbId, language, overview, moviesInCollection, ratingKey, key);
+            return new BasicMovie(name, year, posterUrl, collectionTitle, collectionId, tmdbId, imdbId, language, overview, moviesInCollection, ratingKey, key, addedAt, updatedAt);
         }
 
         public @NotNull Builder setPosterUrl(@NotNull String posterUrl) {
@@ -321,5 +355,15 @@ public final class BasicMovie implements Comparable<BasicMovie> {
             this.key = key;
             return this;
         }
+
+        public @NotNull Builder setAddedAt(@NotNull Long addedAt) {
+            this.addedAt = addedAt;
+            return this;
+        }
+
+        public @NotNull Builder setUpdatedAt(@NotNull Long updatedAt) {
+            this.updatedAt = updatedAt;
+            return this;
+        }
     }
 }
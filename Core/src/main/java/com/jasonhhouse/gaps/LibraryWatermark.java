@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.jasonhhouse.gaps;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Remembers how far the last search of a library got. Holds the newest Plex addedAt and updatedAt values seen and,
+ * for every movie that was matched to TMDB, its Plex updatedAt at that time keyed by rating key. An incremental
+ * search only has to look at movies that aren't in here or that Plex changed since.
+ */
+public final class LibraryWatermark {
+
+    @NotNull
+    private final Long addedAt;
+
+    @NotNull
+    private final Long updatedAt;
+
+    @NotNull
+    private final Map<Integer, Long> resolved;
+
+    @JsonCreator
+    public LibraryWatermark(@JsonProperty("addedAt") Long addedAt,
+                            @JsonProperty("updatedAt") Long updatedAt,
+                            @JsonProperty("resolved") Map<Integer, Long> resolved) {
+        this.addedAt = addedAt == null ? -1L : addedAt;
+        this.updatedAt = updatedAt == null ? -1L : updatedAt;
+        this.resolved = resolved == null ? new HashMap<>() : resolved;
+    }
+
+    /**
+     * Builds the watermark from the owned movies after a search. Movies without a TMDB id or a Plex rating key aren't
+     * counted as resolved, so the next search tries them again.
+     */
+    public static @NotNull LibraryWatermark of(@NotNull Collection<BasicMovie> ownedBasicMovies) {
+        long addedAt = -1L;
+        long updatedAt = -1L;
+        Map<Integer, Long> resolved = new HashMap<>();
+        for (BasicMovie basicMovie : ownedBasicMovies) {
+            addedAt = Math.max(addedAt, basicMovie.getAddedAt());
+            updatedAt = Math.max(updatedAt, basicMovie.getUpdatedAt());
+            if (basicMovie.getRatingKey() != -1 && basicMovie.getTmdbId() != -1) {
+                resolved.put(basicMovie.getRatingKey(), basicMovie.getUpdatedAt());
+            }
+        }
+        return new LibraryWatermark(addedAt, updatedAt, resolved);
+    }
+
+    /**
+     * @return true if the movie was matched by an earlier search and Plex hasn't changed it since
+     */
+    public boolean isResolved(@NotNull BasicMovie basicMovie) {
+        if (basicMovie.getRatingKey() == -1) {
+            return false;
+        }
+
+        Long resolvedAt = resolved.get(basicMovie.getRatingKey());
+        return resolvedAt != null && resolvedAt >= basicMovie.getUpdatedAt();
+    }
+
+    public @NotNull Long getAddedAt() {
+        return addedAt;
+    }
+
+    public @NotNull Long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public @NotNull Map<Integer, Long> getResolved() {
+        return resolved;
+    }
+
+    @Override
+    public String toString() {
+        return "LibraryWatermark{" +
+                "addedAt=" + addedAt +
+                ", updatedAt=" + updatedAt +
+                ", resolved=" + resolved.size() +
+                '}';
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.jasonhhouse.gaps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Finds movies the same way {@link BasicMovie#equals(Object)} does, by TMDB id, then IMDB id, then title and year,
+ * without walking a list. {@link BasicMovie#hashCode()} only uses title and year, so a HashSet misses movies that
+ * are equal through their ids. This keeps a map per identifier instead.
+ * <p>
+ * All methods lock on the index, so callers can also lock on it to make a find and an update atomic.
+ */
+public final class MovieIndex {
+
+    private final List<BasicMovie> movies;
+    private final Map<Integer, BasicMovie> byTmdbId;
+    private final Map<String, BasicMovie> byImdbId;
+    private final Map<String, BasicMovie> byNameAndYear;
+    private int changes;
+
+    public MovieIndex() {
+        movies = new ArrayList<>();
+        byTmdbId = new HashMap<>();
+        byImdbId = new HashMap<>();
+        byNameAndYear = new HashMap<>();
+    }
+
+    public MovieIndex(@NotNull Collection<BasicMovie> basicMovies) {
+        this();
+        basicMovies.forEach(this::add);
+    }
+
+    /**
+     * @return the stored movie equal to the one passed in, null if there isn't one
+     */
+    public synchronized @Nullable BasicMovie find(@NotNull BasicMovie basicMovie) {
+        BasicMovie found = null;
+        if (basicMovie.getTmdbId() != -1) {
+            found = byTmdbId.get(basicMovie.getTmdbId());
+        }
+
+        if (found == null && StringUtils.isNotEmpty(basicMovie.getImdbId())) {
+            found = byImdbId.get(basicMovie.getImdbId());
+        }
+
+        if (found == null) {
+            found = byNameAndYear.get(nameAndYear(basicMovie));
+        }
+
+        return found;
+    }
+
+    public synchronized boolean contains(@NotNull BasicMovie basicMovie) {
+        return find(basicMovie) != null;
+    }
+
+    /**
+     * Adds the movie unless an equal one is already stored
+     *
+     * @return true if the movie was added
+     */
+    public synchronized boolean add(@NotNull BasicMovie basicMovie) {
+        if (contains(basicMovie)) {
+            return false;
+        }
+
+        movies.add(basicMovie);
+        index(basicMovie);
+        changes++;
+        return true;
+    }
+
+    /**
+     * Must be called after changing the TMDB or IMDB id of a stored movie so it can be found by the new id
+     */
+    public synchronized void reindex(@NotNull BasicMovie basicMovie) {
+        index(basicMovie);
+        changes++;
+    }
+
+    /**
+     * @return count of adds and reindexes, goes up whenever the stored movies change
+     */
+    public synchronized int getChanges() {
+        return changes;
+    }
+
+    public synchronized int size() {
+        return movies.size();
+    }
+
+    /**
+     * @return copy of the stored movies in the order they were added
+     */
+    public synchronized @NotNull List<BasicMovie> values() {
+        return new ArrayList<>(movies);
+    }
+
+    private void index(@NotNull BasicMovie basicMovie) {
+        if (basicMovie.getTmdbId() != -1) {
+            byTmdbId.putIfAbsent(basicMovie.getTmdbId(), basicMovie);
+        }
+
+        if (StringUtils.isNotEmpty(basicMovie.getImdbId())) {
+            byImdbId.putIfAbsent(basicMovie.getImdbId(), basicMovie);
+        }
+
+        byNameAndYear.putIfAbsent(nameAndYear(basicMovie), basicMovie);
+    }
+
+    private static @NotNull String nameAndYear(@NotNull BasicMovie basicMovie) {
+        return basicMovie.getYear() + ":" + basicMovie.getNameWithoutBadCharacters();
+    }
+}
@@ -47,6 +47,14 @@ public final class PlexServer {
         plexLibraries = new LinkedHashSet<>();
     }
 
+    /**
+     * Copies the server and its set of libraries, the libraries themselves are shared
+     */
+    public PlexServer(PlexServer plexServer) {
+        this(plexServer.friendlyName, plexServer.machineIdentifier, plexServer.plexToken, plexServer.address, plexServer.port);
+        plexLibraries.addAll(plexServer.plexLibraries);
+    }
+
     public String getFriendlyName() {
         return friendlyName;
     }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * What a running search of a library got through so far. Written every few minutes and when a search is cancelled or
+ * fails, removed once a search finishes. Resuming a search skips the owned movies that were completed and starts with
+ * the movies already searched and recommended.
+ */
+public final class SearchCheckpoint {
+
+    @NotNull
+    private final Long created;
+
+    @NotNull
+    private final List<BasicMovie> completed;
+
+    @NotNull
+    private final List<BasicMovie> searched;
+
+    @NotNull
+    private final List<BasicMovie> recommended;
+
+    @JsonCreator
+    public SearchCheckpoint(@JsonProperty("created") Long created,
+                            @JsonProperty("completed") List<BasicMovie> completed,
+                            @JsonProperty("searched") List<BasicMovie> searched,
+                            @JsonProperty("recommended") List<BasicMovie> recommended) {
+        this.created = created == null ? -1L : created;
+        this.completed = completed == null ? new ArrayList<>() : completed;
+        this.searched = searched == null ? new ArrayList<>() : searched;
+        this.recommended = recommended == null ? new ArrayList<>() : recommended;
+    }
+
+    /**
+     * @return epoch millis the checkpoint was taken at
+     */
+    public @NotNull Long getCreated() {
+        return created;
+    }
+
+    /**
+     * @return owned movies whose search finished
+     */
+    public @NotNull List<BasicMovie> getCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return owned and collection movies that don't have to be looked up again
+     */
+    public @NotNull List<BasicMovie> getSearched() {
+        return searched;
+    }
+
+    public @NotNull List<BasicMovie> getRecommended() {
+        return recommended;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchCheckpoint{" +
+                "created=" + created +
+                ", completed=" + completed.size() +
+                ", searched=" + searched.size() +
+                ", recommended=" + recommended.size() +
+                '}';
+    }
+}
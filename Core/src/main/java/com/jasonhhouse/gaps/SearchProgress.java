@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Progress of the search of one library. While a search runs it is sent as a small delta that only names the TMDB ids
+ * recommended since the last message. A snapshot for a client that just connected also carries every movie
+ * recommended so far.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class SearchProgress {
+    private final String machineIdentifier;
+    private final Integer key;
+    private final boolean searching;
+    private final int searchedMovieCount;
+    private final int totalMovieCount;
+    private final List<Integer> tmdbIds;
+    private final List<BasicMovie> movies;
+
+    public SearchProgress(@NotNull String machineIdentifier, @NotNull Integer key, boolean searching, int searchedMovieCount, int totalMovieCount, @NotNull List<Integer> tmdbIds,
+                          @Nullable List<BasicMovie> movies) {
+        this.machineIdentifier = machineIdentifier;
+        this.key = key;
+        this.searching = searching;
+        this.searchedMovieCount = searchedMovieCount;
+        this.totalMovieCount = totalMovieCount;
+        this.tmdbIds = tmdbIds;
+        this.movies = movies;
+    }
+
+    public @NotNull String getMachineIdentifier() {
+        return machineIdentifier;
+    }
+
+    public @NotNull Integer getKey() {
+        return key;
+    }
+
+    public boolean isSearching() {
+        return searching;
+    }
+
+    public int getSearchedMovieCount() {
+        return searchedMovieCount;
+    }
+
+    public int getTotalMovieCount() {
+        return totalMovieCount;
+    }
+
+    /**
+     * @return TMDB ids recommended since the last delta, or every id so far in a snapshot
+     */
+    public @NotNull List<Integer> getTmdbIds() {
+        return tmdbIds;
+    }
+
+    /**
+     * @return every movie recommended so far in a snapshot, null in a delta
+     */
+    public @Nullable List<BasicMovie> getMovies() {
+        return movies;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SearchProgress that = (SearchProgress) o;
+        return searching == that.searching &&
+                searchedMovieCount == that.searchedMovieCount &&
+                totalMovieCount == that.totalMovieCount &&
+                machineIdentifier.equals(that.machineIdentifier) &&
+                key.equals(that.key) &&
+                tmdbIds.equals(that.tmdbIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(machineIdentifier, key, searching, searchedMovieCount, totalMovieCount, tmdbIds);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchProgress{" +
+                "machineIdentifier='" + machineIdentifier + '\'' +
+                ", key=" + key +
+                ", searching=" + searching +
+                ", searchedMovieCount=" + searchedMovieCount +
+                ", totalMovieCount=" + totalMovieCount +
+                ", tmdbIds=" + tmdbIds +
+                '}';
+    }
+}
@@ -89,6 +89,27 @@ public final class PlexProperties {
         this.schedule = Schedule.EVERY_MONDAY;
     }
 
+    /**
+     * Copies the properties and the Plex servers in them. The notification properties can't be changed, so they are
+     * shared.
+     */
+    public PlexProperties(@NotNull PlexProperties plexProperties) {
+        this.plexServers = new ArrayList<>(plexProperties.plexServers.size());
+        for (PlexServer plexServer : plexProperties.plexServers) {
+            this.plexServers.add(new PlexServer(plexServer));
+        }
+        this.telegramProperties = plexProperties.telegramProperties;
+        this.pushBulletProperties = plexProperties.pushBulletProperties;
+        this.emailProperties = plexProperties.emailProperties;
+        this.gotifyProperties = plexProperties.gotifyProperties;
+        this.slackProperties = plexProperties.slackProperties;
+        this.pushOverProperties = plexProperties.pushOverProperties;
+        this.discordProperties = plexProperties.discordProperties;
+        this.movieDbApiKey = plexProperties.movieDbApiKey;
+        this.password = plexProperties.password;
+        this.schedule = plexProperties.schedule;
+    }
+
     @NotNull
     public List<PlexServer> getPlexServers() {
         return plexServers;
@@ -11,6 +11,9 @@
 
 package com.jasonhhouse.gaps.service;
 
+import com.jasonhhouse.gaps.PlexServer;
+import com.jasonhhouse.gaps.SearchMode;
+import java.util.Iterator;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -21,15 +24,43 @@ public interface GapsSearch {
     /**
      * Kicks of searching for all missing movies
      */
-    void run(@NotNull String machineIdentifier, @NotNull Integer key);
+    default void run(@NotNull String machineIdentifier, @NotNull Integer key) {
+        run(machineIdentifier, key, SearchMode.FULL);
+    }
 
     /**
-     * Cancel the current search
+     * Kicks of searching for missing movies, either going through the whole library or only what changed since the
+     * last search
+     */
+    void run(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull SearchMode searchMode);
+
+    /**
+     * Searches every library of the Plex servers one after another, in the order the iterator hands the servers out.
+     * The iterator may block until the next server is ready, for example scanned. A movie owned in several libraries
+     * is only looked up on TMDB once, later libraries reuse what the earlier ones found. Each library still gets its
+     * own recommended movies and RSS feed.
+     */
+    void runAll(@NotNull Iterator<PlexServer> plexServers, @NotNull SearchMode searchMode);
+
+    /**
+     * Queues a search to run in the background
+     *
+     * @return id of the new search job, or of the job already searching the library
+     */
+    @NotNull String submit(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull SearchMode searchMode);
+
+    /**
+     * Cancel every running search
      */
     void cancelSearch();
 
     /**
-     * @return Returns true if currently searching
+     * Cancel the search of one library, searches of other libraries keep going
+     */
+    void cancelSearch(@NotNull String machineIdentifier, @NotNull Integer key);
+
+    /**
+     * @return Returns true if any library is being searched
      */
     boolean isSearching();
 }
\ No newline at end of file
@@ -12,12 +12,16 @@
 package com.jasonhhouse.gaps.service;
 
 import com.jasonhhouse.gaps.BasicMovie;
+import com.jasonhhouse.gaps.LibraryWatermark;
 import com.jasonhhouse.gaps.Payload;
+import com.jasonhhouse.gaps.SearchCheckpoint;
 import com.jasonhhouse.gaps.properties.PlexProperties;
 import java.io.File;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public interface IO {
 
@@ -46,6 +50,41 @@ public interface IO {
 
     @NotNull List<BasicMovie> readOwnedMovies(@NotNull String machineIdentifier, @NotNull Integer key);
 
+    /**
+     * @return true if the library has any owned movies
+     */
+    boolean hasOwnedMovies(@NotNull String machineIdentifier, @NotNull Integer key);
+
+    /**
+     * @return true if the library owns the movie with the TMDB id
+     */
+    boolean isOwned(@NotNull String machineIdentifier, @NotNull Integer key, int tmdbId);
+
+    /**
+     * Reads what the last search of the library got through, null if it was never searched
+     */
+    @Nullable LibraryWatermark readWatermark(@NotNull String machineIdentifier, @NotNull Integer key);
+
+    /**
+     * Prints out the watermark of the last search to watermark.json
+     */
+    void writeWatermark(@NotNull LibraryWatermark libraryWatermark, @NotNull String machineIdentifier, @NotNull Integer key);
+
+    /**
+     * Reads the checkpoint of an unfinished search of the library, null if there is none
+     */
+    @Nullable SearchCheckpoint readCheckpoint(@NotNull String machineIdentifier, @NotNull Integer key);
+
+    /**
+     * Prints out the checkpoint of a running search to checkpoint.json
+     */
+    void writeCheckpoint(@NotNull SearchCheckpoint searchCheckpoint, @NotNull String machineIdentifier, @NotNull Integer key);
+
+    /**
+     * Removes the checkpoint once a search of the library finished
+     */
+    void deleteCheckpoint(@NotNull String machineIdentifier, @NotNull Integer key);
+
     /**
      * Prints out all movies to a text file movieIds.json
      */
@@ -58,6 +97,11 @@ public interface IO {
      */
     @NotNull Set<BasicMovie> readMovieIdsFromFile();
 
+    /**
+     * Hands every movie in movieIds.json to the consumer as it is read, without building a set of them first
+     */
+    void forEachMovieId(@NotNull Consumer<BasicMovie> consumer);
+
     void writeProperties(@NotNull PlexProperties plexProperties);
 
     @NotNull PlexProperties readProperties();
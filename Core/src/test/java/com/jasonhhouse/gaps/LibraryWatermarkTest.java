@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.jasonhhouse.gaps;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LibraryWatermarkTest {
+
+    @Test
+    void resolvedUntilPlexChangesMovie() {
+        BasicMovie resolved = new BasicMovie.Builder("Alien", 1979).setRatingKey(1).setTmdbId(348).setAddedAt(100L).setUpdatedAt(200L).build();
+        LibraryWatermark libraryWatermark = LibraryWatermark.of(Arrays.asList(resolved));
+
+        assertTrue(libraryWatermark.isResolved(resolved), "Unchanged movie should be resolved");
+
+        BasicMovie changed = new BasicMovie.Builder("Alien", 1979).setRatingKey(1).setTmdbId(348).setAddedAt(100L).setUpdatedAt(300L).build();
+        assertFalse(libraryWatermark.isResolved(changed), "Movie changed in Plex should not be resolved");
+
+        BasicMovie added = new BasicMovie.Builder("Aliens", 1986).setRatingKey(2).setAddedAt(400L).setUpdatedAt(400L).build();
+        assertFalse(libraryWatermark.isResolved(added), "New movie should not be resolved");
+    }
+
+    @Test
+    void unmatchedMoviesNotResolved() {
+        BasicMovie unmatched = new BasicMovie.Builder("Alien", 1979).setRatingKey(1).setUpdatedAt(200L).build();
+        BasicMovie noRatingKey = new BasicMovie.Builder("Aliens", 1986).setTmdbId(679).build();
+        LibraryWatermark libraryWatermark = LibraryWatermark.of(Arrays.asList(unmatched, noRatingKey));
+
+        assertFalse(libraryWatermark.isResolved(unmatched), "Movie without TMDB id should be searched again");
+        assertFalse(libraryWatermark.isResolved(noRatingKey), "Movie without rating key can't be tracked");
+        assertEquals(200L, libraryWatermark.getUpdatedAt(), "Should keep newest updatedAt");
+    }
+
+    @Test
+    void serializeAndDeserialize() throws Exception {
+        BasicMovie resolved = new BasicMovie.Builder("Alien", 1979).setRatingKey(1).setTmdbId(348).setAddedAt(100L).setUpdatedAt(200L).build();
+        LibraryWatermark libraryWatermark = LibraryWatermark.of(Arrays.asList(resolved));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        LibraryWatermark remade = objectMapper.readValue(objectMapper.writeValueAsString(libraryWatermark), LibraryWatermark.class);
+
+        assertEquals(100L, remade.getAddedAt(), "Should keep addedAt");
+        assertTrue(remade.isResolved(resolved), "Should keep resolved movies");
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.jasonhhouse.gaps;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieIndexTest {
+
+    @Test
+    void findByTmdbId() {
+        BasicMovie stored = new BasicMovie.Builder("Zatoichi", 2003).setTmdbId(246).build();
+        MovieIndex movieIndex = new MovieIndex(Arrays.asList(stored));
+
+        BasicMovie renamed = new BasicMovie.Builder("The Blind Swordsman: Zatoichi", 2003).setTmdbId(246).build();
+
+        assertEquals(stored, renamed, "Movies with the same TMDB id should be equal");
+        assertSame(stored, movieIndex.find(renamed), "Should find movie by TMDB id even with a different name");
+    }
+
+    @Test
+    void findByImdbId() {
+        BasicMovie stored = new BasicMovie.Builder("Zatoichi", 2003).setImdbId("tt0363226").build();
+        MovieIndex movieIndex = new MovieIndex(Arrays.asList(stored));
+
+        BasicMovie other = new BasicMovie.Builder("Zatôichi", 2004).setImdbId("tt0363226").build();
+
+        assertSame(stored, movieIndex.find(other), "Should find movie by IMDB id");
+    }
+
+    @Test
+    void findByNameAndYear() {
+        BasicMovie stored = new BasicMovie.Builder("Zatoichi: The Festival of Fire", 1970).build();
+        MovieIndex movieIndex = new MovieIndex(Arrays.asList(stored));
+
+        assertSame(stored, movieIndex.find(new BasicMovie.Builder("Zatoichi The Festival of Fire", 1970).build()), "Should ignore bad characters in the name");
+        assertNull(movieIndex.find(new BasicMovie.Builder("Zatoichi The Festival of Fire", 1971).build()), "Should not match a different year");
+    }
+
+    @Test
+    void addSkipsEqualMovies() {
+        MovieIndex movieIndex = new MovieIndex();
+
+        assertTrue(movieIndex.add(new BasicMovie.Builder("Zatoichi", 2003).setTmdbId(246).build()), "Should add new movie");
+        assertFalse(movieIndex.add(new BasicMovie.Builder("The Blind Swordsman: Zatoichi", 2003).setTmdbId(246).build()), "Should not add movie equal by TMDB id");
+        assertFalse(movieIndex.add(new BasicMovie.Builder("Zatoichi", 2003).build()), "Should not add movie equal by name and year");
+        assertEquals(1, movieIndex.size(), "Should only have one movie");
+    }
+
+    @Test
+    void reindexAfterIdChange() {
+        BasicMovie stored = new BasicMovie.Builder("Zatoichi", 2003).build();
+        MovieIndex movieIndex = new MovieIndex(Arrays.asList(stored));
+        BasicMovie byId = new BasicMovie.Builder("The Blind Swordsman: Zatoichi", 2003).setTmdbId(246).build();
+        assertFalse(movieIndex.contains(byId), "Should not find movie before TMDB id is known");
+
+        stored.setTmdbId(246);
+        movieIndex.reindex(stored);
+
+        assertSame(stored, movieIndex.find(byId), "Should find movie by the new TMDB id");
+    }
+
+    @Test
+    void countsChanges() {
+        BasicMovie stored = new BasicMovie.Builder("Zatoichi", 2003).build();
+        MovieIndex movieIndex = new MovieIndex(Arrays.asList(stored));
+        int changes = movieIndex.getChanges();
+
+        movieIndex.add(new BasicMovie.Builder("Zatoichi", 2003).build());
+        assertEquals(changes, movieIndex.getChanges(), "Should not count a movie that was already stored");
+
+        stored.setTmdbId(246);
+        movieIndex.reindex(stored);
+        assertEquals(changes + 1, movieIndex.getChanges(), "Should count a changed id");
+    }
+}
@@ -10,8 +10,11 @@
 
 package com.jasonhhouse.gaps;
 
+import java.time.Duration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
 
 
 @ConstructorBinding
@@ -25,8 +28,16 @@ public class GapsConfiguration {
     private final Boolean sslEnabled;
     private final String storageFolder;
     private final Properties properties;
+    private final Tmdb tmdb;
+    private final Plex plex;
+    private final Http http;
+    private final Rss rss;
+    private final Notifications notifications;
+    private final Search search;
 
-    public GapsConfiguration(String name, String description, String version, Boolean loginEnabled, Boolean sslEnabled, String storageFolder, Properties properties) {
+    public GapsConfiguration(String name, String description, String version, Boolean loginEnabled, Boolean sslEnabled, String storageFolder, Properties properties, @DefaultValue Tmdb tmdb,
+                             @DefaultValue Plex plex, @DefaultValue Http http, @DefaultValue Rss rss, @DefaultValue Notifications notifications,
+                             @DefaultValue Search search) {
         this.name = name;
         this.description = description;
         this.version = version;
@@ -34,6 +45,12 @@ public class GapsConfiguration {
         this.sslEnabled = sslEnabled;
         this.storageFolder = storageFolder;
         this.properties = properties;
+        this.tmdb = tmdb;
+        this.plex = plex;
+        this.http = http;
+        this.rss = rss;
+        this.notifications = notifications;
+        this.search = search;
     }
 
     public String getStorageFolder() {
@@ -64,6 +81,30 @@ public class GapsConfiguration {
         return properties;
     }
 
+    public Tmdb getTmdb() {
+        return tmdb;
+    }
+
+    public Plex getPlex() {
+        return plex;
+    }
+
+    public Http getHttp() {
+        return http;
+    }
+
+    public Rss getRss() {
+        return rss;
+    }
+
+    public Notifications getNotifications() {
+        return notifications;
+    }
+
+    public Search getSearch() {
+        return search;
+    }
+
     @Override
     public String toString() {
         return "YamlConfig{" +
@@ -83,13 +124,22 @@ public class GapsConfiguration {
         private final String movieIds;
         private final String ownedMovies;
         private final String recommendedMovies;
+        private final String collections;
+        private final String movieDetails;
+        private final String watermark;
+        private final String checkpoint;
 
-        public Properties(String rssFeed, String gapsProperties, String movieIds, String ownedMovies, String recommendedMovies) {
+        public Properties(String rssFeed, String gapsProperties, String movieIds, String ownedMovies, String recommendedMovies, @DefaultValue("collections.json") String collections,
+                          @DefaultValue("movieDetails.json") String movieDetails, @DefaultValue("watermark.json") String watermark, @DefaultValue("checkpoint.json") String checkpoint) {
             this.rssFeed = rssFeed;
             this.gapsProperties = gapsProperties;
             this.movieIds = movieIds;
             this.ownedMovies = ownedMovies;
             this.recommendedMovies = recommendedMovies;
+            this.collections = collections;
+            this.movieDetails = movieDetails;
+            this.watermark = watermark;
+            this.checkpoint = checkpoint;
         }
 
         public String getRssFeed() {
@@ -111,5 +161,259 @@ public class GapsConfiguration {
         public String getRecommendedMovies() {
             return recommendedMovies;
         }
+
+        public String getCollections() {
+            return collections;
+        }
+
+        public String getMovieDetails() {
+            return movieDetails;
+        }
+
+        public String getWatermark() {
+            return watermark;
+        }
+
+        public String getCheckpoint() {
+            return checkpoint;
+        }
+    }
+
+    /**
+     * Limits for talking to TMDB. The request budget is shared by every search worker, so raising the thread count
+     * only helps while the budget isn't used up.
+     */
+    @ConstructorBinding
+    public static final class Tmdb {
+        private final Integer requestsPerSecond;
+        private final Integer burst;
+        private final Integer searchThreads;
+        private final Duration collectionTtl;
+        private final Integer detailCacheSize;
+        private final Duration detailTtl;
+
+        public Tmdb(@DefaultValue("40") Integer requestsPerSecond, @DefaultValue("40") Integer burst, @DefaultValue("8") Integer searchThreads, @DefaultValue("7d") Duration collectionTtl,
+                    @DefaultValue("10000") Integer detailCacheSize, @DefaultValue("30d") Duration detailTtl) {
+            this.requestsPerSecond = requestsPerSecond;
+            this.burst = burst;
+            this.searchThreads = searchThreads;
+            this.collectionTtl = collectionTtl;
+            this.detailCacheSize = detailCacheSize;
+            this.detailTtl = detailTtl;
+        }
+
+        public Integer getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public Integer getBurst() {
+            return burst;
+        }
+
+        public Integer getSearchThreads() {
+            return searchThreads;
+        }
+
+        /**
+         * @return how long a cached TMDB collection is used before it is refreshed in the background
+         */
+        public Duration getCollectionTtl() {
+            return collectionTtl;
+        }
+
+        /**
+         * @return how many movies the TMDB detail cache keeps before dropping the least recently used
+         */
+        public Integer getDetailCacheSize() {
+            return detailCacheSize;
+        }
+
+        /**
+         * @return how long cached TMDB movie details are used before they are fetched again
+         */
+        public Duration getDetailTtl() {
+            return detailTtl;
+        }
+    }
+
+    /**
+     * Limits for talking to the Plex servers. These are usually on the local network, so a handful of threads is
+     * enough to keep them busy.
+     */
+    @ConstructorBinding
+    public static final class Plex {
+        private final Integer metadataThreads;
+
+        public Plex(@DefaultValue("4") Integer metadataThreads) {
+            this.metadataThreads = metadataThreads;
+        }
+
+        /**
+         * @return how many /library/metadata requests are sent to a Plex server at once when looking up movie ids
+         */
+        public Integer getMetadataThreads() {
+            return metadataThreads;
+        }
+    }
+
+    /**
+     * Settings shared by the HTTP clients Gaps uses to reach TMDB, Plex, Radarr and the notification agents.
+     */
+    @ConstructorBinding
+    public static final class Http {
+        private final Integer maxIdleConnections;
+        private final Duration keepAlive;
+        private final DataSize tmdbCacheSize;
+
+        public Http(@DefaultValue("10") Integer maxIdleConnections, @DefaultValue("5m") Duration keepAlive, @DefaultValue("0") DataSize tmdbCacheSize) {
+            this.maxIdleConnections = maxIdleConnections;
+            this.keepAlive = keepAlive;
+            this.tmdbCacheSize = tmdbCacheSize;
+        }
+
+        /**
+         * @return how many idle connections each upstream keeps open
+         */
+        public Integer getMaxIdleConnections() {
+            return maxIdleConnections;
+        }
+
+        /**
+         * @return how long an idle connection is kept open before it is closed
+         */
+        public Duration getKeepAlive() {
+            return keepAlive;
+        }
+
+        /**
+         * @return size of the on disk cache for TMDB responses, zero turns the cache off
+         */
+        public DataSize getTmdbCacheSize() {
+            return tmdbCacheSize;
+        }
+    }
+
+    /**
+     * How often the RSS feed is written while a search is still finding movies. The feed is always written once more
+     * when the search ends.
+     */
+    @ConstructorBinding
+    public static final class Rss {
+        private final Duration flushInterval;
+        private final Integer flushEvery;
+
+        public Rss(@DefaultValue("5s") Duration flushInterval, @DefaultValue("25") Integer flushEvery) {
+            this.flushInterval = flushInterval;
+            this.flushEvery = flushEvery;
+        }
+
+        /**
+         * @return longest time a new recommendation waits before the feed is written
+         */
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        /**
+         * @return how many new recommendations are written at once without waiting for the interval
+         */
+        public Integer getFlushEvery() {
+            return flushEvery;
+        }
+    }
+
+    /**
+     * How notifications are delivered. Each agent sends from its own queue, so a slow or broken agent only delays
+     * its own messages.
+     */
+    @ConstructorBinding
+    public static final class Notifications {
+        private final Integer queueSize;
+        private final Integer attempts;
+        private final Duration backoff;
+        private final Duration timeout;
+        private final Boolean digest;
+
+        public Notifications(@DefaultValue("100") Integer queueSize, @DefaultValue("3") Integer attempts, @DefaultValue("2s") Duration backoff, @DefaultValue("30s") Duration timeout,
+                             @DefaultValue("true") Boolean digest) {
+            this.queueSize = queueSize;
+            this.attempts = attempts;
+            this.backoff = backoff;
+            this.timeout = timeout;
+            this.digest = digest;
+        }
+
+        /**
+         * @return how many messages wait for an agent before new ones are dropped
+         */
+        public Integer getQueueSize() {
+            return queueSize;
+        }
+
+        /**
+         * @return how many times a message is tried before it is given up
+         */
+        public Integer getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * @return wait before the first retry, doubled for every retry after that
+         */
+        public Duration getBackoff() {
+            return backoff;
+        }
+
+        /**
+         * @return longest time one try may take
+         */
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        /**
+         * @return true if a scheduled run sends one summary per agent instead of a message for every event
+         */
+        public Boolean getDigest() {
+            return digest;
+        }
+    }
+
+    /**
+     * How searches run in the background and how their progress reaches the browser. Counters are sampled on an
+     * interval instead of sending a message for every movie searched.
+     */
+    @ConstructorBinding
+    public static final class Search {
+        private final Duration progressInterval;
+        private final Integer jobThreads;
+        private final Duration checkpointInterval;
+
+        public Search(@DefaultValue("1s") Duration progressInterval, @DefaultValue("2") Integer jobThreads, @DefaultValue("1m") Duration checkpointInterval) {
+            this.progressInterval = progressInterval;
+            this.jobThreads = jobThreads;
+            this.checkpointInterval = checkpointInterval;
+        }
+
+        /**
+         * @return how often the progress of a running search is sent
+         */
+        public Duration getProgressInterval() {
+            return progressInterval;
+        }
+
+        /**
+         * @return how many libraries are searched at the same time by background jobs, more jobs wait their turn
+         */
+        public Integer getJobThreads() {
+            return jobThreads;
+        }
+
+        /**
+         * @return how often a running search saves how far it got, so it can be resumed after a restart
+         */
+        public Duration getCheckpointInterval() {
+            return checkpointInterval;
+        }
     }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps;
+
+import com.jasonhhouse.gaps.notifications.NotificationStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpMetricsEventListener;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * One OkHttpClient per upstream, so connections, TLS sessions and dispatcher threads are reused across calls instead
+ * of being thrown away with a client built per request. Every client reports request counts and latency to
+ * {@value #METRIC_NAME}, tagged with the upstream it talks to.
+ */
+@Configuration
+public class HttpClientConfiguration {
+
+    public static final String TMDB = "tmdb";
+    public static final String PLEX = "plex";
+    public static final String RADARR = "radarr";
+    public static final String NOTIFICATIONS = "notifications";
+
+    static final String METRIC_NAME = "gaps.http.client.requests";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientConfiguration.class);
+
+    private static final long TMDB_TIMEOUT = 10;
+    private static final long PLEX_TIMEOUT = 180;
+    private static final long RADARR_TIMEOUT = 2500;
+    private static final long NOTIFICATION_TIMEOUT = NotificationStatus.TIMEOUT;
+
+    private final GapsConfiguration gapsConfiguration;
+    private final MeterRegistry meterRegistry;
+
+    public HttpClientConfiguration(GapsConfiguration gapsConfiguration, MeterRegistry meterRegistry) {
+        this.gapsConfiguration = gapsConfiguration;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean(TMDB)
+    public OkHttpClient getTmdbClient() {
+        OkHttpClient.Builder builder = newBuilder(TMDB)
+                .connectTimeout(TMDB_TIMEOUT, TimeUnit.SECONDS)
+                .readTimeout(TMDB_TIMEOUT, TimeUnit.SECONDS)
+                .writeTimeout(TMDB_TIMEOUT, TimeUnit.SECONDS);
+
+        long cacheSize = gapsConfiguration.getHttp().getTmdbCacheSize().toBytes();
+        if (cacheSize > 0) {
+            File cacheFolder = new File(gapsConfiguration.getStorageFolder(), "httpCache");
+            LOGGER.info("Caching up to {} bytes of TMDB responses in {}", cacheSize, cacheFolder);
+            builder.cache(new Cache(cacheFolder, cacheSize));
+        }
+
+        return builder.build();
+    }
+
+    @Bean(PLEX)
+    public OkHttpClient getPlexClient() {
+        return newBuilder(PLEX)
+                .connectTimeout(PLEX_TIMEOUT, TimeUnit.SECONDS)
+                .readTimeout(PLEX_TIMEOUT, TimeUnit.SECONDS)
+                .writeTimeout(PLEX_TIMEOUT, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Bean(RADARR)
+    public OkHttpClient getRadarrClient() {
+        return newBuilder(RADARR)
+                .connectTimeout(RADARR_TIMEOUT, TimeUnit.MILLISECONDS)
+                .readTimeout(RADARR_TIMEOUT, TimeUnit.MILLISECONDS)
+                .writeTimeout(RADARR_TIMEOUT, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Bean(NOTIFICATIONS)
+    public OkHttpClient getNotificationClient() {
+        return newBuilder(NOTIFICATIONS)
+                .connectTimeout(NOTIFICATION_TIMEOUT, TimeUnit.MILLISECONDS)
+                .readTimeout(NOTIFICATION_TIMEOUT, TimeUnit.MILLISECONDS)
+                .writeTimeout(NOTIFICATION_TIMEOUT, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * HTTP/2 is used whenever the upstream offers it over TLS, which is OkHttp's default
+     */
+    private @NotNull OkHttpClient.Builder newBuilder(@NotNull String upstream) {
+        GapsConfiguration.Http http = gapsConfiguration.getHttp();
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(http.getMaxIdleConnections(), http.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS))
+                .retryOnConnectionFailure(true)
+                .eventListener(OkHttpMetricsEventListener.builder(meterRegistry, METRIC_NAME)
+                        .tag(Tag.of("upstream", upstream))
+                        .build());
+    }
+}
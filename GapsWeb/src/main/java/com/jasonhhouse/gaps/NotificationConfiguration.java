@@ -18,6 +18,8 @@ import com.jasonhhouse.gaps.notifications.PushOverNotificationAgent;
 import com.jasonhhouse.gaps.notifications.SlackNotificationAgent;
 import com.jasonhhouse.gaps.notifications.TelegramNotificationAgent;
 import com.jasonhhouse.gaps.service.FileIoService;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -25,24 +27,26 @@ import org.springframework.context.annotation.Configuration;
 public class NotificationConfiguration {
 
     private final FileIoService fileIoService;
+    private final OkHttpClient client;
 
-    public NotificationConfiguration(FileIoService fileIoService) {
+    public NotificationConfiguration(FileIoService fileIoService, @Qualifier(HttpClientConfiguration.NOTIFICATIONS) OkHttpClient client) {
         this.fileIoService = fileIoService;
+        this.client = client;
     }
 
     @Bean
     public TelegramNotificationAgent getTelegramElement() {
-        return new TelegramNotificationAgent(fileIoService);
+        return new TelegramNotificationAgent(fileIoService, client);
     }
 
     @Bean
     public PushBulletNotificationAgent getPushBulletElement() {
-        return new PushBulletNotificationAgent(fileIoService);
+        return new PushBulletNotificationAgent(fileIoService, client);
     }
 
     @Bean
     public SlackNotificationAgent getSlackElement() {
-        return new SlackNotificationAgent(fileIoService);
+        return new SlackNotificationAgent(fileIoService, client);
     }
 
     @Bean
@@ -52,16 +56,16 @@ public class NotificationConfiguration {
 
     @Bean
     public GotifyNotificationAgent getGotifyElement() {
-        return new GotifyNotificationAgent(fileIoService);
+        return new GotifyNotificationAgent(fileIoService, client);
     }
 
     @Bean
     public PushOverNotificationAgent getPushOverElement() {
-        return new PushOverNotificationAgent(fileIoService);
+        return new PushOverNotificationAgent(fileIoService, client);
     }
 
     @Bean
     public DiscordNotificationAgent getDiscordElement() {
-        return new DiscordNotificationAgent(fileIoService);
+        return new DiscordNotificationAgent(fileIoService, client);
     }
 }
@@ -17,15 +17,26 @@ import com.jasonhhouse.gaps.service.NotificationService;
 import com.jasonhhouse.gaps.service.PlexQuery;
 import com.jasonhhouse.gaps.service.TmdbService;
 import com.jasonhhouse.plex.libs.PlexLibrary;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import okhttp3.HttpUrl;
 import org.apache.commons.collections4.CollectionUtils;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.web.server.ResponseStatusException;
 
 public final class SearchGapsTask implements Runnable {
@@ -44,25 +55,42 @@ public final class SearchGapsTask implements Runnable {
     private final GapsUrlGenerator gapsUrlGenerator;
     @NotNull
     private final NotificationService notificationService;
+    private final boolean digest;
 
     public SearchGapsTask(@NotNull GapsSearch gapsSearch,
                           @NotNull TmdbService tmdbService,
                           @NotNull FileIoService fileIoService,
                           @NotNull PlexQuery plexQuery,
                           @NotNull GapsUrlGenerator gapsUrlGenerator,
-                          @NotNull NotificationService notificationService) {
+                          @NotNull NotificationService notificationService,
+                          boolean digest) {
         this.gapsSearch = gapsSearch;
         this.tmdbService = tmdbService;
         this.fileIoService = fileIoService;
         this.plexQuery = plexQuery;
         this.gapsUrlGenerator = gapsUrlGenerator;
         this.notificationService = notificationService;
+        this.digest = digest;
     }
 
     @Override
     public void run() {
         LOGGER.info("run()");
 
+        if (!digest) {
+            search();
+            return;
+        }
+
+        notificationService.startDigest();
+        try {
+            search();
+        } finally {
+            notificationService.finishDigest();
+        }
+    }
+
+    private void search() {
         PlexProperties plexProperties = fileIoService.readProperties();
         if (CollectionUtils.isEmpty(plexProperties.getPlexServers())) {
             LOGGER.warn("No Plex Servers Found. Canceling automatic search.");
@@ -72,13 +100,7 @@ public final class SearchGapsTask implements Runnable {
         boolean tmdbResult = checkTmdbKey();
 
         if (tmdbResult) {
-            checkPlexServers(plexProperties);
-
-            updatePlexLibraries(plexProperties);
-
-            updateLibraryMovies(plexProperties);
-
-            findRecommendedMovies(plexProperties);
+            scanAndSearchPlexServers(plexProperties);
         }
     }
 
@@ -97,82 +119,164 @@ public final class SearchGapsTask implements Runnable {
         }
     }
 
-    private void checkPlexServers(@NotNull PlexProperties plexProperties) {
-        LOGGER.debug("checkPlexServers()");
+    /**
+     * Scans every Plex server at the same time, so a slow or unreachable server doesn't hold up the others. Within a
+     * server the steps stay in order: probe, refresh the libraries, then read the movies of each library. Once a server
+     * fails to answer, the steps left for it are skipped instead of each waiting on its own timeout.
+     * <p>
+     * The libraries of a server are searched on TMDB as soon as its scan is done, while the other servers are still
+     * being scanned. Servers that stopped answering are not searched at all, their owned movies would be from the last
+     * run. The search and the notifications of each scan run on this thread, so they still end up in the digest.
+     */
+    private void scanAndSearchPlexServers(@NotNull PlexProperties plexProperties) {
+        LOGGER.debug("scanAndSearchPlexServers()");
 
-        int counter = 0;
-        for (PlexServer plexServer : plexProperties.getPlexServers()) {
-            Payload payload = plexQuery.queryPlexServer(plexServer);
-            if (payload.getCode() == Payload.PLEX_CONNECTION_SUCCEEDED.getCode()) {
-                notificationService.plexServerConnectSuccessful(plexServer);
-            } else {
-                notificationService.plexServerConnectFailed(plexServer, payload.getReason());
+        List<PlexServer> plexServers = plexProperties.getPlexServers();
+        Map<Pair<String, Integer>, BasicMovie> previousMovies = generateOwnedMovieMap();
+        ExecutorService executorService = Executors.newFixedThreadPool(plexServers.size(), new CustomizableThreadFactory("Gaps-Scan-"));
+        try {
+            CompletionService<PlexServerScan> completionService = new ExecutorCompletionService<>(executorService);
+            Map<Future<PlexServerScan>, PlexServer> scans = new HashMap<>();
+            for (PlexServer plexServer : plexServers) {
+                scans.put(completionService.submit(() -> scanPlexServer(plexServer, previousMovies)), plexServer);
             }
-            counter++;
+
+            gapsSearch.runAll(new ScannedPlexServers(completionService, scans), SearchMode.INCREMENTAL);
+        } finally {
+            executorService.shutdownNow();
         }
-        LOGGER.info("checkPlexServers() executed {} times", counter);
+        LOGGER.info("scanAndSearchPlexServers() executed for {} servers", plexServers.size());
     }
 
-    private void updatePlexLibraries(@NotNull PlexProperties plexProperties) {
-        LOGGER.debug("updatePlexLibraries()");
-
-        int counter = 0;
-        //Update each Plex Library from each Plex Server
-        for (PlexServer plexServer : plexProperties.getPlexServers()) {
-            Payload getLibrariesResults = plexQuery.getLibraries(plexServer);
-            if (Payload.PLEX_LIBRARIES_FOUND == getLibrariesResults) {
-                LOGGER.info("Plex libraries found for Plex Server {}", plexServer.getFriendlyName());
-            } else {
-                LOGGER.warn("Plex libraries not found for Plex Server {}", plexServer.getFriendlyName());
-            }
-            counter++;
+    /**
+     * @return the notifications to send for this server, in the order things happened, and if it kept answering
+     */
+    private @NotNull PlexServerScan scanPlexServer(@NotNull PlexServer plexServer, @NotNull Map<Pair<String, Integer>, BasicMovie> previousMovies) {
+        List<Runnable> notifications = new ArrayList<>();
+
+        Payload payload;
+        try {
+            payload = plexQuery.queryPlexServer(plexServer);
+        } catch (ResponseStatusException | IllegalStateException e) {
+            LOGGER.error(String.format("Error probing Plex Server %s", plexServer.getFriendlyName()), e);
+            payload = Payload.PLEX_CONNECTION_FAILED;
+        }
+
+        if (payload.getCode() == Payload.PLEX_CONNECTION_SUCCEEDED.getCode()) {
+            notifications.add(() -> notificationService.plexServerConnectSuccessful(plexServer));
+        } else {
+            String reason = payload.getReason();
+            notifications.add(() -> notificationService.plexServerConnectFailed(plexServer, reason));
+            skipLibraries(plexServer, plexServer.getPlexLibraries(), notifications);
+            return new PlexServerScan(notifications, false);
         }
-        LOGGER.info("updatePlexLibraries() executed {} times", counter);
-    }
 
-    private void updateLibraryMovies(@NotNull PlexProperties plexProperties) {
-        LOGGER.debug("updateLibraryMovies()");
+        Payload getLibrariesResults = plexQuery.getLibraries(plexServer);
+        if (Payload.PLEX_LIBRARIES_FOUND == getLibrariesResults) {
+            LOGGER.info("Plex libraries found for Plex Server {}", plexServer.getFriendlyName());
+        } else if (Payload.PLEX_CONNECTION_FAILED == getLibrariesResults) {
+            LOGGER.warn("Plex Server {} stopped answering", plexServer.getFriendlyName());
+            skipLibraries(plexServer, plexServer.getPlexLibraries(), notifications);
+            return new PlexServerScan(notifications, false);
+        } else {
+            LOGGER.warn("Plex libraries not found for Plex Server {}", plexServer.getFriendlyName());
+        }
 
-        int counter = 0;
-        for (PlexServer plexServer : plexProperties.getPlexServers()) {
-            for (PlexLibrary plexLibrary : plexServer.getPlexLibraries()) {
-                HttpUrl url = gapsUrlGenerator.generatePlexLibraryUrl(plexServer, plexLibrary);
-                try {
-                    List<BasicMovie> ownedBasicMovies = plexQuery.findAllPlexMovies(generateOwnedMovieMap(plexProperties), url);
-                    plexQuery.findAllMovieIds(ownedBasicMovies, plexServer, plexLibrary);
-                    fileIoService.writeOwnedMoviesToFile(ownedBasicMovies, plexServer.getMachineIdentifier(), plexLibrary.getKey());
-                    notificationService.plexLibraryScanSuccessful(plexServer, plexLibrary);
-                } catch (ResponseStatusException e) {
-                    notificationService.plexLibraryScanFailed(plexServer, plexLibrary, e.getMessage());
+        List<PlexLibrary> plexLibraries = new ArrayList<>(plexServer.getPlexLibraries());
+        for (int i = 0; i < plexLibraries.size(); i++) {
+            PlexLibrary plexLibrary = plexLibraries.get(i);
+            HttpUrl url = gapsUrlGenerator.generatePlexLibraryUrl(plexServer, plexLibrary);
+            try {
+                List<BasicMovie> ownedBasicMovies = plexQuery.findAllPlexMovies(previousMovies, url);
+                plexQuery.findAllMovieIds(ownedBasicMovies, plexServer, plexLibrary);
+                fileIoService.writeOwnedMoviesToFile(ownedBasicMovies, plexServer.getMachineIdentifier(), plexLibrary.getKey());
+                notifications.add(() -> notificationService.plexLibraryScanSuccessful(plexServer, plexLibrary));
+            } catch (ResponseStatusException e) {
+                notifications.add(() -> notificationService.plexLibraryScanFailed(plexServer, plexLibrary, e.getMessage()));
+                if (e.getCause() instanceof IOException) {
+                    LOGGER.warn("Plex Server {} stopped answering", plexServer.getFriendlyName());
+                    skipLibraries(plexServer, plexLibraries.subList(i + 1, plexLibraries.size()), notifications);
+                    return new PlexServerScan(notifications, false);
                 }
-                counter++;
             }
         }
-        LOGGER.info("updateLibraryMovies() executed {} times", counter);
+
+        return new PlexServerScan(notifications, true);
     }
 
-    private void findRecommendedMovies(@NotNull PlexProperties plexProperties) {
-        LOGGER.debug("updateLibraryMovies()");
-        int counter =0;
-        for (PlexServer plexServer : plexProperties.getPlexServers()) {
-            for (PlexLibrary plexLibrary : plexServer.getPlexLibraries()) {
-                gapsSearch.run(plexServer.getMachineIdentifier(), plexLibrary.getKey());
-                counter++;
-            }
+    private void skipLibraries(@NotNull PlexServer plexServer, @NotNull Collection<PlexLibrary> plexLibraries, @NotNull List<Runnable> notifications) {
+        String reason = String.format("Skipped, Plex Server %s is not answering", plexServer.getFriendlyName());
+        for (PlexLibrary plexLibrary : plexLibraries) {
+            notifications.add(() -> notificationService.plexLibraryScanFailed(plexServer, plexLibrary, reason));
         }
-        LOGGER.info("findRecommendedMovies() executed {} times", counter);
     }
 
-    private @NotNull Map<Pair<String, Integer>, BasicMovie> generateOwnedMovieMap(@NotNull PlexProperties plexProperties) {
-        Set<BasicMovie> everyBasicMovie = fileIoService.readMovieIdsFromFile();
+    private @NotNull Map<Pair<String, Integer>, BasicMovie> generateOwnedMovieMap() {
         Map<Pair<String, Integer>, BasicMovie> previousMovies = new HashMap<>();
+        fileIoService.forEachMovieId(movie -> previousMovies.put(new Pair<>(movie.getName(), movie.getYear()), movie));
+        return previousMovies;
+    }
 
-        plexProperties
-                .getPlexServers()
-                .forEach(plexServer -> plexServer
-                        .getPlexLibraries()
-                        .forEach(plexLibrary -> everyBasicMovie.forEach(movie -> previousMovies.put(new Pair<>(movie.getName(), movie.getYear()), movie))));
+    private static final class PlexServerScan {
+        private final List<Runnable> notifications;
+        private final boolean answering;
 
-        return previousMovies;
+        PlexServerScan(@NotNull List<Runnable> notifications, boolean answering) {
+            this.notifications = notifications;
+            this.answering = answering;
+        }
+    }
+
+    /**
+     * Hands out the Plex servers in the order their scans finish, sending the notifications of each scan first. Servers
+     * that stopped answering during their scan are skipped.
+     */
+    private static final class ScannedPlexServers implements Iterator<PlexServer> {
+
+        private final CompletionService<PlexServerScan> completionService;
+        private final Map<Future<PlexServerScan>, PlexServer> scans;
+        private PlexServer scanned;
+
+        ScannedPlexServers(@NotNull CompletionService<PlexServerScan> completionService, @NotNull Map<Future<PlexServerScan>, PlexServer> scans) {
+            this.completionService = completionService;
+            this.scans = scans;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (scanned == null && !scans.isEmpty()) {
+                try {
+                    Future<PlexServerScan> future = completionService.take();
+                    PlexServer plexServer = scans.remove(future);
+                    try {
+                        PlexServerScan plexServerScan = future.get();
+                        plexServerScan.notifications.forEach(Runnable::run);
+                        if (plexServerScan.answering) {
+                            scanned = plexServer;
+                        } else {
+                            LOGGER.warn("Not searching Plex Server {}, it stopped answering", plexServer.getFriendlyName());
+                        }
+                    } catch (ExecutionException e) {
+                        LOGGER.error(String.format("Error scanning Plex Server %s", plexServer.getFriendlyName()), e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    LOGGER.warn("Interrupted while scanning Plex Servers", e);
+                    Thread.currentThread().interrupt();
+                    scans.clear();
+                }
+            }
+            return scanned != null;
+        }
+
+        @Override
+        public PlexServer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            PlexServer plexServer = scanned;
+            scanned = null;
+            return plexServer;
+        }
     }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * One search of one Plex library. Each job has its own cancellation flag and counters, so searches of different
+ * libraries can run at the same time and be cancelled on their own. Jobs started from the REST api run in the
+ * background, so they are polled by id.
+ */
+public final class SearchJob {
+
+    public enum Status {
+        QUEUED, RUNNING, FINISHED, CANCELLED, FAILED
+    }
+
+    private final String id;
+    private final String machineIdentifier;
+    private final Integer key;
+    private final SearchMode searchMode;
+    private final Instant started;
+    private final AtomicBoolean cancelled;
+    private final AtomicInteger moviesSearched;
+    private final AtomicInteger tvdbLookups;
+    private volatile Status status;
+    private volatile Instant finished;
+    private volatile String reason;
+    private volatile int moviesToSearch;
+    private volatile MovieIndex recommended;
+
+    public SearchJob(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull SearchMode searchMode) {
+        this.id = UUID.randomUUID().toString();
+        this.machineIdentifier = machineIdentifier;
+        this.key = key;
+        this.searchMode = searchMode;
+        this.started = Instant.now();
+        this.cancelled = new AtomicBoolean();
+        this.moviesSearched = new AtomicInteger();
+        this.tvdbLookups = new AtomicInteger();
+        this.status = Status.QUEUED;
+    }
+
+    /**
+     * @return websocket destination for messages about the library of the job, like /finishedSearching/abc123/1
+     */
+    public static @NotNull String topic(@NotNull String destination, @NotNull String machineIdentifier, @NotNull Integer key) {
+        return destination + "/" + machineIdentifier + "/" + key;
+    }
+
+    public @NotNull String topic(@NotNull String destination) {
+        return topic(destination, machineIdentifier, key);
+    }
+
+    /**
+     * @param recommended every recommendation so far, the search keeps adding to it
+     */
+    public void running(int moviesToSearch, @NotNull MovieIndex recommended) {
+        this.moviesToSearch = moviesToSearch;
+        this.recommended = recommended;
+        this.status = Status.RUNNING;
+    }
+
+    public void finished(@NotNull Status status, @Nullable String reason) {
+        this.reason = reason;
+        this.finished = Instant.now();
+        this.status = status;
+    }
+
+    /**
+     * @return true once the search ended, however it ended
+     */
+    @JsonIgnore
+    public boolean isDone() {
+        Status current = status;
+        return current != Status.QUEUED && current != Status.RUNNING;
+    }
+
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public void throwIfCancelled() throws SearchCancelledException {
+        if (cancelled.get()) {
+            throw new SearchCancelledException("Search cancelled");
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    public void movieSearched() {
+        moviesSearched.incrementAndGet();
+    }
+
+    public void tvdbLookup() {
+        tvdbLookups.incrementAndGet();
+    }
+
+    public @NotNull String getId() {
+        return id;
+    }
+
+    public @NotNull String getMachineIdentifier() {
+        return machineIdentifier;
+    }
+
+    public @NotNull Integer getKey() {
+        return key;
+    }
+
+    public @NotNull SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    public @NotNull Instant getStarted() {
+        return started;
+    }
+
+    /**
+     * @return movies whose search ended, however it ended
+     */
+    public int getMoviesSearched() {
+        return moviesSearched.get();
+    }
+
+    public int getTvdbLookups() {
+        return tvdbLookups.get();
+    }
+
+    public @NotNull Status getStatus() {
+        return status;
+    }
+
+    public @Nullable Instant getFinished() {
+        return finished;
+    }
+
+    /**
+     * @return why the search failed or was cancelled
+     */
+    public @Nullable String getReason() {
+        return reason;
+    }
+
+    public int getMoviesToSearch() {
+        return moviesToSearch;
+    }
+
+    /**
+     * @return movies recommended so far, including the ones kept from an earlier search by an incremental search
+     */
+    @JsonIgnore
+    public @NotNull List<BasicMovie> getRecommended() {
+        MovieIndex movieIndex = recommended;
+        return movieIndex == null ? List.of() : movieIndex.values();
+    }
+
+    @Override
+    public String toString() {
+        return "SearchJob{" +
+                "id='" + id + '\'' +
+                ", machineIdentifier='" + machineIdentifier + '\'' +
+                ", key=" + key +
+                ", searchMode=" + searchMode +
+                ", started=" + started +
+                ", status=" + status +
+                ", cancelled=" + cancelled +
+                '}';
+    }
+}
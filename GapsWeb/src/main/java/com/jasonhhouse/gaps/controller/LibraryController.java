@@ -101,4 +101,24 @@ public class LibraryController {
         return ResponseEntity.ok().body(payload);
     }
 
+    /**
+     * Checks a single movie without sending the whole library
+     *
+     * @param machineIdentifier plex server id
+     * @param key               plex library key
+     * @param tmdbId            TMDB id of the movie
+     * @return 200 if the library owns the movie, 404 if not
+     */
+    @GetMapping(path = "{machineIdentifier}/{key}/owned/{tmdbId}")
+    public ResponseEntity<Void> getOwned(@PathVariable("machineIdentifier") final String machineIdentifier, @PathVariable("key") final Integer key,
+                                         @PathVariable("tmdbId") final Integer tmdbId) {
+        LOGGER.info("getOwned( {}, {}, {} )", machineIdentifier, key, tmdbId);
+
+        if (!fileIoService.isOwned(machineIdentifier, key, tmdbId)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok().build();
+    }
+
 }
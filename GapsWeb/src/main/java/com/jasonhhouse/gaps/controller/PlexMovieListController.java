@@ -21,7 +21,6 @@ import com.jasonhhouse.plex.libs.PlexLibrary;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import okhttp3.HttpUrl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,8 +56,7 @@ public class PlexMovieListController {
         LOGGER.info("getPlexMovies( {}, {} )", machineIdentifier, key);
 
         PlexProperties plexProperties = fileIoService.readProperties();
-        Set<BasicMovie> everyBasicMovie = fileIoService.readMovieIdsFromFile();
-        Map<Pair<String, Integer>, BasicMovie> previousMovies = generateOwnedMovieMap(plexProperties, everyBasicMovie);
+        Map<Pair<String, Integer>, BasicMovie> previousMovies = generateOwnedMovieMap();
         PlexServer plexServer = plexQuery.getPlexServerFromMachineIdentifier(plexProperties, machineIdentifier);
         PlexLibrary plexLibrary = plexQuery.getPlexLibraryFromKey(plexServer, key);
         HttpUrl url = gapsUrlGenerator.generatePlexLibraryUrl(plexServer, plexLibrary);
@@ -70,15 +68,9 @@ public class PlexMovieListController {
         return ResponseEntity.ok().body(ownedBasicMovies);
     }
 
-    private Map<Pair<String, Integer>, BasicMovie> generateOwnedMovieMap(PlexProperties plexProperties, Set<BasicMovie> everyBasicMovie) {
+    private Map<Pair<String, Integer>, BasicMovie> generateOwnedMovieMap() {
         Map<Pair<String, Integer>, BasicMovie> previousMovies = new HashMap<>();
-
-        plexProperties
-                .getPlexServers()
-                .forEach(plexServer -> plexServer
-                        .getPlexLibraries()
-                        .forEach(plexLibrary -> everyBasicMovie.forEach(movie -> previousMovies.put(new Pair<>(movie.getName(), movie.getYear()), movie))));
-
+        fileIoService.forEachMovieId(movie -> previousMovies.put(new Pair<>(movie.getName(), movie.getYear()), movie));
         return previousMovies;
     }
 
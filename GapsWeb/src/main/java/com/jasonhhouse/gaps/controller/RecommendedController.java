@@ -13,8 +13,14 @@ import com.jasonhhouse.gaps.service.GapsSearch;
 import com.jasonhhouse.gaps.BasicMovie;
 import com.jasonhhouse.gaps.Payload;
 import com.jasonhhouse.gaps.PlexServer;
+import com.jasonhhouse.gaps.SearchJob;
+import com.jasonhhouse.gaps.SearchMode;
+import com.jasonhhouse.gaps.SearchProgress;
 import com.jasonhhouse.gaps.properties.PlexProperties;
 import com.jasonhhouse.gaps.service.FileIoService;
+import com.jasonhhouse.gaps.service.SearchJobRegistry;
+import com.jasonhhouse.gaps.service.SearchProgressPublisher;
+import java.net.URI;
 import com.jasonhhouse.plex.libs.PlexLibrary;
 import java.util.List;
 import java.util.Map;
@@ -24,7 +30,6 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
@@ -33,8 +38,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.ModelAndView;
 
@@ -46,11 +51,15 @@ public class RecommendedController {
 
     private final FileIoService fileIoService;
     private final GapsSearch gapsSearch;
+    private final SearchProgressPublisher searchProgressPublisher;
+    private final SearchJobRegistry searchJobRegistry;
 
     @Autowired
-    public RecommendedController(FileIoService fileIoService, GapsSearch gapsSearch) {
+    public RecommendedController(FileIoService fileIoService, GapsSearch gapsSearch, SearchProgressPublisher searchProgressPublisher, SearchJobRegistry searchJobRegistry) {
         this.fileIoService = fileIoService;
         this.gapsSearch = gapsSearch;
+        this.searchProgressPublisher = searchProgressPublisher;
+        this.searchJobRegistry = searchJobRegistry;
     }
 
     @GetMapping(produces = MediaType.TEXT_HTML_VALUE)
@@ -86,10 +95,9 @@ public class RecommendedController {
     public ResponseEntity<Payload> getRecommended(@PathVariable("machineIdentifier") final String machineIdentifier, @PathVariable("key") final Integer key) {
         LOGGER.info("getRecommended( {}, {} )", machineIdentifier, key);
 
-        final List<BasicMovie> ownedBasicMovies = fileIoService.readOwnedMovies(machineIdentifier, key);
         Payload payload;
 
-        if (CollectionUtils.isEmpty(ownedBasicMovies)) {
+        if (!fileIoService.hasOwnedMovies(machineIdentifier, key)) {
             payload = Payload.PLEX_LIBRARY_MOVIE_NOT_FOUND;
             LOGGER.warn(payload.getReason());
         } else {
@@ -107,18 +115,43 @@ public class RecommendedController {
     }
 
     /**
-     * Start Gaps searching for missing movies
+     * Progress of the running or last search, so a page that connects in the middle of a search can catch up
      *
      * @param machineIdentifier plex server id
      * @param key               plex library key
      */
+    @GetMapping(path = "/progress/{machineIdentifier}/{key}",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<SearchProgress> getSearchProgress(@PathVariable("machineIdentifier") final String machineIdentifier, @PathVariable("key") final Integer key) {
+        LOGGER.info("getSearchProgress( {}, {} )", machineIdentifier, key);
+
+        SearchProgress searchProgress = searchProgressPublisher.snapshot(machineIdentifier, key);
+        if (searchProgress == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok().body(searchProgress);
+    }
+
+    /**
+     * Start Gaps searching for missing movies. The search runs in the background, poll /searches/{id} for how it is
+     * going.
+     *
+     * @param machineIdentifier plex server id
+     * @param key               plex library key
+     * @param searchMode        FULL by default, RESUME continues from the checkpoint of a search that didn't finish
+     * @return the new search job, or the job already searching the library
+     */
     @PutMapping(value = "/find/{machineIdentifier}/{key}",
             produces = MediaType.APPLICATION_JSON_VALUE)
-    @ResponseStatus(value = HttpStatus.OK)
-    public void putFindRecommencedMovies(@PathVariable("machineIdentifier") final String machineIdentifier, @PathVariable("key") final Integer key) {
-        LOGGER.info("putFindRecommencedMovies( {}, {} )", machineIdentifier, key);
+    public ResponseEntity<SearchJob> putFindRecommencedMovies(@PathVariable("machineIdentifier") final String machineIdentifier, @PathVariable("key") final Integer key,
+                                                              @RequestParam(value = "searchMode", defaultValue = "FULL") final SearchMode searchMode) {
+        LOGGER.info("putFindRecommencedMovies( {}, {}, {} )", machineIdentifier, key, searchMode);
 
-        gapsSearch.run(machineIdentifier, key);
+        String id = gapsSearch.submit(machineIdentifier, key, searchMode);
+        SearchJob searchJob = searchJobRegistry.findById(id);
+        return ResponseEntity.accepted().location(URI.create("/searches/" + id)).body(searchJob);
     }
 
     /**
@@ -130,7 +163,7 @@ public class RecommendedController {
     @MessageMapping("/cancel/{machineIdentifier}/{key}")
     public void cancelSearching(@DestinationVariable final String machineIdentifier, @DestinationVariable final Integer key) {
         LOGGER.info("cancelSearching( {}, {} )", machineIdentifier, key);
-        gapsSearch.cancelSearch();
+        gapsSearch.cancelSearch(machineIdentifier, key);
     }
 
 
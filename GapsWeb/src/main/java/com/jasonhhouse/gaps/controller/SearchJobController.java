@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps.controller;
+
+import com.jasonhhouse.gaps.BasicMovie;
+import com.jasonhhouse.gaps.SearchJob;
+import com.jasonhhouse.gaps.service.SearchJobRegistry;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Background search jobs, started through PUT /recommended/find/{machineIdentifier}/{key}
+ */
+@RestController
+@RequestMapping("/searches")
+public class SearchJobController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchJobController.class);
+
+    private final SearchJobRegistry searchJobRegistry;
+
+    @Autowired
+    public SearchJobController(SearchJobRegistry searchJobRegistry) {
+        this.searchJobRegistry = searchJobRegistry;
+    }
+
+    /**
+     * @return running and queued jobs, oldest first
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<SearchJob>> getSearchJobs() {
+        LOGGER.info("getSearchJobs()");
+        return ResponseEntity.ok().body(searchJobRegistry.getJobs());
+    }
+
+    @GetMapping(path = "/{id}",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SearchJob> getSearchJob(@PathVariable("id") final String id) {
+        LOGGER.info("getSearchJob( {} )", id);
+
+        SearchJob searchJob = searchJobRegistry.findById(id);
+        if (searchJob == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().body(searchJob);
+    }
+
+    /**
+     * @return movies the job recommended so far, the full list once it finished
+     */
+    @GetMapping(path = "/{id}/results",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BasicMovie>> getSearchJobResults(@PathVariable("id") final String id) {
+        LOGGER.info("getSearchJobResults( {} )", id);
+
+        SearchJob searchJob = searchJobRegistry.findById(id);
+        if (searchJob == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().body(searchJob.getRecommended());
+    }
+
+    @DeleteMapping(path = "/{id}",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SearchJob> deleteSearchJob(@PathVariable("id") final String id) {
+        LOGGER.info("deleteSearchJob( {} )", id);
+
+        SearchJob searchJob = searchJobRegistry.findById(id);
+        if (searchJob == null) {
+            return ResponseEntity.notFound().build();
+        }
+        searchJob.cancel();
+        return ResponseEntity.ok().body(searchJob);
+    }
+}
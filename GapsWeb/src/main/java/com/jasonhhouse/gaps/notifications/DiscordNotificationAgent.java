@@ -20,7 +20,6 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import okhttp3.Headers;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
@@ -33,8 +32,6 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static com.jasonhhouse.gaps.notifications.NotificationStatus.TIMEOUT;
-
 public final class DiscordNotificationAgent extends AbstractNotificationAgent<DiscordProperties> {
 
     @NotNull
@@ -44,14 +41,9 @@ public final class DiscordNotificationAgent extends AbstractNotificationAgent<Di
     @NotNull
     private final OkHttpClient client;
 
-    public DiscordNotificationAgent(@NotNull IO ioService) {
+    public DiscordNotificationAgent(@NotNull IO ioService, @NotNull OkHttpClient client) {
         super(ioService);
-
-        client = new OkHttpClient.Builder()
-                .connectTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .readTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .writeTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .build();
+        this.client = client;
     }
 
     @Override
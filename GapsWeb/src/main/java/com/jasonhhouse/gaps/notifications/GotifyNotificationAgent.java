@@ -17,7 +17,6 @@ import com.jasonhhouse.gaps.properties.GotifyProperties;
 import com.jasonhhouse.gaps.service.FileIoService;
 import com.jasonhhouse.gaps.service.IO;
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -30,7 +29,6 @@ import org.slf4j.LoggerFactory;
 
 import static com.jasonhhouse.gaps.notifications.NotificationStatus.FAILED_TO_PARSE_JSON;
 import static com.jasonhhouse.gaps.notifications.NotificationStatus.SEND_MESSAGE;
-import static com.jasonhhouse.gaps.notifications.NotificationStatus.TIMEOUT;
 
 public final class GotifyNotificationAgent extends AbstractNotificationAgent<GotifyProperties> {
 
@@ -43,15 +41,9 @@ public final class GotifyNotificationAgent extends AbstractNotificationAgent<Got
     @NotNull
     private final OkHttpClient client;
 
-    public GotifyNotificationAgent(@NotNull IO ioService) {
+    public GotifyNotificationAgent(@NotNull IO ioService, @NotNull OkHttpClient client) {
         super(ioService);
-
-        client = new OkHttpClient.Builder()
-                .connectTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .readTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .writeTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .build();
-
+        this.client = client;
     }
 
     @Override
@@ -17,7 +17,6 @@ import com.jasonhhouse.gaps.properties.PushBulletProperties;
 import com.jasonhhouse.gaps.service.FileIoService;
 import com.jasonhhouse.gaps.service.IO;
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
 import okhttp3.Headers;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
@@ -31,7 +30,6 @@ import org.slf4j.LoggerFactory;
 
 import static com.jasonhhouse.gaps.notifications.NotificationStatus.FAILED_TO_PARSE_JSON;
 import static com.jasonhhouse.gaps.notifications.NotificationStatus.SEND_MESSAGE;
-import static com.jasonhhouse.gaps.notifications.NotificationStatus.TIMEOUT;
 
 public final class PushBulletNotificationAgent extends AbstractNotificationAgent<PushBulletProperties> {
 
@@ -44,14 +42,9 @@ public final class PushBulletNotificationAgent extends AbstractNotificationAgent
     @NotNull
     private final OkHttpClient client;
 
-    public PushBulletNotificationAgent(@NotNull IO ioService) {
+    public PushBulletNotificationAgent(@NotNull IO ioService, @NotNull OkHttpClient client) {
         super(ioService);
-
-        client = new OkHttpClient.Builder()
-                .connectTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .readTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .writeTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .build();
+        this.client = client;
     }
 
     @Override
@@ -17,7 +17,6 @@ import com.jasonhhouse.gaps.NotificationType;
 import com.jasonhhouse.gaps.properties.SlackProperties;
 import com.jasonhhouse.gaps.service.IO;
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
 import okhttp3.Headers;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
@@ -29,7 +28,6 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static com.jasonhhouse.gaps.notifications.NotificationStatus.TIMEOUT;
 
 public final class SlackNotificationAgent extends AbstractNotificationAgent<SlackProperties> {
 
@@ -40,14 +38,9 @@ public final class SlackNotificationAgent extends AbstractNotificationAgent<Slac
     @NotNull
     private final OkHttpClient client;
 
-    public SlackNotificationAgent(@NotNull IO ioService) {
+    public SlackNotificationAgent(@NotNull IO ioService, @NotNull OkHttpClient client) {
         super(ioService);
-
-        client = new OkHttpClient.Builder()
-                .connectTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .readTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .writeTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .build();
+        this.client = client;
     }
 
     @Override
@@ -16,7 +16,6 @@ import com.jasonhhouse.gaps.NotificationType;
 import com.jasonhhouse.gaps.properties.TelegramProperties;
 import com.jasonhhouse.gaps.service.IO;
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -29,7 +28,6 @@ import org.slf4j.LoggerFactory;
 
 import static com.jasonhhouse.gaps.notifications.NotificationStatus.FAILED_TO_PARSE_JSON;
 import static com.jasonhhouse.gaps.notifications.NotificationStatus.SEND_MESSAGE;
-import static com.jasonhhouse.gaps.notifications.NotificationStatus.TIMEOUT;
 
 public final class TelegramNotificationAgent extends AbstractNotificationAgent<TelegramProperties> {
     @NotNull
@@ -39,14 +37,9 @@ public final class TelegramNotificationAgent extends AbstractNotificationAgent<T
     @NotNull
     private final OkHttpClient client;
 
-    public TelegramNotificationAgent(@NotNull IO ioService) {
+    public TelegramNotificationAgent(@NotNull IO ioService, @NotNull OkHttpClient client) {
         super(ioService);
-
-        client = new OkHttpClient.Builder()
-                .connectTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .readTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .writeTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .build();
+        this.client = client;
     }
 
     @Override
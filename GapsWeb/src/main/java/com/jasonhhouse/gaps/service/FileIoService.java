@@ -10,74 +10,78 @@
 
 package com.jasonhhouse.gaps.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jasonhhouse.gaps.BasicMovie;
+import com.jasonhhouse.gaps.LibraryWatermark;
 import com.jasonhhouse.gaps.Payload;
 import com.jasonhhouse.gaps.Rss;
+import com.jasonhhouse.gaps.SearchCheckpoint;
 import com.jasonhhouse.gaps.GapsConfiguration;
 import com.jasonhhouse.gaps.properties.PlexProperties;
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collections;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+/**
+ * Keeps everything Gaps stores as JSON files in the storage folder. The default storage, replaced by
+ * {@link SqliteIoService} when info.app.storage=sqlite.
+ */
 @Service
+@ConditionalOnProperty(prefix = "info.app", name = "storage", havingValue = "file", matchIfMissing = true)
 public class FileIoService implements IO {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FileIoService.class);
     private static final ObjectMapper objectMapper = new ObjectMapper();
     private final GapsConfiguration gapsConfiguration;
+    private final Object propertiesLock;
+    private volatile PlexProperties cachedProperties;
+    @Nullable
+    private FileTime writtenPropertiesTime;
+    private volatile WatchService propertiesWatcher;
 
     @Autowired
     public FileIoService(GapsConfiguration gapsConfiguration) {
         this.gapsConfiguration = gapsConfiguration;
+        this.propertiesLock = new Object();
     }
 
     @Override
     public @NotNull List<BasicMovie> readRecommendedMovies(@NotNull String machineIdentifier, @NotNull Integer key) {
         LOGGER.info("readRecommendedMovies({}, {} )", machineIdentifier, key);
 
-        final File ownedMovieFile = Paths.get(gapsConfiguration.getStorageFolder(), machineIdentifier, key.toString(), gapsConfiguration.getProperties().getRecommendedMovies()).toFile();
-
-        if (!ownedMovieFile.exists()) {
-            LOGGER.warn("{} does not exist", ownedMovieFile);
-            return Collections.emptyList();
-        }
-
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(ownedMovieFile), StandardCharsets.UTF_8))) {
-            StringBuilder fullFile = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                fullFile.append(line);
-            }
-
-            return objectMapper.readValue(fullFile.toString(), new TypeReference<>() {
-            });
-        } catch (FileNotFoundException e) {
-            LOGGER.error(String.format("Can't find file %s", ownedMovieFile), e);
-        } catch (IOException e) {
-            LOGGER.error(String.format("Can't read the file %s", ownedMovieFile), e);
-        }
-
-        return Collections.emptyList();
+        final File recommendedMovieFile = Paths.get(gapsConfiguration.getStorageFolder(), machineIdentifier, key.toString(), gapsConfiguration.getProperties().getRecommendedMovies()).toFile();
+        List<BasicMovie> recommendedMovies = new ArrayList<>();
+        forEachMovie(recommendedMovieFile, recommendedMovies::add);
+        return recommendedMovies;
     }
 
     @Override
@@ -96,38 +100,26 @@ public class FileIoService implements IO {
         }
     }
 
+    /**
+     * The feed is written to a temporary file first and then moved over the old one, so readers of the RSS endpoint
+     * never see a half written feed.
+     */
     @Override
     public void writeRssFile(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull Set<BasicMovie> recommended) {
-        File file = Paths.get(gapsConfiguration.getStorageFolder(), machineIdentifier, key.toString(), gapsConfiguration.getProperties().getRssFeed()).toFile();
-
-        if (file.exists()) {
-            boolean deleted = file.delete();
-            if (!deleted) {
-                LOGGER.error("Can't delete existing file {}", file.getPath());
-                return;
-            }
-        }
+        Path file = Paths.get(gapsConfiguration.getStorageFolder(), machineIdentifier, key.toString(), gapsConfiguration.getProperties().getRssFeed());
+        makeFolder(machineIdentifier, key);
 
         try {
-            boolean created = file.createNewFile();
-            if (!created) {
-                LOGGER.error("Can't create file {}", file.getPath());
-                return;
-            }
-        } catch (IOException e) {
-            LOGGER.error(String.format("Can't create file %s", file.getPath()), e);
-            return;
-        }
-
-        // Create writer that java will close for us.
-        try (FileOutputStream outputStream = new FileOutputStream(file)) {
             List<Rss> rssList = recommended.stream().map(movie -> new Rss(movie.getImdbId(), movie.getYear(), movie.getTmdbId(), movie.getName(), movie.getPosterUrl())).collect(Collectors.toList());
-            byte[] output = objectMapper.writeValueAsBytes(rssList);
-            outputStream.write(output);
-        } catch (FileNotFoundException e) {
-            LOGGER.error(String.format("Can't find file %s", gapsConfiguration.getProperties().getRecommendedMovies()), e);
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "rssFeed", ".tmp");
+            try {
+                objectMapper.writeValue(temp.toFile(), rssList);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
         } catch (IOException e) {
-            LOGGER.error(String.format("Can't write to file %s", gapsConfiguration.getProperties().getRecommendedMovies()), e);
+            LOGGER.error(String.format("Can't write to file %s", file), e);
         }
     }
 
@@ -165,28 +157,107 @@ public class FileIoService implements IO {
         LOGGER.info("readOwnedMovies( {}, {} )", machineIdentifier, key);
 
         final File ownedMovieFile = Paths.get(gapsConfiguration.getStorageFolder(), machineIdentifier, key.toString(), gapsConfiguration.getProperties().getOwnedMovies()).toFile();
+        List<BasicMovie> ownedMovies = new ArrayList<>();
+        forEachMovie(ownedMovieFile, ownedMovies::add);
+        return ownedMovies;
+    }
+
+    @Override
+    public boolean hasOwnedMovies(@NotNull String machineIdentifier, @NotNull Integer key) {
+        return !readOwnedMovies(machineIdentifier, key).isEmpty();
+    }
+
+    @Override
+    public boolean isOwned(@NotNull String machineIdentifier, @NotNull Integer key, int tmdbId) {
+        return readOwnedMovies(machineIdentifier, key).stream().anyMatch(basicMovie -> basicMovie.getTmdbId() == tmdbId);
+    }
 
-        if (!ownedMovieFile.exists()) {
-            LOGGER.warn(ownedMovieFile + " does not exist");
-            return Collections.emptyList();
+    @Override
+    public @Nullable LibraryWatermark readWatermark(@NotNull String machineIdentifier, @NotNull Integer key) {
+        LOGGER.info("readWatermark( {}, {} )", machineIdentifier, key);
+
+        final File watermarkFile = Paths.get(gapsConfiguration.getStorageFolder(), machineIdentifier, key.toString(), gapsConfiguration.getProperties().getWatermark()).toFile();
+
+        if (!watermarkFile.exists()) {
+            LOGGER.info("{} does not exist", watermarkFile);
+            return null;
         }
 
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(ownedMovieFile), StandardCharsets.UTF_8))) {
-            StringBuilder fullFile = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                fullFile.append(line);
-            }
+        try {
+            return objectMapper.readValue(watermarkFile, LibraryWatermark.class);
+        } catch (IOException e) {
+            LOGGER.error(String.format("Can't read the file %s", watermarkFile), e);
+        }
+
+        return null;
+    }
 
-            return objectMapper.readValue(fullFile.toString(), new TypeReference<>() {
-            });
-        } catch (FileNotFoundException e) {
-            LOGGER.error(String.format("Can't find file %s", ownedMovieFile), e);
+    @Override
+    public void writeWatermark(@NotNull LibraryWatermark libraryWatermark, @NotNull String machineIdentifier, @NotNull Integer key) {
+        LOGGER.info("writeWatermark( {}, {}, {} )", libraryWatermark, machineIdentifier, key);
+        final File file = Paths.get(gapsConfiguration.getStorageFolder(), machineIdentifier, key.toString(), gapsConfiguration.getProperties().getWatermark()).toFile();
+        makeFolder(machineIdentifier, key);
+
+        try {
+            objectMapper.writeValue(file, libraryWatermark);
+        } catch (IOException e) {
+            LOGGER.error(String.format("Can't write to file %s", file), e);
+        }
+    }
+
+    @Override
+    public @Nullable SearchCheckpoint readCheckpoint(@NotNull String machineIdentifier, @NotNull Integer key) {
+        LOGGER.info("readCheckpoint( {}, {} )", machineIdentifier, key);
+
+        final File checkpointFile = Paths.get(gapsConfiguration.getStorageFolder(), machineIdentifier, key.toString(), gapsConfiguration.getProperties().getCheckpoint()).toFile();
+
+        if (!checkpointFile.exists()) {
+            LOGGER.info("{} does not exist", checkpointFile);
+            return null;
+        }
+
+        try {
+            return objectMapper.readValue(checkpointFile, SearchCheckpoint.class);
         } catch (IOException e) {
-            LOGGER.error(String.format("Can't read the file %s", ownedMovieFile), e);
+            LOGGER.error(String.format("Can't read the file %s", checkpointFile), e);
         }
 
-        return Collections.emptyList();
+        return null;
+    }
+
+    /**
+     * Checkpoints are taken while a search runs and the container may stop at any time, so the file is written next to
+     * the old one and then moved over it
+     */
+    @Override
+    public void writeCheckpoint(@NotNull SearchCheckpoint searchCheckpoint, @NotNull String machineIdentifier, @NotNull Integer key) {
+        LOGGER.info("writeCheckpoint( {}, {}, {} )", searchCheckpoint, machineIdentifier, key);
+        Path file = Paths.get(gapsConfiguration.getStorageFolder(), machineIdentifier, key.toString(), gapsConfiguration.getProperties().getCheckpoint());
+        makeFolder(machineIdentifier, key);
+
+        try {
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "checkpoint", ".tmp");
+            try {
+                objectMapper.writeValue(temp.toFile(), searchCheckpoint);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            LOGGER.error(String.format("Can't write to file %s", file), e);
+        }
+    }
+
+    @Override
+    public void deleteCheckpoint(@NotNull String machineIdentifier, @NotNull Integer key) {
+        LOGGER.info("deleteCheckpoint( {}, {} )", machineIdentifier, key);
+        Path file = Paths.get(gapsConfiguration.getStorageFolder(), machineIdentifier, key.toString(), gapsConfiguration.getProperties().getCheckpoint());
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.error(String.format("Can't delete file %s", file), e);
+        }
     }
 
     @Override
@@ -196,32 +267,20 @@ public class FileIoService implements IO {
         writeMovieIdsToFile(everyBasicMovie, file);
     }
 
+    /**
+     * The movies are written to a temporary file first and then moved over the old one, so a search stopped half way
+     * or a reader at the same time never sees a half written list.
+     */
     @Override
     public void writeMovieIdsToFile(@NotNull Set<BasicMovie> everyBasicMovie, @NotNull File file) {
-        if (file.exists()) {
-            boolean deleted = file.delete();
-            if (!deleted) {
-                LOGGER.error("Can't delete existing file {}", file.getName());
-                return;
-            }
-        }
-
         try {
-            boolean created = file.createNewFile();
-            if (!created) {
-                LOGGER.error("Can't create file {}", file.getAbsolutePath());
-                return;
+            Path temp = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), "movies", ".tmp");
+            try {
+                objectMapper.writeValue(temp.toFile(), everyBasicMovie);
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
             }
-        } catch (IOException e) {
-            LOGGER.error(String.format("Can't create file %s", file.getAbsolutePath()), e);
-            return;
-        }
-
-        try (FileOutputStream outputStream = new FileOutputStream(file)) {
-            byte[] output = objectMapper.writeValueAsBytes(everyBasicMovie);
-            outputStream.write(output);
-        } catch (FileNotFoundException e) {
-            LOGGER.error(String.format("Can't find file %s", file.getAbsolutePath()), e);
         } catch (IOException e) {
             LOGGER.error(String.format("Can't write to file %s", file.getAbsolutePath()), e);
         }
@@ -230,90 +289,175 @@ public class FileIoService implements IO {
     @Override
     @NotNull
     public Set<BasicMovie> readMovieIdsFromFile() {
-        Set<BasicMovie> everyBasicMovie = Collections.emptySet();
+        Set<BasicMovie> everyBasicMovie = new HashSet<>();
+        forEachMovieId(everyBasicMovie::add);
+        LOGGER.info("everyMovie.size():{}", everyBasicMovie.size());
+        return everyBasicMovie;
+    }
+
+    @Override
+    public void forEachMovieId(@NotNull Consumer<BasicMovie> consumer) {
         final File file = Paths.get(gapsConfiguration.getStorageFolder(), gapsConfiguration.getProperties().getMovieIds()).toFile();
         if (!file.exists()) {
             LOGGER.warn("Can't find json file '{}'. Most likely first run.", file);
-            return everyBasicMovie;
-        }
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
-            StringBuilder fullFile = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                fullFile.append(line);
-            }
-
-            everyBasicMovie = objectMapper.readValue(fullFile.toString(), new TypeReference<>() {
-            });
-            LOGGER.info("everyMovie.size():{}", everyBasicMovie.size());
-        } catch (FileNotFoundException e) {
-            LOGGER.error(String.format("Can't find file %s", file), e);
-        } catch (IOException e) {
-            LOGGER.error(String.format("Can't write to file %s", file), e);
+            return;
         }
 
-        return everyBasicMovie;
+        forEachMovie(file, consumer);
     }
 
+    /**
+     * The properties are written to a temporary file first and then moved over the old one, so the file watcher and
+     * other readers never see a half written file.
+     */
     @Override
     public void writeProperties(@NotNull PlexProperties plexProperties) {
         LOGGER.info("writeProperties( {} )", plexProperties);
 
-        final File propertiesFile = Paths.get(gapsConfiguration.getStorageFolder(), gapsConfiguration.getProperties().getGapsProperties()).toFile();
-        if (propertiesFile.exists()) {
+        final Path propertiesFile = Paths.get(gapsConfiguration.getStorageFolder(), gapsConfiguration.getProperties().getGapsProperties());
+        synchronized (propertiesLock) {
             try {
-                Files.delete(propertiesFile.toPath());
+                PlexProperties properties = new PlexProperties(plexProperties);
+                Path temp = Files.createTempFile(propertiesFile.toAbsolutePath().getParent(), "gaps", ".tmp");
+                try {
+                    objectMapper.writeValue(temp.toFile(), properties);
+                    Files.move(temp, propertiesFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                cachedProperties = properties;
+                writtenPropertiesTime = Files.getLastModifiedTime(propertiesFile);
             } catch (IOException e) {
-                LOGGER.error(String.format("Can't delete existing file %s", propertiesFile.getName()), e);
-                return;
+                LOGGER.error(String.format("Can't write to file %s", propertiesFile.toAbsolutePath()), e);
             }
         }
+    }
+
+    /**
+     * Reads come from a copy of gaps.properties kept in memory, which is replaced on every write and dropped when the
+     * file changes on disk. Each caller gets its own copy of {@link PlexProperties}, so changing it does nothing until
+     * it is written back.
+     */
+    @Override
+    @NotNull
+    public PlexProperties readProperties() {
+        LOGGER.debug("readProperties()");
+
+        PlexProperties properties = cachedProperties;
+        if (properties == null) {
+            properties = loadProperties();
+        }
+
+        return new PlexProperties(properties);
+    }
+
+    /**
+     * Watches the storage folder so changes made to gaps.properties outside of Gaps are picked up on the next read
+     */
+    @PostConstruct
+    public void watchProperties() {
+        Path folder = Paths.get(gapsConfiguration.getStorageFolder());
+        if (!Files.isDirectory(folder)) {
+            LOGGER.warn("{} does not exist, changes to {} made outside of Gaps won't be seen until restart", folder, gapsConfiguration.getProperties().getGapsProperties());
+            return;
+        }
 
         try {
-            boolean created = propertiesFile.createNewFile();
-            if (!created) {
-                LOGGER.error("Can't create file {}", propertiesFile.getAbsolutePath());
-                return;
-            }
+            propertiesWatcher = folder.getFileSystem().newWatchService();
+            folder.register(propertiesWatcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
         } catch (IOException e) {
-            LOGGER.error(String.format("Can't create file %s", propertiesFile.getAbsolutePath()), e);
+            LOGGER.error(String.format("Can't watch %s for changes", folder), e);
             return;
         }
 
-        try (FileOutputStream outputStream = new FileOutputStream(propertiesFile)) {
-            byte[] output = objectMapper.writeValueAsBytes(plexProperties);
-            outputStream.write(output);
-        } catch (FileNotFoundException e) {
-            LOGGER.error(String.format("Can't find file %s", propertiesFile.getAbsolutePath()), e);
+        Thread thread = new CustomizableThreadFactory("Gaps-Properties-").newThread(this::watch);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stopWatchingProperties() {
+        if (propertiesWatcher == null) {
+            return;
+        }
+
+        try {
+            propertiesWatcher.close();
         } catch (IOException e) {
-            LOGGER.error(String.format("Can't write to file %s", propertiesFile.getAbsolutePath()), e);
+            LOGGER.warn("Can't stop watching properties", e);
         }
     }
 
-    @Override
-    @NotNull
-    public PlexProperties readProperties() {
-        LOGGER.debug("readProperties()");
+    void invalidateProperties() {
+        synchronized (propertiesLock) {
+            cachedProperties = null;
+            writtenPropertiesTime = null;
+        }
+    }
 
-        final File file = Paths.get(gapsConfiguration.getStorageFolder(), gapsConfiguration.getProperties().getGapsProperties()).toFile();
-        if (!file.exists()) {
-            LOGGER.warn("Can't find json file '{}'. Most likely first run.", file);
-            return new PlexProperties();
+    /**
+     * Our own writes show up as changes too, those are skipped by checking the file is still the one last written
+     */
+    private void propertiesChanged(@NotNull Path fileName) {
+        Path file = Paths.get(gapsConfiguration.getStorageFolder()).resolve(fileName);
+        synchronized (propertiesLock) {
+            try {
+                if (writtenPropertiesTime != null && writtenPropertiesTime.equals(Files.getLastModifiedTime(file))) {
+                    return;
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Can't check when {} changed", file, e);
+            }
+
+            LOGGER.debug("{} changed, reading it again on next use", fileName);
+            invalidateProperties();
         }
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
-            StringBuilder fullFile = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                fullFile.append(line);
+    }
+
+    private void watch() {
+        Path fileName = Paths.get(gapsConfiguration.getProperties().getGapsProperties()).getFileName();
+        try {
+            while (true) {
+                WatchKey watchKey = propertiesWatcher.take();
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                        propertiesChanged(fileName);
+                    }
+                }
+
+                if (!watchKey.reset()) {
+                    LOGGER.warn("Storage folder is gone, no longer watching {}", fileName);
+                    return;
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            LOGGER.debug("Stopped watching {}", fileName);
+        }
+    }
 
-            return objectMapper.readValue(fullFile.toString(), PlexProperties.class);
-        } catch (FileNotFoundException e) {
-            LOGGER.error(String.format("Can't find file %s", file), e);
-            return new PlexProperties();
-        } catch (IOException e) {
-            LOGGER.error(String.format("Can't read file %s", file), e);
-            return new PlexProperties();
+    private @NotNull PlexProperties loadProperties() {
+        synchronized (propertiesLock) {
+            if (cachedProperties != null) {
+                return cachedProperties;
+            }
+
+            final File file = Paths.get(gapsConfiguration.getStorageFolder(), gapsConfiguration.getProperties().getGapsProperties()).toFile();
+            if (!file.exists()) {
+                LOGGER.warn("Can't find json file '{}'. Most likely first run.", file);
+                cachedProperties = new PlexProperties();
+                return cachedProperties;
+            }
+
+            try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+                PlexProperties properties = objectMapper.readValue(inputStream, PlexProperties.class);
+                cachedProperties = properties;
+                return properties;
+            } catch (IOException e) {
+                LOGGER.error(String.format("Can't read file %s", file), e);
+                return new PlexProperties();
+            }
         }
     }
 
@@ -324,6 +468,7 @@ public class FileIoService implements IO {
         File folder = new File(gapsConfiguration.getStorageFolder());
         try {
             nuke(folder);
+            invalidateProperties();
             return Payload.NUKE_SUCCESSFUL;
         } catch (Exception e) {
             LOGGER.error(Payload.NUKE_UNSUCCESSFUL.getReason(), e);
@@ -331,9 +476,49 @@ public class FileIoService implements IO {
         }
     }
 
+    /**
+     * Reads a JSON array of movies one movie at a time, so the file is never held in memory as a whole. Stops at the
+     * first broken movie, the ones read before it are kept.
+     */
+    private void forEachMovie(@NotNull File file, @NotNull Consumer<BasicMovie> consumer) {
+        if (!file.exists()) {
+            LOGGER.warn("{} does not exist", file);
+            return;
+        }
+
+        int read = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                LOGGER.error("Expected a list of movies in {}", file);
+                return;
+            }
+
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                consumer.accept(objectMapper.readValue(parser, BasicMovie.class));
+                read++;
+            }
+
+            if (token != JsonToken.END_ARRAY) {
+                LOGGER.warn("{} is cut off, stopped after {} movies", file, read);
+            }
+        } catch (IOException e) {
+            LOGGER.warn(String.format("%s is cut off or broken, stopped after %d movies", file, read), e);
+        }
+    }
+
+    /**
+     * @return true if nuke should leave the file alone
+     */
+    protected boolean keepOnNuke(@NotNull File file) {
+        return false;
+    }
+
     private void nuke(File file) {
         LOGGER.info("nuke( {} )", file);
-        if (!file.isFile()) {
+        if (keepOnNuke(file)) {
+            LOGGER.info("File kept: {}", file);
+        } else if (!file.isFile()) {
             File[] files = file.listFiles();
             if (files == null) {
                 return;
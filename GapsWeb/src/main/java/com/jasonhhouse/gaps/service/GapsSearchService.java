@@ -15,17 +15,25 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeType;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.jasonhhouse.gaps.BasicMovie;
+import com.jasonhhouse.gaps.GapsConfiguration;
+import com.jasonhhouse.gaps.HttpClientConfiguration;
+import com.jasonhhouse.gaps.LibraryWatermark;
 import com.jasonhhouse.gaps.MovieFromCollection;
+import com.jasonhhouse.gaps.MovieIndex;
 import com.jasonhhouse.gaps.Payload;
 import com.jasonhhouse.gaps.PlexServer;
 import com.jasonhhouse.gaps.SearchCancelledException;
-import com.jasonhhouse.gaps.SearchResults;
+import com.jasonhhouse.gaps.SearchCheckpoint;
+import com.jasonhhouse.gaps.SearchJob;
+import com.jasonhhouse.gaps.SearchMode;
 import com.jasonhhouse.gaps.UrlGenerator;
 import com.jasonhhouse.gaps.properties.PlexProperties;
 import com.jasonhhouse.plex.libs.PlexLibrary;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
@@ -38,23 +46,29 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
-import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.time.StopWatch;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,8 +76,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
 import org.springframework.web.server.ResponseStatusException;
 
 @Service
@@ -79,36 +93,177 @@ public class GapsSearchService implements GapsSearch {
     public static final String FINISHED_SEARCHING_URL = "/finishedSearching";
     private static final Logger LOGGER = LoggerFactory.getLogger(GapsSearchService.class);
     private static final ObjectMapper objectMapper = new ObjectMapper();
-
-    private final AtomicBoolean cancelSearch;
+    private static final int MAX_TMDB_RETRIES = 3;
+    private static final long DEFAULT_RETRY_AFTER = 10_000;
 
     private final UrlGenerator urlGenerator;
 
     private final SimpMessagingTemplate template;
 
-    private final AtomicInteger tempTvdbCounter;
-
     private final FileIoService fileIoService;
 
     private final TmdbService tmdbService;
 
     private final NotificationService notificationService;
 
+    private final TmdbRateLimiter tmdbRateLimiter;
+
+    private final TmdbCollectionCache tmdbCollectionCache;
+
+    private final TmdbDetailCache tmdbDetailCache;
+
+    private final GapsConfiguration gapsConfiguration;
+
+    private final OkHttpClient client;
+
+    private final SearchMetrics searchMetrics;
+
+    private final RssPublisher rssPublisher;
+
+    private final SearchProgressPublisher searchProgressPublisher;
+
+    private final SearchJobRegistry searchJobRegistry;
+
+    private final ExecutorService jobExecutor;
+
+    private final ScheduledExecutorService checkpointScheduler;
+
+    /**
+     * Index of every movie, shared by the searches running at the same time so they don't each read it from disk and
+     * find the same movies again. Dropped once the last of them is done, so the next search reads what they wrote.
+     */
+    private MovieIndex sharedMovieIndex;
+
+    private int sharedMovieIndexUsers;
+
     @Autowired
-    public GapsSearchService(@Qualifier("real") UrlGenerator urlGenerator, SimpMessagingTemplate template, FileIoService fileIoService, TmdbService tmdbService, NotificationService notificationService) {
+    public GapsSearchService(@Qualifier("real") UrlGenerator urlGenerator, SimpMessagingTemplate template, FileIoService fileIoService, TmdbService tmdbService, NotificationService notificationService,
+                             TmdbRateLimiter tmdbRateLimiter, TmdbCollectionCache tmdbCollectionCache, TmdbDetailCache tmdbDetailCache,
+                             GapsConfiguration gapsConfiguration, @Qualifier(HttpClientConfiguration.TMDB) OkHttpClient client, SearchMetrics searchMetrics,
+                             RssPublisher rssPublisher, SearchProgressPublisher searchProgressPublisher, SearchJobRegistry searchJobRegistry) {
         this.template = template;
         this.tmdbService = tmdbService;
         this.urlGenerator = urlGenerator;
         this.fileIoService = fileIoService;
         this.notificationService = notificationService;
+        this.tmdbRateLimiter = tmdbRateLimiter;
+        this.tmdbCollectionCache = tmdbCollectionCache;
+        this.tmdbDetailCache = tmdbDetailCache;
+        this.gapsConfiguration = gapsConfiguration;
+        this.client = client;
+        this.searchMetrics = searchMetrics;
+        this.rssPublisher = rssPublisher;
+        this.searchProgressPublisher = searchProgressPublisher;
+        this.searchJobRegistry = searchJobRegistry;
+        this.jobExecutor = Executors.newFixedThreadPool(gapsConfiguration.getSearch().getJobThreads(), new CustomizableThreadFactory("Gaps-Job-"));
+        this.checkpointScheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("Gaps-Checkpoint-"));
+    }
+
+    @Override
+    public void run(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull SearchMode searchMode) {
+        LOGGER.info("run( {}, {}, {} )", machineIdentifier, key, searchMode);
 
-        tempTvdbCounter = new AtomicInteger();
-        cancelSearch = new AtomicBoolean(true);
+        SearchJob searchJob = searchJobRegistry.start(machineIdentifier, key, searchMode);
+        if (searchJob == null) {
+            return;
+        }
+
+        execute(searchJob);
     }
 
     @Override
-    public void run(@NotNull String machineIdentifier,@NotNull  Integer key) {
-        LOGGER.info("run( {}, {} )", machineIdentifier, key);
+    public void runAll(@NotNull Iterator<PlexServer> plexServers, @NotNull SearchMode searchMode) {
+        LOGGER.info("runAll( {} )", searchMode);
+
+        //Held for every library so a movie matched once is not searched for again
+        MovieIndex everyBasicMovie = acquireEveryBasicMovie();
+        int before = everyBasicMovie.size();
+
+        int counter = 0;
+        try {
+            while (plexServers.hasNext()) {
+                PlexServer plexServer = plexServers.next();
+                for (PlexLibrary plexLibrary : plexServer.getPlexLibraries()) {
+                    SearchJob searchJob = searchJobRegistry.start(plexServer.getMachineIdentifier(), plexLibrary.getKey(), searchMode);
+                    if (searchJob == null) {
+                        continue;
+                    }
+
+                    try {
+                        execute(searchJob);
+                    } catch (ResponseStatusException e) {
+                        LOGGER.warn("Search {} ended: {}", searchJob.getId(), e.getReason());
+                    }
+                    counter++;
+                }
+            }
+        } finally {
+            releaseEveryBasicMovie();
+        }
+
+        LOGGER.info("runAll() searched {} libraries, movie index grew from {} to {}", counter, before, everyBasicMovie.size());
+    }
+
+    @Override
+    public @NotNull String submit(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull SearchMode searchMode) {
+        LOGGER.info("submit( {}, {}, {} )", machineIdentifier, key, searchMode);
+
+        while (true) {
+            SearchJob searchJob = searchJobRegistry.start(machineIdentifier, key, searchMode);
+            if (searchJob != null) {
+                jobExecutor.execute(() -> executeInBackground(searchJob));
+                return searchJob.getId();
+            }
+
+            //The running job may have finished in between, then try to start again
+            SearchJob running = searchJobRegistry.find(machineIdentifier, key);
+            if (running != null) {
+                return running.getId();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        searchJobRegistry.cancelAll();
+        jobExecutor.shutdownNow();
+        checkpointScheduler.shutdownNow();
+    }
+
+    private void executeInBackground(@NotNull SearchJob searchJob) {
+        try {
+            execute(searchJob);
+        } catch (ResponseStatusException e) {
+            LOGGER.warn("Search {} ended: {}", searchJob.getId(), e.getReason());
+        } catch (RuntimeException e) {
+            LOGGER.error(String.format("Search %s failed", searchJob.getId()), e);
+        }
+    }
+
+    private void execute(@NotNull SearchJob searchJob) {
+        try {
+            if (searchJob.isCancelled()) {
+                searchJob.finished(SearchJob.Status.CANCELLED, "Search cancelled");
+                return;
+            }
+
+            MovieIndex everyBasicMovie = acquireEveryBasicMovie();
+            try {
+                lookUpLibraryAndSearch(searchJob, everyBasicMovie);
+            } finally {
+                releaseEveryBasicMovie();
+            }
+        } finally {
+            if (!searchJob.isDone()) {
+                searchJob.finished(SearchJob.Status.FAILED, "Search failed");
+            }
+            searchJobRegistry.finish(searchJob);
+        }
+    }
+
+    private void lookUpLibraryAndSearch(@NotNull SearchJob searchJob, @NotNull MovieIndex everyBasicMovie) {
+        final String machineIdentifier = searchJob.getMachineIdentifier();
+        final Integer key = searchJob.getKey();
 
         PlexProperties plexProperties = fileIoService.readProperties();
         Optional<PlexServer> optionalPlexServer = plexProperties.getPlexServers().stream().filter(tempPlexServer -> tempPlexServer.getMachineIdentifier().equals(machineIdentifier)).findFirst();
@@ -117,6 +272,7 @@ public class GapsSearchService implements GapsSearch {
             plexServer = optionalPlexServer.get();
         } else {
             LOGGER.error("Plex server not found with machineIdentifier {} and key {}", machineIdentifier, key);
+            searchJob.finished(SearchJob.Status.FAILED, "Plex server not found");
             return;
         }
 
@@ -127,79 +283,232 @@ public class GapsSearchService implements GapsSearch {
             plexLibrary = optionalPlexLibrary.get();
         } else {
             LOGGER.error("Plex library not found with machineIdentifier {} and key {}", machineIdentifier, key);
+            searchJob.finished(SearchJob.Status.FAILED, "Plex library not found");
             return;
         }
 
+        search(plexProperties, plexServer, plexLibrary, searchJob, everyBasicMovie);
+    }
+
+    /**
+     * @return the index shared by the running searches, read from disk if no other search is running
+     */
+    private synchronized @NotNull MovieIndex acquireEveryBasicMovie() {
+        if (sharedMovieIndexUsers++ == 0) {
+            sharedMovieIndex = new MovieIndex();
+            fileIoService.forEachMovieId(sharedMovieIndex::add);
+        }
+        return sharedMovieIndex;
+    }
+
+    private synchronized void releaseEveryBasicMovie() {
+        if (--sharedMovieIndexUsers == 0) {
+            sharedMovieIndex = null;
+        }
+    }
+
+    private void search(@NotNull PlexProperties plexProperties, @NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary, @NotNull SearchJob searchJob,
+                        @NotNull MovieIndex everyBasicMovie) {
+        final String machineIdentifier = searchJob.getMachineIdentifier();
+        final Integer key = searchJob.getKey();
+        final String finishedSearchingUrl = searchJob.topic(FINISHED_SEARCHING_URL);
+
         notificationService.recommendedMoviesSearchStarted(plexServer, plexLibrary);
 
         if (StringUtils.isEmpty(plexProperties.getMovieDbApiKey())) {
             Payload payload = tmdbService.testTmdbKey(plexProperties.getMovieDbApiKey());
             if (payload != Payload.TMDB_KEY_VALID) {
                 LOGGER.error(payload.getReason());
-                template.convertAndSend(FINISHED_SEARCHING_URL, payload);
+                template.convertAndSend(finishedSearchingUrl, payload);
+                searchJob.finished(SearchJob.Status.FAILED, payload.getReason());
                 return;
             }
         }
 
-        cancelSearch.set(false);
-
-        final Set<BasicMovie> recommended = new LinkedHashSet<>();
-        final List<BasicMovie> searched = new ArrayList<>();
-        final List<BasicMovie> everyBasicMovie = new ArrayList<>(fileIoService.readMovieIdsFromFile());
-        final List<BasicMovie> ownedBasicMovies = new ArrayList<>(fileIoService.readOwnedMovies(machineIdentifier, key));
+        final MovieIndex recommended = new MovieIndex();
+        final MovieIndex searched = new MovieIndex();
+        final MovieIndex completed = new MovieIndex();
+        final MovieIndex ownedBasicMovies = new MovieIndex(fileIoService.readOwnedMovies(machineIdentifier, key));
         final AtomicInteger searchedMovieCount = new AtomicInteger(0);
 
-        if (CollectionUtils.isEmpty(ownedBasicMovies)) {
+        if (ownedBasicMovies.size() == 0) {
             String reason = "Owned movies cannot be empty";
             LOGGER.error(reason);
-            template.convertAndSend(FINISHED_SEARCHING_URL, Payload.OWNED_MOVIES_CANNOT_BE_EMPTY);
+            template.convertAndSend(finishedSearchingUrl, Payload.OWNED_MOVIES_CANNOT_BE_EMPTY);
+            searchJob.finished(SearchJob.Status.FAILED, reason);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, reason);
         }
 
+        List<BasicMovie> moviesToSearch = findMoviesToSearch(searchJob.getSearchMode(), machineIdentifier, key, ownedBasicMovies, recommended, searched, completed);
+        final int earlierRecommendations = recommended.size();
+        //Movies skipped by an incremental or resumed search count as already searched
+        searchedMovieCount.set(ownedBasicMovies.size() - moviesToSearch.size());
+        MovieIndex toSearch = new MovieIndex(moviesToSearch);
+        ownedBasicMovies.values().stream().filter(basicMovie -> !toSearch.contains(basicMovie)).forEach(completed::add);
+
+        searchJob.running(moviesToSearch.size(), recommended);
+        searchMetrics.searchStarted(moviesToSearch.size());
+        searchProgressPublisher.start(machineIdentifier, key, ownedBasicMovies.size(), searchedMovieCount);
+        long checkpointInterval = gapsConfiguration.getSearch().getCheckpointInterval().toMillis();
+        AtomicInteger savedChanges = new AtomicInteger(-1);
+        ScheduledFuture<?> checkpoints = checkpointScheduler.scheduleWithFixedDelay(() -> saveCheckpoint(machineIdentifier, key, completed, searched, recommended, everyBasicMovie, savedChanges),
+                checkpointInterval, checkpointInterval, TimeUnit.MILLISECONDS);
+        boolean searchedEverything = false;
+        long start = System.nanoTime();
         try {
-            StopWatch watch = new StopWatch();
-            watch.start();
-            searchForMovies(plexProperties, machineIdentifier, key, ownedBasicMovies, everyBasicMovie, recommended, searched, searchedMovieCount);
-            watch.stop();
-            LOGGER.info("Time Elapsed: {} seconds.", TimeUnit.MILLISECONDS.toSeconds(watch.getTime()));
-            LOGGER.info("Times used TVDB ID: {}", tempTvdbCounter);
+            searchForMovies(plexProperties, searchJob, moviesToSearch, ownedBasicMovies, everyBasicMovie, recommended, searched, completed, searchedMovieCount);
+            searchedEverything = true;
+            long elapsed = System.nanoTime() - start;
+            searchMetrics.searchFinished(machineIdentifier, key, searchJob.getSearchMode(), elapsed);
+            LOGGER.info("Time Elapsed: {} seconds.", TimeUnit.NANOSECONDS.toSeconds(elapsed));
+            LOGGER.info("Times used TVDB ID: {}", searchJob.getTvdbLookups());
+            LOGGER.info("TMDB detail cache hits: {} misses: {}", tmdbDetailCache.getHits(), tmdbDetailCache.getMisses());
         } catch (SearchCancelledException e) {
             String reason = "Search cancelled";
             LOGGER.error(reason);
-            template.convertAndSend(FINISHED_SEARCHING_URL, Payload.OWNED_MOVIES_CANNOT_BE_EMPTY);
+            template.convertAndSend(finishedSearchingUrl, Payload.OWNED_MOVIES_CANNOT_BE_EMPTY);
             notificationService.recommendedMoviesSearchFailed(plexServer, plexLibrary, reason);
+            searchJob.finished(SearchJob.Status.CANCELLED, reason);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, reason, e);
         } catch (IOException e) {
             String reason = "Search failed";
             LOGGER.error(reason);
-            template.convertAndSend(FINISHED_SEARCHING_URL, Payload.SEARCH_FAILED);
+            template.convertAndSend(finishedSearchingUrl, Payload.SEARCH_FAILED);
             notificationService.recommendedMoviesSearchFailed(plexServer, plexLibrary, e.getMessage());
+            searchJob.finished(SearchJob.Status.FAILED, e.getMessage());
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, reason, e);
         } finally {
-            cancelSearch.set(true);
+            checkpoints.cancel(false);
+            if (!searchedEverything) {
+                //Keep what was found so far, a resumed search picks up from here
+                saveCheckpoint(machineIdentifier, key, completed, searched, recommended, everyBasicMovie, savedChanges);
+            }
+            searchMetrics.searchStopped(moviesToSearch.size() - searchJob.getMoviesSearched());
+            searchProgressPublisher.finish(machineIdentifier, key);
+            rssPublisher.finish(machineIdentifier, key, recommended);
+            tmdbCollectionCache.save();
+            tmdbDetailCache.save();
         }
 
-        notificationService.recommendedMoviesSearchFinished(plexServer, plexLibrary);
+        notificationService.recommendedMoviesSearchFinished(plexServer, plexLibrary, recommended.size() - earlierRecommendations);
 
         //Always write to log
-        fileIoService.writeRecommendedToFile(recommended, machineIdentifier, key);
-        fileIoService.writeMovieIdsToFile(new TreeSet<>(everyBasicMovie));
+        fileIoService.writeRecommendedToFile(new LinkedHashSet<>(recommended.values()), machineIdentifier, key);
+        fileIoService.writeMovieIdsToFile(new TreeSet<>(everyBasicMovie.values()));
+        fileIoService.writeWatermark(LibraryWatermark.of(ownedBasicMovies.values()), machineIdentifier, key);
+        fileIoService.deleteCheckpoint(machineIdentifier, key);
 
-        template.convertAndSend(FINISHED_SEARCHING_URL, Payload.SEARCH_SUCCESSFUL);
+        template.convertAndSend(finishedSearchingUrl, Payload.SEARCH_SUCCESSFUL);
+        searchJob.finished(SearchJob.Status.FINISHED, null);
 
         LOGGER.info("Recommending {} movies.", recommended.size());
     }
 
+    /**
+     * Saves how far the search got. The movie ids are written along with it, so the TMDB ids resolved so far aren't
+     * looked up again either. Both files are replaced atomically, and the movie ids only when they changed since the
+     * last checkpoint.
+     *
+     * @param savedChanges changes of the movie index when its ids were last written
+     */
+    private void saveCheckpoint(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull MovieIndex completed, @NotNull MovieIndex searched, @NotNull MovieIndex recommended,
+                                @NotNull MovieIndex everyBasicMovie, @NotNull AtomicInteger savedChanges) {
+        try {
+            SearchCheckpoint searchCheckpoint = new SearchCheckpoint(System.currentTimeMillis(), completed.values(), searched.values(), recommended.values());
+            fileIoService.writeCheckpoint(searchCheckpoint, machineIdentifier, key);
+            int changes = everyBasicMovie.getChanges();
+            if (savedChanges.getAndSet(changes) != changes) {
+                fileIoService.writeMovieIdsToFile(new TreeSet<>(everyBasicMovie.values()));
+            }
+            tmdbCollectionCache.save();
+            tmdbDetailCache.save();
+        } catch (RuntimeException e) {
+            LOGGER.error(String.format("Failed to save checkpoint of %s %s", machineIdentifier, key), e);
+        }
+    }
+
+    /**
+     * A full search goes through every owned movie. An incremental search starts from the recommendations of the last
+     * search, minus any movies that are owned now, and only looks up movies that Plex added or changed since then or
+     * whose collection needs refreshing. Without a watermark from an earlier search it falls back to a full search. A
+     * resumed search starts from the last checkpoint and only looks up the owned movies it hadn't completed.
+     */
+    private @NotNull List<BasicMovie> findMoviesToSearch(@NotNull SearchMode searchMode, @NotNull String machineIdentifier, @NotNull Integer key, @NotNull MovieIndex ownedBasicMovies, @NotNull MovieIndex recommended,
+                                                         @NotNull MovieIndex searched, @NotNull MovieIndex completed) {
+        List<BasicMovie> owned = ownedBasicMovies.values();
+        if (searchMode == SearchMode.FULL) {
+            return owned;
+        }
+
+        if (searchMode == SearchMode.RESUME) {
+            return findMoviesToResume(machineIdentifier, key, ownedBasicMovies, recommended, searched, completed);
+        }
+
+        LibraryWatermark libraryWatermark = fileIoService.readWatermark(machineIdentifier, key);
+        if (libraryWatermark == null) {
+            LOGGER.info("No earlier search found for {} {}, searching every movie", machineIdentifier, key);
+            return owned;
+        }
+
+        fileIoService.readRecommendedMovies(machineIdentifier, key)
+                .stream()
+                .filter(basicMovie -> !ownedBasicMovies.contains(basicMovie))
+                .forEach(recommended::add);
+
+        List<BasicMovie> moviesToSearch = owned
+                .stream()
+                .filter(basicMovie -> !libraryWatermark.isResolved(basicMovie) ||
+                        (basicMovie.getCollectionId() != -1 && tmdbCollectionCache.needsRefresh(basicMovie.getCollectionId())))
+                .collect(Collectors.toList());
+
+        LOGGER.info("Incremental search of {} out of {} movies, keeping {} earlier recommendations", moviesToSearch.size(), owned.size(), recommended.size());
+        return moviesToSearch;
+    }
+
+    private @NotNull List<BasicMovie> findMoviesToResume(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull MovieIndex ownedBasicMovies, @NotNull MovieIndex recommended,
+                                                         @NotNull MovieIndex searched, @NotNull MovieIndex completed) {
+        List<BasicMovie> owned = ownedBasicMovies.values();
+        SearchCheckpoint searchCheckpoint = fileIoService.readCheckpoint(machineIdentifier, key);
+        if (searchCheckpoint == null) {
+            LOGGER.info("No checkpoint found for {} {}, searching every movie", machineIdentifier, key);
+            return owned;
+        }
+
+        searchCheckpoint.getCompleted().forEach(completed::add);
+        searchCheckpoint.getSearched().forEach(searched::add);
+        searchCheckpoint.getRecommended()
+                .stream()
+                .filter(basicMovie -> !ownedBasicMovies.contains(basicMovie))
+                .forEach(recommended::add);
+
+        List<BasicMovie> moviesToSearch = owned
+                .stream()
+                .filter(basicMovie -> !completed.contains(basicMovie))
+                .collect(Collectors.toList());
+
+        LOGGER.info("Resuming search of {} out of {} movies, keeping {} recommendations", moviesToSearch.size(), owned.size(), recommended.size());
+        return moviesToSearch;
+    }
+
     @Override
     public void cancelSearch() {
         LOGGER.info("cancelSearch()");
-        cancelSearch.set(true);
+        searchJobRegistry.cancelAll();
+    }
+
+    @Override
+    public void cancelSearch(@NotNull String machineIdentifier, @NotNull Integer key) {
+        LOGGER.info("cancelSearch( {}, {} )", machineIdentifier, key);
+        if (!searchJobRegistry.cancel(machineIdentifier, key)) {
+            LOGGER.warn("No search running for {} {}", machineIdentifier, key);
+        }
     }
 
     @Override
     public boolean isSearching() {
-        LOGGER.info("isSearching() {}", !cancelSearch.get());
-        return !cancelSearch.get();
+        boolean searching = searchJobRegistry.isSearching();
+        LOGGER.info("isSearching() {}", searching);
+        return searching;
     }
 
     /**
@@ -209,12 +518,13 @@ public class GapsSearchService implements GapsSearch {
      * compare the full collection list to the movies found in plex, any missing we add to the recommended list. To
      * optimize some network calls, we add movies found in a collection and in plex to our already searched list, so we
      * don't re-query collections again and again.
+     * <p>
+     * Each owned movie is handed to a small pool of workers. The workers don't wait between calls, the shared
+     * {@link TmdbRateLimiter} decides when the next TMDB request may go out.
      */
-    @SuppressFBWarnings(value = "NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
-    private void searchForMovies(PlexProperties plexProperties, String machineIdentifier, Integer key, List<BasicMovie> ownedBasicMovies, List<BasicMovie> everyBasicMovie, Set<BasicMovie> recommended, List<BasicMovie> searched,
-                                 AtomicInteger searchedMovieCount) throws SearchCancelledException, IOException {
+    private void searchForMovies(PlexProperties plexProperties, SearchJob searchJob, List<BasicMovie> moviesToSearch, MovieIndex ownedBasicMovies, MovieIndex everyBasicMovie, MovieIndex recommended, MovieIndex searched,
+                                 MovieIndex completed, AtomicInteger searchedMovieCount) throws SearchCancelledException, IOException {
         LOGGER.debug("searchForMovies()");
-        OkHttpClient client = new OkHttpClient();
 
         if (StringUtils.isEmpty(plexProperties.getMovieDbApiKey())) {
             plexProperties = fileIoService.readProperties();
@@ -226,162 +536,293 @@ public class GapsSearchService implements GapsSearch {
             }
         }
 
-        for (BasicMovie basicMovie : ownedBasicMovies) {
-            String languageCode = "en-US";
-
-            //Cancel search if needed
-            if (cancelSearch.get()) {
-                throw new SearchCancelledException("Search cancelled");
+        final PlexProperties searchProperties = plexProperties;
+        ExecutorService executorService = Executors.newFixedThreadPool(gapsConfiguration.getTmdb().getSearchThreads(), new CustomizableThreadFactory("Gaps-Search-"));
+        try {
+            List<Future<Void>> futures = new ArrayList<>(moviesToSearch.size());
+            for (BasicMovie basicMovie : moviesToSearch) {
+                futures.add(executorService.submit(() -> {
+                    try {
+                        searchForMovie(searchProperties, searchJob, ownedBasicMovies, everyBasicMovie, recommended, searched, searchedMovieCount, basicMovie, client);
+                        completed.add(basicMovie);
+                    } finally {
+                        searchJob.movieSearched();
+                        searchMetrics.movieSearched();
+                    }
+                    return null;
+                }));
             }
 
-            //Print the count first to handle the continue if block or the regular searching case
-            if (searchedMovieCount.get() % 10 == 0) {
-                LOGGER.info("{}% Complete. Processed {} files of {}.", ((int) ((searchedMovieCount.get()) / ((double) (ownedBasicMovies.size())) * 100)), searchedMovieCount.get(), ownedBasicMovies.size());
+            for (Future<Void> future : futures) {
+                waitForSearch(future, searchJob);
             }
-            searchedMovieCount.incrementAndGet();
+        } finally {
+            executorService.shutdownNow();
+            awaitWorkers(executorService);
+        }
+    }
 
-            if (searched.contains(basicMovie)) {
-                continue;
-            }
+    private void waitForSearch(Future<Void> future, SearchJob searchJob) throws SearchCancelledException, IOException {
+        while (true) {
+            searchJob.throwIfCancelled();
 
-            HttpUrl searchMovieUrl;
             try {
-                //If TMDB is available, skip the search
-                //If IMDB is available use find
-                //Otherwise, fall back to movie title and year search
-                LOGGER.info(basicMovie.toString());
-                if (basicMovie.getTmdbId() != -1 && basicMovie.getCollectionId() != -1) {
-                    LOGGER.info("Used Collection ID to get {}", basicMovie.getName());
-                    tempTvdbCounter.incrementAndGet();
-                    handleCollection(plexProperties, machineIdentifier, key, ownedBasicMovies, everyBasicMovie, recommended, searched, searchedMovieCount, basicMovie, client, languageCode);
-                    continue;
-                } else if (basicMovie.getTmdbId() != -1) {
-                    LOGGER.info("Used TVDB ID to get {}", basicMovie.getName());
-                    tempTvdbCounter.incrementAndGet();
-                    searchMovieDetails(plexProperties, machineIdentifier, key, ownedBasicMovies, everyBasicMovie, recommended, searched, searchedMovieCount, basicMovie, client, languageCode);
-                    continue;
-                } else if (StringUtils.isNotBlank(basicMovie.getImdbId())) {
-                    LOGGER.info("Used 'find' to search for {}", basicMovie.getName());
-                    String imdbId = URLEncoder.encode(basicMovie.getImdbId(), StandardCharsets.UTF_8);
-                    searchMovieUrl = urlGenerator.generateFindMovieUrl(plexProperties.getMovieDbApiKey(), imdbId, languageCode);
-                } else {
-                    LOGGER.info("Used 'search' to search for {}", basicMovie.getName());
-                    String name = URLEncoder.encode(basicMovie.getName(), StandardCharsets.UTF_8);
-                    searchMovieUrl = urlGenerator.generateSearchMovieUrl(plexProperties.getMovieDbApiKey(), name, String.valueOf(basicMovie.getYear()), languageCode);
+                future.get(250, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                //Still searching, check if cancelled and wait again
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SearchCancelledException("Search interrupted");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SearchCancelledException) {
+                    throw (SearchCancelledException) cause;
+                } else if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
                 }
+                throw new IllegalStateException("Search failed", cause);
+            }
+        }
+    }
 
-                Request request = new Request.Builder()
-                        .url(searchMovieUrl)
-                        .build();
+    /**
+     * Gives cancelled workers a moment to wind down, so the counts of the job are settled when the search ends
+     */
+    private void awaitWorkers(ExecutorService executorService) {
+        try {
+            if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOGGER.warn("Search workers still running after cancel");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-                String json = "";
-                try (Response response = client.newCall(request).execute()) {
+    @SuppressFBWarnings(value = "NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
+    private void searchForMovie(PlexProperties plexProperties, SearchJob searchJob, MovieIndex ownedBasicMovies, MovieIndex everyBasicMovie, MovieIndex recommended, MovieIndex searched,
+                                AtomicInteger searchedMovieCount, BasicMovie basicMovie, OkHttpClient client) throws SearchCancelledException {
+        String languageCode = "en-US";
+        String machineIdentifier = searchJob.getMachineIdentifier();
+        Integer key = searchJob.getKey();
+
+        //Cancel search if needed
+        searchJob.throwIfCancelled();
+
+        //Print the count first to handle the return if block or the regular searching case
+        int count = searchedMovieCount.getAndIncrement();
+        if (count % 10 == 0) {
+            LOGGER.info("{}% Complete. Processed {} files of {}.", ((int) ((count) / ((double) (ownedBasicMovies.size())) * 100)), count, ownedBasicMovies.size());
+        }
 
-                    ResponseBody responseBody = response.body();
-                    if (responseBody != null) {
-                        json = responseBody.string();
-                    }
+        if (searched.contains(basicMovie)) {
+            return;
+        }
 
-                    if (StringUtils.isEmpty(json)) {
-                        LOGGER.error("Body returned null from TheMovieDB for: {}", basicMovie);
-                        continue;
-                    }
+        //Matched by an earlier search or another library, no need to search or find it again
+        if (basicMovie.getTmdbId() == -1) {
+            BasicMovie knownMovie = everyBasicMovie.find(basicMovie);
+            if (knownMovie != null && knownMovie.getTmdbId() != -1) {
+                basicMovie.setTmdbId(knownMovie.getTmdbId());
+                ownedBasicMovies.reindex(basicMovie);
+            }
+        }
 
-                    JsonNode foundMovies = objectMapper.readTree(json);
-                    ArrayNode results;
+        HttpUrl searchMovieUrl;
+        //If TMDB is available, skip the search
+        //If IMDB is available use find
+        //Otherwise, fall back to movie title and year search
+        LOGGER.info(basicMovie.toString());
+        if (basicMovie.getTmdbId() != -1 && basicMovie.getCollectionId() != -1) {
+            LOGGER.info("Used Collection ID to get {}", basicMovie.getName());
+            searchJob.tvdbLookup();
+            handleCollection(plexProperties, machineIdentifier, key, ownedBasicMovies, everyBasicMovie, recommended, searched, searchedMovieCount, basicMovie, client, languageCode);
+            return;
+        } else if (basicMovie.getTmdbId() != -1) {
+            LOGGER.info("Used TVDB ID to get {}", basicMovie.getName());
+            searchJob.tvdbLookup();
+            searchMovieDetails(plexProperties, machineIdentifier, key, ownedBasicMovies, everyBasicMovie, recommended, searched, searchedMovieCount, basicMovie, client, languageCode);
+            return;
+        } else if (StringUtils.isNotBlank(basicMovie.getImdbId())) {
+            LOGGER.info("Used 'find' to search for {}", basicMovie.getName());
+            String imdbId = URLEncoder.encode(basicMovie.getImdbId(), StandardCharsets.UTF_8);
+            searchMovieUrl = urlGenerator.generateFindMovieUrl(plexProperties.getMovieDbApiKey(), imdbId, languageCode);
+        } else {
+            LOGGER.info("Used 'search' to search for {}", basicMovie.getName());
+            String name = URLEncoder.encode(basicMovie.getName(), StandardCharsets.UTF_8);
+            searchMovieUrl = urlGenerator.generateSearchMovieUrl(plexProperties.getMovieDbApiKey(), name, String.valueOf(basicMovie.getYear()), languageCode);
+        }
 
-                    if (foundMovies.has(MOVIE_RESULTS) &&
-                            foundMovies.get(MOVIE_RESULTS).getNodeType().equals(JsonNodeType.ARRAY)) {
-                        //Results from 'find'
-                        results = (ArrayNode) foundMovies.get(MOVIE_RESULTS);
-                    } else {
-                        //Results from 'search'
-                        results = (ArrayNode) foundMovies.get("results");
-                    }
+        try {
+            String json = callTmdb(client, searchMovieUrl);
 
-                    if (results == null) {
-                        LOGGER.error("Results returned null from TheMovieDB for: {}", basicMovie);
-                        continue;
-                    }
+            if (StringUtils.isEmpty(json)) {
+                LOGGER.error("Body returned null from TheMovieDB for: {}", basicMovie);
+                return;
+            }
 
-                    if (results.size() == 0) {
-                        LOGGER.error("Results not found for {}", basicMovie);
-                        LOGGER.error("URL: {}", searchMovieUrl);
-                        continue;
-                    }
+            JsonNode foundMovies = objectMapper.readTree(json);
+            ArrayNode results;
 
-                    if (results.size() > 1) {
-                        LOGGER.info("Results for {} came back with {}} results. Using first result.", basicMovie, results.size());
-                        LOGGER.info("{} URL: {}", basicMovie, searchMovieUrl);
-                    }
+            if (foundMovies.has(MOVIE_RESULTS) &&
+                    foundMovies.get(MOVIE_RESULTS).getNodeType().equals(JsonNodeType.ARRAY)) {
+                //Results from 'find'
+                results = (ArrayNode) foundMovies.get(MOVIE_RESULTS);
+            } else {
+                //Results from 'search'
+                results = (ArrayNode) foundMovies.get("results");
+            }
 
-                    JsonNode result = results.get(0);
-                    int id = result.get(ID).intValue();
-                    basicMovie.setTmdbId(id);
+            if (results == null) {
+                LOGGER.error("Results returned null from TheMovieDB for: {}", basicMovie);
+                return;
+            }
 
-                    int indexOfMovie = everyBasicMovie.indexOf(basicMovie);
-                    if (indexOfMovie != -1) {
-                        LOGGER.info("Merging movie data");
-                        everyBasicMovie.get(indexOfMovie).setTmdbId(basicMovie.getTmdbId());
-                    } else {
-                        BasicMovie newBasicMovie = new BasicMovie.Builder(basicMovie.getName(), basicMovie.getYear())
-                                .setTmdbId(basicMovie.getTmdbId())
-                                .setImdbId(basicMovie.getImdbId())
-                                .setCollectionTitle(basicMovie.getCollectionTitle())
-                                .setCollectionId(basicMovie.getCollectionId())
-                                .build();
-                        everyBasicMovie.add(newBasicMovie);
-                    }
+            if (results.size() == 0) {
+                LOGGER.error("Results not found for {}", basicMovie);
+                LOGGER.error("URL: {}", searchMovieUrl);
+                return;
+            }
 
-                    searchMovieDetails(plexProperties, machineIdentifier, key, ownedBasicMovies, everyBasicMovie, recommended, searched, searchedMovieCount, basicMovie, client, languageCode);
-                } catch (JsonProcessingException e) {
-                    LOGGER.error(String.format("Error parsing movie %s.", basicMovie), e);
-                    LOGGER.error("URL: {}", searchMovieUrl);
-                } catch (IOException e) {
-                    LOGGER.error(String.format("Error searching for movie %s.", basicMovie), e);
-                    LOGGER.error("URL: {}", searchMovieUrl);
-                } finally {
-                    try {
-                        //can't have too many connections to the movie database in a specific time, have to wait
-                        Thread.sleep(700);
-                    } catch (InterruptedException e) {
-                        LOGGER.error("Error sleeping", e);
-                    }
+            if (results.size() > 1) {
+                LOGGER.info("Results for {} came back with {}} results. Using first result.", basicMovie, results.size());
+                LOGGER.info("{} URL: {}", basicMovie, searchMovieUrl);
+            }
+
+            JsonNode result = results.get(0);
+            int id = result.get(ID).intValue();
+            basicMovie.setTmdbId(id);
+            //Collections list the movie by its TMDB id and title, which can differ from the Plex title
+            ownedBasicMovies.reindex(basicMovie);
+
+            synchronized (everyBasicMovie) {
+                BasicMovie existingMovie = everyBasicMovie.find(basicMovie);
+                if (existingMovie != null) {
+                    LOGGER.info("Merging movie data");
+                    existingMovie.setTmdbId(basicMovie.getTmdbId());
+                    everyBasicMovie.reindex(existingMovie);
+                } else {
+                    BasicMovie newBasicMovie = new BasicMovie.Builder(basicMovie.getName(), basicMovie.getYear())
+                            .setTmdbId(basicMovie.getTmdbId())
+                            .setImdbId(basicMovie.getImdbId())
+                            .setCollectionTitle(basicMovie.getCollectionTitle())
+                            .setCollectionId(basicMovie.getCollectionId())
+                            .build();
+                    everyBasicMovie.add(newBasicMovie);
                 }
-            } finally {
-                try {
-                    //can't have too many connections to the movie database in a specific time, have to wait
-                    Thread.sleep(350);
-                } catch (InterruptedException e) {
-                    LOGGER.error("Error sleeping", e);
+            }
+
+            searchMovieDetails(plexProperties, machineIdentifier, key, ownedBasicMovies, everyBasicMovie, recommended, searched, searchedMovieCount, basicMovie, client, languageCode);
+        } catch (JsonProcessingException e) {
+            LOGGER.error(String.format("Error parsing movie %s.", basicMovie), e);
+            LOGGER.error("URL: {}", searchMovieUrl);
+        } catch (IOException e) {
+            LOGGER.error(String.format("Error searching for movie %s.", basicMovie), e);
+            LOGGER.error("URL: {}", searchMovieUrl);
+        }
+    }
+
+    /**
+     * Makes a single call to TMDB once the rate limiter allows it. When TMDB still answers with 429 every search
+     * thread is held back for the Retry-After time before trying again.
+     *
+     * @return the response body, empty if there was none
+     */
+    private @NotNull String callTmdb(@NotNull OkHttpClient client, @NotNull HttpUrl url) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+
+        for (int attempt = 0; ; attempt++) {
+            long waitStart = System.nanoTime();
+            try {
+                tmdbRateLimiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting on TMDB rate limit");
+            }
+            long callStart = System.nanoTime();
+            searchMetrics.recordRateLimitWait(callStart - waitStart);
+
+            try (Response response = client.newCall(request).execute()) {
+                if (response.code() == 429 && attempt < MAX_TMDB_RETRIES) {
+                    searchMetrics.recordTmdbRequest(url, response.code(), System.nanoTime() - callStart);
+                    long retryAfter = parseRetryAfter(response.header("Retry-After"));
+                    LOGGER.warn("TMDB rate limit hit, waiting {} ms before retrying", retryAfter);
+                    tmdbRateLimiter.pause(retryAfter);
+                    continue;
                 }
+
+                ResponseBody responseBody = response.body();
+                String body = responseBody == null ? "" : responseBody.string();
+                searchMetrics.recordTmdbRequest(url, response.code(), System.nanoTime() - callStart);
+                return body;
             }
         }
     }
 
-    private void searchMovieDetails(PlexProperties plexProperties, String machineIdentifier, Integer key, List<BasicMovie> ownedBasicMovies, List<BasicMovie> everyBasicMovie, Set<BasicMovie> recommended, List<BasicMovie> searched,
+    private JsonNode fetchCollection(@NotNull OkHttpClient client, @NotNull HttpUrl collectionUrl, @NotNull BasicMovie basicMovie) throws IOException {
+        String collectionJson = callTmdb(client, collectionUrl);
+
+        if (StringUtils.isEmpty(collectionJson)) {
+            LOGGER.error("Body returned null from TheMovieDB for collection information about {}", basicMovie.getName());
+            return null;
+        }
+
+        JsonNode collection = objectMapper.readTree(collectionJson);
+
+        if (collection.has("status_code") && collection.get("status_code").intValue() == 34) {
+            LOGGER.warn(collection.get("status_message").textValue());
+            return null;
+        }
+
+        return collection;
+    }
+
+    /**
+     * Gets the details of a movie from TMDB, keeping only the fields Gaps uses so the detail cache stays small
+     *
+     * @return the trimmed details, null if TMDB had nothing usable
+     */
+    private JsonNode fetchMovieDetails(@NotNull OkHttpClient client, @NotNull HttpUrl movieDetailUrl, @NotNull BasicMovie basicMovie) throws IOException {
+        String movieDetailJson = callTmdb(client, movieDetailUrl);
+
+        if (StringUtils.isEmpty(movieDetailJson)) {
+            LOGGER.error("Body returned null from TheMovieDB for details on {}", basicMovie.getName());
+            return null;
+        }
+
+        JsonNode movieDetails = objectMapper.readTree(movieDetailJson);
+
+        if (!movieDetails.isObject() || movieDetails.has("status_code")) {
+            LOGGER.warn("TheMovieDB could not find details for {}: {}", basicMovie.getName(), movieDetails.path("status_message").textValue());
+            return null;
+        }
+
+        return ((ObjectNode) movieDetails).retain(ID, TITLE, RELEASE_DATE, COLLECTION_ID, "imdb_id", "poster_path", "overview");
+    }
+
+    private long parseRetryAfter(String retryAfter) {
+        if (StringUtils.isNumeric(retryAfter)) {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter));
+        }
+        return DEFAULT_RETRY_AFTER;
+    }
+
+    private void searchMovieDetails(PlexProperties plexProperties, String machineIdentifier, Integer key, MovieIndex ownedBasicMovies, MovieIndex everyBasicMovie, MovieIndex recommended, MovieIndex searched,
                                     AtomicInteger searchedMovieCount, BasicMovie basicMovie, OkHttpClient client, String languageCode) {
         LOGGER.debug("searchMovieDetails()");
         HttpUrl movieDetailUrl = urlGenerator.generateMovieDetailUrl(plexProperties.getMovieDbApiKey(), String.valueOf(basicMovie.getTmdbId()), languageCode);
 
-        Request request = new Request.Builder()
-                .url(movieDetailUrl)
-                .build();
-
-        try (Response movieDetailResponse = client.newCall(request).execute()) {
-            String movieDetailJson = "";
-            ResponseBody responseBody = movieDetailResponse.body();
-            if (responseBody != null) {
-                movieDetailJson = responseBody.string();
-            }
+        try {
+            JsonNode movieDetails = tmdbDetailCache.getDetails(basicMovie.getTmdbId(), languageCode, () -> fetchMovieDetails(client, movieDetailUrl, basicMovie));
 
-            if (StringUtils.isEmpty(movieDetailJson)) {
-                LOGGER.error("Body returned null from TheMovieDB for details on {}", basicMovie.getName());
+            if (movieDetails == null) {
                 return;
             }
 
-            JsonNode movieDetails = objectMapper.readTree(movieDetailJson);
-
             if (!movieDetails.has(COLLECTION_ID) || movieDetails.get(COLLECTION_ID).isNull()) {
                 //No collection found, just add movie to searched and continue
                 LOGGER.info("No collection found for {}", basicMovie.getName());
@@ -394,20 +835,23 @@ public class GapsSearchService implements GapsSearch {
             basicMovie.setCollectionId(collectionId);
             basicMovie.setCollectionTitle(collectionName);
 
-            int indexOfMovie = everyBasicMovie.indexOf(basicMovie);
-            if (indexOfMovie != -1) {
-                LOGGER.info("Merging movie data");
-                everyBasicMovie.get(indexOfMovie).setTmdbId(basicMovie.getTmdbId());
-                everyBasicMovie.get(indexOfMovie).setCollectionId(basicMovie.getCollectionId());
-                everyBasicMovie.get(indexOfMovie).setCollectionTitle(basicMovie.getCollectionTitle());
-            } else {
-                BasicMovie newBasicMovie = new BasicMovie.Builder(basicMovie.getName(), basicMovie.getYear())
-                        .setTmdbId(basicMovie.getTmdbId())
-                        .setImdbId(basicMovie.getImdbId())
-                        .setCollectionTitle(basicMovie.getCollectionTitle())
-                        .setCollectionId(basicMovie.getCollectionId())
-                        .build();
-                everyBasicMovie.add(newBasicMovie);
+            synchronized (everyBasicMovie) {
+                BasicMovie existingMovie = everyBasicMovie.find(basicMovie);
+                if (existingMovie != null) {
+                    LOGGER.info("Merging movie data");
+                    existingMovie.setTmdbId(basicMovie.getTmdbId());
+                    existingMovie.setCollectionId(basicMovie.getCollectionId());
+                    existingMovie.setCollectionTitle(basicMovie.getCollectionTitle());
+                    everyBasicMovie.reindex(existingMovie);
+                } else {
+                    BasicMovie newBasicMovie = new BasicMovie.Builder(basicMovie.getName(), basicMovie.getYear())
+                            .setTmdbId(basicMovie.getTmdbId())
+                            .setImdbId(basicMovie.getImdbId())
+                            .setCollectionTitle(basicMovie.getCollectionTitle())
+                            .setCollectionId(basicMovie.getCollectionId())
+                            .build();
+                    everyBasicMovie.add(newBasicMovie);
+                }
             }
 
             handleCollection(plexProperties, machineIdentifier, key, ownedBasicMovies, everyBasicMovie, recommended, searched, searchedMovieCount, basicMovie, client, languageCode);
@@ -417,36 +861,18 @@ public class GapsSearchService implements GapsSearch {
         }
     }
 
-    private void handleCollection(PlexProperties plexProperties, String machineIdentifier, Integer key, List<BasicMovie> ownedBasicMovies, List<BasicMovie> everyBasicMovie, Set<BasicMovie> recommended, List<BasicMovie> searched,
+    private void handleCollection(PlexProperties plexProperties, String machineIdentifier, Integer key, MovieIndex ownedBasicMovies, MovieIndex everyBasicMovie, MovieIndex recommended, MovieIndex searched,
                                   AtomicInteger searchedMovieCount, BasicMovie basicMovie, OkHttpClient client, String languageCode) {
         LOGGER.debug("handleCollection()");
         HttpUrl collectionUrl = urlGenerator.generateCollectionUrl(plexProperties.getMovieDbApiKey(), String.valueOf(basicMovie.getCollectionId()), languageCode);
 
-        Request request = new Request.Builder()
-                .url(collectionUrl)
-                .build();
-
-        try (Response collectionResponse = client.newCall(request).execute()) {
-            String collectionJson = "";
-            ResponseBody responseBody = collectionResponse.body();
-            if (responseBody != null) {
-                collectionJson = responseBody.string();
-            }
-
-            if (StringUtils.isEmpty(collectionJson)) {
-                LOGGER.error("Body returned null from TheMovieDB for collection information about {}", basicMovie.getName());
-                return;
-            }
-
-            JsonNode collection = objectMapper.readTree(collectionJson);
+        try {
+            JsonNode collection = tmdbCollectionCache.getCollection(basicMovie.getCollectionId(), () -> fetchCollection(client, collectionUrl, basicMovie));
 
-            if (collection.has("status_code") && collection.get("status_code").intValue() == 34) {
-                LOGGER.warn(collection.get("status_message").textValue());
+            if (collection == null) {
                 return;
             }
 
-            int indexOfMovie = everyBasicMovie.indexOf(basicMovie);
-
             List<MovieFromCollection> moviesInCollection = new ArrayList<>();
             if (collection.has(PARTS)) {
                 JsonNode parts = collection.get(PARTS);
@@ -467,7 +893,7 @@ public class GapsSearchService implements GapsSearch {
                     }
                     Integer tmdbId = jsonNode.get(ID).intValue();
 
-                    BasicMovie collectionBasicMovie = new BasicMovie.Builder(title, year).build();
+                    BasicMovie collectionBasicMovie = new BasicMovie.Builder(title, year).setTmdbId(tmdbId).build();
                     LOGGER.info(collectionBasicMovie.toString());
 
                     Boolean owned = ownedBasicMovies.contains(collectionBasicMovie);
@@ -477,33 +903,36 @@ public class GapsSearchService implements GapsSearch {
 
             LOGGER.info("MoviesInCollection: {}", Arrays.toString(moviesInCollection.toArray()));
 
-            if (indexOfMovie != -1) {
-                LOGGER.info("Movie found: {}", basicMovie);
-                int id = collection.get(ID).intValue();
-                String name = collection.get(NAME).textValue();
-                everyBasicMovie.get(indexOfMovie).setCollectionId(id);
-                everyBasicMovie.get(indexOfMovie).setCollectionTitle(name);
-                basicMovie.setCollectionTitle(name);
-                basicMovie.setCollectionId(id);
-                basicMovie.getMoviesInCollection().addAll(moviesInCollection);
-            } else {
-                LOGGER.info("Movie not found: {}", basicMovie);
-                int collectionId = collection.get(ID).intValue();
-                String collectionName = collection.get(NAME).textValue();
-                BasicMovie newBasicMovie = new BasicMovie.Builder(basicMovie.getName(), basicMovie.getYear())
-                        .setTmdbId(basicMovie.getTmdbId())
-                        .setImdbId(basicMovie.getImdbId())
-                        .setCollectionTitle(collectionName)
-                        .setCollectionId(collectionId)
-                        .setMoviesInCollection(moviesInCollection)
-                        .setLanguage(basicMovie.getLanguage())
-                        .setOverview(basicMovie.getOverview())
-                        .setPosterUrl(basicMovie.getPosterUrl())
-                        .build();
-                everyBasicMovie.add(newBasicMovie);
+            synchronized (everyBasicMovie) {
+                BasicMovie existingMovie = everyBasicMovie.find(basicMovie);
+                if (existingMovie != null) {
+                    LOGGER.info("Movie found: {}", basicMovie);
+                    int id = collection.get(ID).intValue();
+                    String name = collection.get(NAME).textValue();
+                    existingMovie.setCollectionId(id);
+                    existingMovie.setCollectionTitle(name);
+                    basicMovie.setCollectionTitle(name);
+                    basicMovie.setCollectionId(id);
+                    basicMovie.getMoviesInCollection().addAll(moviesInCollection);
+                } else {
+                    LOGGER.info("Movie not found: {}", basicMovie);
+                    int collectionId = collection.get(ID).intValue();
+                    String collectionName = collection.get(NAME).textValue();
+                    BasicMovie newBasicMovie = new BasicMovie.Builder(basicMovie.getName(), basicMovie.getYear())
+                            .setTmdbId(basicMovie.getTmdbId())
+                            .setImdbId(basicMovie.getImdbId())
+                            .setCollectionTitle(collectionName)
+                            .setCollectionId(collectionId)
+                            .setMoviesInCollection(moviesInCollection)
+                            .setLanguage(basicMovie.getLanguage())
+                            .setOverview(basicMovie.getOverview())
+                            .setPosterUrl(basicMovie.getPosterUrl())
+                            .build();
+                    everyBasicMovie.add(newBasicMovie);
 
-                basicMovie.setCollectionTitle(collectionName);
-                basicMovie.setCollectionId(collectionId);
+                    basicMovie.setCollectionTitle(collectionName);
+                    basicMovie.setCollectionId(collectionId);
+                }
             }
 
             ArrayNode parts = (ArrayNode) collection.get(PARTS);
@@ -546,45 +975,34 @@ public class GapsSearchService implements GapsSearch {
                     continue;
                 }
 
-                indexOfMovie = everyBasicMovie.indexOf(basicMovieFromCollection);
-                if (indexOfMovie == -1) {
-                    LOGGER.info("Adding collection movie");
-                    everyBasicMovie.add(basicMovieFromCollection);
-                } else {
-                    LOGGER.info("Merging collection movie");
-                    everyBasicMovie.get(indexOfMovie).setTmdbId(tmdbId);
+                synchronized (everyBasicMovie) {
+                    BasicMovie existingMovie = everyBasicMovie.find(basicMovieFromCollection);
+                    if (existingMovie == null) {
+                        LOGGER.info("Adding collection movie");
+                        everyBasicMovie.add(basicMovieFromCollection);
+                    } else {
+                        LOGGER.info("Merging collection movie");
+                        existingMovie.setTmdbId(tmdbId);
+                        everyBasicMovie.reindex(existingMovie);
+                    }
                 }
 
                 if (ownedBasicMovies.contains(basicMovieFromCollection)) {
                     LOGGER.info("Owned movie found: {}", basicMovieFromCollection);
                     searched.add(basicMovieFromCollection);
-                    sendEmptySearchUpdate(ownedBasicMovies.size(), searchedMovieCount);
                 } else if (!searched.contains(basicMovieFromCollection) && year != 0 && year < Year.now().getValue()) {
                     LOGGER.info("Missing movie found: {}", basicMovieFromCollection);
 
                     // Get recommended Movie details from MovieDB API
                     HttpUrl movieDetailUrl = urlGenerator.generateMovieDetailUrl(plexProperties.getMovieDbApiKey(), String.valueOf(basicMovieFromCollection.getTmdbId()), languageCode);
 
-                    Request newReq = new Request.Builder()
-                            .url(movieDetailUrl)
-                            .build();
-
-                    try (Response movieDetailResponse = client.newCall(newReq).execute()) {
-                        String movieDetailJson = "";
-                        ResponseBody movieDetailResponseBody = movieDetailResponse.body();
-                        if (movieDetailResponseBody != null) {
-                            movieDetailJson = movieDetailResponseBody.string();
-                        }
-
-                        LOGGER.info(movieDetailJson);
+                    try {
+                        JsonNode movieDet = tmdbDetailCache.getDetails(basicMovieFromCollection.getTmdbId(), languageCode, () -> fetchMovieDetails(client, movieDetailUrl, basicMovie));
 
-                        if (StringUtils.isEmpty(movieDetailJson)) {
-                            LOGGER.error("Body returned null from TheMovieDB for details on {}", basicMovie.getName());
+                        if (movieDet == null) {
                             return;
                         }
 
-                        JsonNode movieDet = objectMapper.readTree(movieDetailJson);
-
                         // Get the release year from movie release date
                         if (movieDet.has(RELEASE_DATE)) {
                             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd", Locale.ENGLISH);
@@ -617,23 +1035,17 @@ public class GapsSearchService implements GapsSearch {
                         }
 
                         if (recommended.add(recommendedBasicMovie)) {
-                            // Write current list of recommended movies to file.
-                            fileIoService.writeRssFile(machineIdentifier, key, new HashSet<>(recommended));
+                            // The feed is written in batches, not for every movie
+                            rssPublisher.movieAdded(machineIdentifier, key, recommended);
 
                             LOGGER.info("/newMovieFound:{}", recommendedBasicMovie);
-
-                            //Send message over websocket
-                            SearchResults searchResults = new SearchResults(searchedMovieCount.get(), ownedBasicMovies.size(), recommendedBasicMovie);
-                            template.convertAndSend("/newMovieFound", objectMapper.writeValueAsString(searchResults));
+                            searchProgressPublisher.movieFound(machineIdentifier, key, recommendedBasicMovie);
                         }
                     } catch (RuntimeException e) {
                         throw e;
                     } catch (Exception e) {
                         LOGGER.warn(e.getMessage());
                     }
-
-                } else {
-                    sendEmptySearchUpdate(ownedBasicMovies.size(), searchedMovieCount);
                 }
             }
 
@@ -644,11 +1056,4 @@ public class GapsSearchService implements GapsSearch {
         searched.add(basicMovie);
     }
 
-    private void sendEmptySearchUpdate(int totalMovieCount, AtomicInteger searchedMovieCount) throws JsonProcessingException {
-        //Send message over websocket
-        //No new movie, just updated counts
-        SearchResults searchResults = new SearchResults(searchedMovieCount.get(), totalMovieCount, null);
-        template.convertAndSend("/newMovieFound", objectMapper.writeValueAsString(searchResults));
-    }
-
 }
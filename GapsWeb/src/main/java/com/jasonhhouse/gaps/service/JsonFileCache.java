@@ -0,0 +1,266 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.jasonhhouse.gaps.service;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps TMDB responses in memory and in a JSON file in the storage folder, so they survive restarts. Each entry
+ * remembers when it was fetched, subclasses decide what happens once it is older than the TTL and how many entries
+ * are kept.
+ * <p>
+ * Only one fetch per key runs at a time, threads asking for a key that is already being fetched wait for that fetch
+ * instead of calling TMDB again.
+ *
+ * @param <K> key the entries are stored under, must be readable by Jackson as a map key
+ */
+public abstract class JsonFileCache<K> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JsonFileCache.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Path file;
+    private final String name;
+    private final Duration ttl;
+    private final JavaType type;
+    private final Map<K, CachedJson> entries;
+    private final Map<K, CompletableFuture<JsonNode>> fetching;
+    private final AtomicBoolean dirty;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private volatile boolean loaded;
+
+    /**
+     * @param file    where the entries are kept between restarts
+     * @param name    what the entries are, used in logs and for the temporary file
+     * @param keyType type of the keys
+     * @param ttl     how long an entry is fresh
+     * @param entries holds the entries, all access to it is synchronized on it
+     */
+    protected JsonFileCache(@NotNull Path file, @NotNull String name, @NotNull Class<K> keyType, @NotNull Duration ttl, @NotNull Map<K, CachedJson> entries) {
+        this.file = file;
+        this.name = name;
+        this.ttl = ttl;
+        this.type = objectMapper.getTypeFactory().constructMapType(LinkedHashMap.class, keyType, CachedJson.class);
+        this.entries = entries;
+        this.fetching = new ConcurrentHashMap<>();
+        this.dirty = new AtomicBoolean(false);
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Write the entries to disk if anything changed since the last save
+     */
+    public synchronized void save() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+
+        Map<K, CachedJson> copy;
+        synchronized (entries) {
+            copy = new LinkedHashMap<>(entries);
+        }
+
+        LOGGER.info("Saving {} {} to {}", copy.size(), name, file);
+        try {
+            File parent = file.toAbsolutePath().getParent().toFile();
+            if (!parent.exists() && !parent.mkdirs()) {
+                LOGGER.warn("Folder not created: {}", parent);
+            }
+
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), name.replace(' ', '-'), ".tmp");
+            objectMapper.writeValue(temp.toFile(), copy);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty.set(true);
+            LOGGER.error(String.format("Can't write to file %s", file), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        save();
+    }
+
+    int size() {
+        load();
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return the cached entry, fresh or not, null if the key was never fetched
+     */
+    protected @Nullable CachedJson cached(@NotNull K key) {
+        load();
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    protected boolean isStale(@NotNull CachedJson cachedJson) {
+        return System.currentTimeMillis() - cachedJson.getFetchedAt() > ttl.toMillis();
+    }
+
+    protected void hit() {
+        hits.incrementAndGet();
+    }
+
+    protected void miss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Fetches the key through the loader and keeps what it returns. If the key is already being fetched this waits for
+     * that fetch and returns its result, or throws its exception.
+     *
+     * @return what TMDB returned, null if it had nothing usable
+     */
+    protected @Nullable JsonNode fetch(@NotNull K key, @NotNull JsonLoader loader) throws IOException {
+        CompletableFuture<JsonNode> fetch = new CompletableFuture<>();
+        CompletableFuture<JsonNode> running = fetching.putIfAbsent(key, fetch);
+        if (running != null) {
+            LOGGER.debug("Waiting for {} {} already being fetched", name, key);
+            return await(key, running);
+        }
+
+        try {
+            //Another fetch may have finished between the caller missing the cache and getting here
+            CachedJson cachedJson = cached(key);
+            if (cachedJson != null && !isStale(cachedJson)) {
+                fetch.complete(cachedJson.getJson());
+                return cachedJson.getJson();
+            }
+
+            JsonNode json = loader.load();
+            if (json != null) {
+                synchronized (entries) {
+                    entries.put(key, new CachedJson(System.currentTimeMillis(), json));
+                }
+                dirty.set(true);
+            }
+            fetch.complete(json);
+            return json;
+        } catch (IOException | RuntimeException e) {
+            fetch.completeExceptionally(e);
+            throw e;
+        } finally {
+            fetching.remove(key, fetch);
+        }
+    }
+
+    private @Nullable JsonNode await(@NotNull K key, @NotNull CompletableFuture<JsonNode> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(String.format("Interrupted waiting for %s %s", name, key));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(String.format("Could not fetch %s %s", name, key), e.getCause());
+        }
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+
+            if (!Files.exists(file)) {
+                LOGGER.info("{} does not exist, starting with no cached {}", file, name);
+            } else {
+                try {
+                    Map<K, CachedJson> saved = objectMapper.readValue(file.toFile(), type);
+                    synchronized (entries) {
+                        saved.forEach(entries::putIfAbsent);
+                    }
+                    LOGGER.info("Loaded {} {} from {}", saved.size(), name, file);
+                } catch (IOException e) {
+                    LOGGER.error(String.format("Can't read the file %s, starting with no cached %s", file, name), e);
+                }
+            }
+
+            //Set last, threads that see it skip the lock and must find the entries read above
+            loaded = true;
+        }
+    }
+
+    @FunctionalInterface
+    public interface JsonLoader {
+        @Nullable JsonNode load() throws IOException;
+    }
+
+    static final class CachedJson {
+        private final long fetchedAt;
+        private final JsonNode json;
+
+        @JsonCreator
+        CachedJson(@JsonProperty("fetchedAt") long fetchedAt, @JsonProperty("json") @JsonAlias({"collection", "details"}) JsonNode json) {
+            this.fetchedAt = fetchedAt;
+            this.json = json;
+        }
+
+        @JsonProperty
+        public long getFetchedAt() {
+            return fetchedAt;
+        }
+
+        @JsonProperty
+        public JsonNode getJson() {
+            return json;
+        }
+    }
+}
@@ -12,9 +12,14 @@ package com.jasonhhouse.gaps.service;
 import com.jasonhhouse.gaps.Mislabeled;
 import com.jasonhhouse.plex.video.MediaContainer;
 import com.jasonhhouse.plex.video.Video;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 import org.apache.commons.text.similarity.LevenshteinDistance;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -24,36 +29,105 @@ public class MislabeledService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MislabeledService.class);
     private static final LevenshteinDistance levenshteinDistance = new LevenshteinDistance();
+    //Keeps rounding in the percentage from allowing one edit too many, anything near the limit gets the exact check
+    private static final double EPSILON = 1e-9;
 
+    /**
+     * Checks the videos in parallel on the common fork join pool, they don't depend on each other
+     */
     public List<Mislabeled> findMatchPercentage(MediaContainer mediaContainer, Double percentage) {
         LOGGER.info("findMatchPercentage( {} )", percentage);
-        List<Mislabeled> mislabeled = new ArrayList<>();
-        for (Video video : mediaContainer.getVideos()) {
-            String file = video.getMedia().get(0).getParts().get(0).getFile();
-            if (file.contains("(")) {
-                file = file.substring(0, file.lastIndexOf('(') - 1);
-            } else {
-                file = file.substring(0, file.lastIndexOf('.') - 1);
-            }
-            file = file.substring(file.lastIndexOf('/') + 1);
-            String title = video.getTitle();
-            title = title.replace(":", "");
-            Double matchPercentage = similarity(title, file);
-            if (matchPercentage < percentage) {
-                Mislabeled mislabeledItem = new Mislabeled(file, title, matchPercentage);
-                mislabeled.add(mislabeledItem);
-            }
+        return mediaContainer.getVideos()
+                .parallelStream()
+                .map(video -> findMislabeled(video, percentage))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private @Nullable Mislabeled findMislabeled(@NotNull Video video, double percentage) {
+        String file = video.getMedia().get(0).getParts().get(0).getFile();
+        if (file.contains("(")) {
+            file = file.substring(0, file.lastIndexOf('(') - 1);
+        } else {
+            file = file.substring(0, file.lastIndexOf('.') - 1);
         }
-        return mislabeled;
+        file = file.substring(file.lastIndexOf('/') + 1);
+        String title = video.getTitle();
+        title = title.replace(":", "");
+        Double matchPercentage = similarityBelow(title, file, percentage);
+        if (matchPercentage == null) {
+            return null;
+        }
+        return new Mislabeled(file, title, matchPercentage);
     }
 
-    private Double similarity(String s1, String s2) {
+    /**
+     * Most titles match their file, so this first checks with an edit distance capped at what the percentage allows,
+     * which stops as soon as the cap is passed. Only titles that fail get the exact similarity worked out.
+     *
+     * @return the similarity of the two, null if it is not below the percentage
+     */
+    static @Nullable Double similarityBelow(@NotNull String s1, @NotNull String s2, double percentage) {
         String longer = s1.toLowerCase();
         String shorter = s2.toLowerCase();
-        if (s1.length() < s2.length()) { // longer should always have greater length
-            longer = s2;
-            shorter = s1;
+        if (longer.length() < shorter.length()) { // longer should always have greater length
+            String temp = longer;
+            longer = shorter;
+            shorter = temp;
+        }
+
+        int maxDistance = (int) Math.floor(longer.length() * (1 - percentage) - EPSILON);
+        if (maxDistance >= 0 && withinDistance(longer, shorter, maxDistance)) {
+            return null;
+        }
+
+        double similarity = similarity(longer, shorter);
+        return similarity < percentage ? similarity : null;
+    }
+
+    /**
+     * The length difference and the bigrams both shared are lower bounds of the edit distance, either can rule the
+     * pair out before running the capped edit distance
+     */
+    private static boolean withinDistance(@NotNull String longer, @NotNull String shorter, int maxDistance) {
+        if (longer.equals(shorter)) {
+            return true;
+        }
+
+        if (longer.length() - shorter.length() > maxDistance) {
+            return false;
         }
+
+        //Every edit breaks at most two of the bigrams of the longer string
+        if (sharedBigrams(longer, shorter) < longer.length() - 1 - 2 * maxDistance) {
+            return false;
+        }
+
+        return new LevenshteinDistance(maxDistance).apply(longer, shorter) != -1;
+    }
+
+    private static int sharedBigrams(@NotNull String longer, @NotNull String shorter) {
+        Map<Integer, Integer> bigrams = new HashMap<>();
+        for (int i = 0; i < shorter.length() - 1; i++) {
+            bigrams.merge(bigram(shorter, i), 1, Integer::sum);
+        }
+
+        int shared = 0;
+        for (int i = 0; i < longer.length() - 1; i++) {
+            Integer count = bigrams.get(bigram(longer, i));
+            if (count != null && count > 0) {
+                bigrams.put(bigram(longer, i), count - 1);
+                shared++;
+            }
+        }
+        return shared;
+    }
+
+    private static int bigram(@NotNull String value, int index) {
+        return value.charAt(index) << 16 | value.charAt(index + 1);
+    }
+
+    private static double similarity(@NotNull String longer, @NotNull String shorter) {
         int longerLength = longer.length();
         if (longerLength == 0) {
             return 1.0; /* both strings are zero length */
@@ -6,23 +6,23 @@ import org.jetbrains.annotations.NotNull;
 
 public interface Notification {
 
-    @NotNull Boolean plexServerConnectFailed(@NotNull PlexServer plexServer, @NotNull String error);
+    void plexServerConnectFailed(@NotNull PlexServer plexServer, @NotNull String error);
 
-    @NotNull Boolean plexServerConnectSuccessful(@NotNull PlexServer plexServer);
+    void plexServerConnectSuccessful(@NotNull PlexServer plexServer);
 
-    @NotNull Boolean plexLibraryScanFailed(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary, @NotNull String error);
+    void plexLibraryScanFailed(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary, @NotNull String error);
 
-    @NotNull Boolean plexLibraryScanSuccessful(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary);
+    void plexLibraryScanSuccessful(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary);
 
-    @NotNull Boolean tmdbConnectionFailed(@NotNull String error);
+    void tmdbConnectionFailed(@NotNull String error);
 
-    @NotNull Boolean tmdbConnectionSuccessful();
+    void tmdbConnectionSuccessful();
 
-    @NotNull Boolean recommendedMoviesSearchStarted(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary);
+    void recommendedMoviesSearchStarted(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary);
 
-    @NotNull Boolean recommendedMoviesSearchFailed(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary,@NotNull  String error);
+    void recommendedMoviesSearchFailed(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary, @NotNull String error);
 
-    @NotNull Boolean recommendedMoviesSearchFinished(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary);
+    void recommendedMoviesSearchFinished(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary, int newRecommendations);
 
     @NotNull Boolean test();
 
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.jasonhhouse.gaps.GapsConfiguration;
+import com.jasonhhouse.gaps.NotificationType;
+import com.jasonhhouse.gaps.notifications.NotificationAgent;
+import com.jasonhhouse.gaps.properties.NotificationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sends notifications without making the caller wait. Every agent has its own bounded queue and a single worker, so
+ * a slow Slack webhook never holds up Discord or a search. Each try is cut off after the timeout, failed tries are
+ * retried with a doubling backoff, and the outcome of every message is counted under {@value #METRIC_NAME} instead of
+ * being handed back to the caller.
+ */
+@Service
+public class NotificationDispatcher {
+
+    public static final String METRIC_NAME = "gaps.notifications";
+    static final String QUEUE_METRIC_NAME = "gaps.notifications.queue";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private final List<AgentQueue> agentQueues;
+    private final ExecutorService senders;
+    private final MeterRegistry meterRegistry;
+    private final int attempts;
+    private final Duration backoff;
+    private final Duration timeout;
+
+    @Autowired
+    public NotificationDispatcher(List<NotificationAgent<? extends NotificationProperties>> notificationAgents, MeterRegistry meterRegistry, GapsConfiguration gapsConfiguration) {
+        this(notificationAgents, meterRegistry, gapsConfiguration.getNotifications().getQueueSize(), gapsConfiguration.getNotifications().getAttempts(),
+                gapsConfiguration.getNotifications().getBackoff(), gapsConfiguration.getNotifications().getTimeout());
+    }
+
+    NotificationDispatcher(@NotNull List<NotificationAgent<? extends NotificationProperties>> notificationAgents, @NotNull MeterRegistry meterRegistry, int queueSize, int attempts,
+                           @NotNull Duration backoff, @NotNull Duration timeout) {
+        if (attempts < 1) {
+            throw new IllegalArgumentException("Notification attempts must be at least 1");
+        }
+        this.meterRegistry = meterRegistry;
+        this.attempts = attempts;
+        this.backoff = backoff;
+        this.timeout = timeout;
+        this.senders = Executors.newCachedThreadPool(new CustomizableThreadFactory("Gaps-Notification-Send-"));
+
+        this.agentQueues = new ArrayList<>(notificationAgents.size());
+        for (NotificationAgent<? extends NotificationProperties> notificationAgent : notificationAgents) {
+            ThreadPoolExecutor worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+                    new CustomizableThreadFactory("Gaps-Notification-" + notificationAgent.getId() + "-"));
+            Gauge.builder(QUEUE_METRIC_NAME, worker, executor -> executor.getQueue().size())
+                    .description("Notifications waiting to be sent")
+                    .tag("agent", notificationAgent.getName())
+                    .register(meterRegistry);
+            agentQueues.add(new AgentQueue(notificationAgent, worker));
+        }
+    }
+
+    /**
+     * Queues the message for every agent that is enabled and wants this type of notification
+     */
+    public void dispatch(@NotNull NotificationType notificationType, @NotNull String level, @NotNull String title, @NotNull String message) {
+        for (AgentQueue agentQueue : agentQueues) {
+            NotificationAgent<? extends NotificationProperties> notificationAgent = agentQueue.notificationAgent;
+            if (!wants(notificationAgent, notificationType)) {
+                continue;
+            }
+
+            try {
+                agentQueue.worker.execute(() -> deliver(notificationAgent, notificationType, level, title, message));
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("Queue for {} is full, dropping {} notification '{}'", notificationAgent.getName(), notificationType, title);
+                count(notificationAgent, notificationType, "dropped");
+            }
+        }
+    }
+
+    /**
+     * Sends each agent one message made of the events it wants, agents that want none of them get nothing
+     */
+    public void dispatchDigest(@NotNull String level, @NotNull String title, @NotNull List<Event> events) {
+        for (AgentQueue agentQueue : agentQueues) {
+            NotificationAgent<? extends NotificationProperties> notificationAgent = agentQueue.notificationAgent;
+            List<Event> wanted = events.stream().filter(event -> wants(notificationAgent, event.getNotificationType())).collect(Collectors.toList());
+            if (wanted.isEmpty()) {
+                continue;
+            }
+
+            //The agent only checks the type, so any type it wants lets the whole digest through
+            NotificationType notificationType = wanted.get(0).getNotificationType();
+            String message = wanted.stream().map(Event::getMessage).collect(Collectors.joining("\n"));
+            try {
+                agentQueue.worker.execute(() -> deliver(notificationAgent, notificationType, level, title, message));
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("Queue for {} is full, dropping digest '{}'", notificationAgent.getName(), title);
+                count(notificationAgent, notificationType, "dropped");
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        agentQueues.forEach(agentQueue -> agentQueue.worker.shutdown());
+        for (AgentQueue agentQueue : agentQueues) {
+            try {
+                if (!agentQueue.worker.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    LOGGER.warn("Notifications for {} still queued at shutdown", agentQueue.notificationAgent.getName());
+                    agentQueue.worker.shutdownNow();
+                    //Give the interrupted delivery a moment to count itself as failed
+                    agentQueue.worker.awaitTermination(1, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                agentQueue.worker.shutdownNow();
+            }
+        }
+        senders.shutdownNow();
+    }
+
+    private boolean wants(@NotNull NotificationAgent<? extends NotificationProperties> notificationAgent, @NotNull NotificationType notificationType) {
+        try {
+            NotificationProperties notificationProperties = notificationAgent.getNotificationProperties();
+            return notificationProperties.getEnabled() &&
+                    (notificationType == NotificationType.TEST || notificationProperties.getNotificationTypes().contains(notificationType));
+        } catch (RuntimeException e) {
+            LOGGER.error(String.format("Failed to read the properties of %s", notificationAgent.getName()), e);
+            return false;
+        }
+    }
+
+    private void deliver(@NotNull NotificationAgent<? extends NotificationProperties> notificationAgent, @NotNull NotificationType notificationType, @NotNull String level, @NotNull String title,
+                         @NotNull String message) {
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            Future<Boolean> result = senders.submit(() -> notificationAgent.sendMessage(notificationType, level, title, message));
+            try {
+                if (Boolean.TRUE.equals(result.get(timeout.toMillis(), TimeUnit.MILLISECONDS))) {
+                    count(notificationAgent, notificationType, "sent");
+                    return;
+                }
+                LOGGER.warn("{} could not send {} notification, try {} of {}", notificationAgent.getName(), notificationType, attempt, attempts);
+            } catch (TimeoutException e) {
+                result.cancel(true);
+                LOGGER.warn("{} took longer than {} to send {} notification, try {} of {}", notificationAgent.getName(), timeout, notificationType, attempt, attempts);
+            } catch (ExecutionException e) {
+                LOGGER.error(String.format("%s failed to send %s notification, try %d of %d", notificationAgent.getName(), notificationType, attempt, attempts), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.cancel(true);
+                count(notificationAgent, notificationType, "failed");
+                return;
+            }
+
+            if (attempt < attempts && !sleep(backoff.toMillis() << (attempt - 1))) {
+                count(notificationAgent, notificationType, "failed");
+                return;
+            }
+        }
+
+        LOGGER.error("Giving up on {} notification for {} after {} tries", notificationType, notificationAgent.getName(), attempts);
+        count(notificationAgent, notificationType, "failed");
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void count(@NotNull NotificationAgent<? extends NotificationProperties> notificationAgent, @NotNull NotificationType notificationType, @NotNull String outcome) {
+        Counter.builder(METRIC_NAME)
+                .description("Notifications by agent and how their delivery ended")
+                .tag("agent", notificationAgent.getName())
+                .tag("type", notificationType.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * One event of a digest
+     */
+    public static final class Event {
+        private final NotificationType notificationType;
+        private final String level;
+        private final String message;
+
+        public Event(@NotNull NotificationType notificationType, @NotNull String level, @NotNull String message) {
+            this.notificationType = notificationType;
+            this.level = level;
+            this.message = message;
+        }
+
+        public @NotNull NotificationType getNotificationType() {
+            return notificationType;
+        }
+
+        public @NotNull String getLevel() {
+            return level;
+        }
+
+        public @NotNull String getMessage() {
+            return message;
+        }
+    }
+
+    private static final class AgentQueue {
+        private final NotificationAgent<? extends NotificationProperties> notificationAgent;
+        private final ThreadPoolExecutor worker;
+
+        AgentQueue(@NotNull NotificationAgent<? extends NotificationProperties> notificationAgent, @NotNull ThreadPoolExecutor worker) {
+            this.notificationAgent = notificationAgent;
+            this.worker = worker;
+        }
+    }
+}
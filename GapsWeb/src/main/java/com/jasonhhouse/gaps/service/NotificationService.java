@@ -15,12 +15,20 @@ import com.jasonhhouse.gaps.PlexServer;
 import com.jasonhhouse.gaps.notifications.NotificationAgent;
 import com.jasonhhouse.gaps.properties.NotificationProperties;
 import com.jasonhhouse.plex.libs.PlexLibrary;
+import java.util.ArrayList;
 import java.util.List;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+/**
+ * Turns Gaps events into notifications. Events are handed to the {@link NotificationDispatcher} and sent in the
+ * background, only the test messages are sent while the caller waits so the result can be shown.
+ * <p>
+ * Between {@link #startDigest()} and {@link #finishDigest()} the events of the calling thread are held back and sent
+ * as one summary per agent instead, so a scheduled run over many libraries doesn't send dozens of messages.
+ */
 @Service
 public class NotificationService implements Notification {
 
@@ -28,179 +36,92 @@ public class NotificationService implements Notification {
 
     private final List<NotificationAgent<? extends NotificationProperties>> notificationAgents;
 
-    public NotificationService(List<NotificationAgent<? extends NotificationProperties>> notificationAgents) {
+    private final NotificationDispatcher notificationDispatcher;
+
+    private final ThreadLocal<List<NotificationDispatcher.Event>> digest;
+
+    public NotificationService(List<NotificationAgent<? extends NotificationProperties>> notificationAgents, NotificationDispatcher notificationDispatcher) {
         this.notificationAgents = notificationAgents;
+        this.notificationDispatcher = notificationDispatcher;
+        this.digest = new ThreadLocal<>();
     }
 
-    @Override
-    public @NotNull Boolean plexServerConnectFailed(@NotNull PlexServer plexServer, @NotNull String error) {
-        boolean sentAllNotifications = true;
-        for (NotificationAgent<? extends NotificationProperties> notificationAgent : notificationAgents) {
-            if (notificationAgent.isEnabled()) {
-                try {
-                    Boolean result = notificationAgent.sendMessage(NotificationType.PLEX_SERVER_CONNECTION, "ERROR", "Gaps Search", String.format("Connection to Plex Server %s Failed. %s", plexServer.getFriendlyName(), error));
-                    if (!result) {
-                        sentAllNotifications = false;
-                    }
-                } catch (Exception e) {
-                    LOGGER.error(String.format("Failed to send message when plex server connection failed to %s", notificationAgent.getName()), e);
-                    sentAllNotifications = false;
-                }
-            }
+    /**
+     * Holds back the events of this thread until {@link #finishDigest()}
+     */
+    public void startDigest() {
+        LOGGER.info("startDigest()");
+        digest.set(new ArrayList<>());
+    }
+
+    /**
+     * Sends the events held back since {@link #startDigest()} as one message per agent
+     */
+    public void finishDigest() {
+        List<NotificationDispatcher.Event> events = digest.get();
+        digest.remove();
+        if (events == null || events.isEmpty()) {
+            return;
         }
-        return sentAllNotifications;
+
+        LOGGER.info("finishDigest() with {} events", events.size());
+        String level = events.stream().anyMatch(event -> "ERROR".equals(event.getLevel())) ? "ERROR" : "INFO";
+        notificationDispatcher.dispatchDigest(level, "Gaps Search Summary", events);
     }
 
     @Override
-    public @NotNull Boolean plexServerConnectSuccessful(@NotNull PlexServer plexServer) {
-        boolean sentAllNotifications = true;
-        for (NotificationAgent<? extends NotificationProperties> notificationAgent : notificationAgents) {
-            if (notificationAgent.isEnabled()) {
-                try {
-                    Boolean result = notificationAgent.sendMessage(NotificationType.PLEX_SERVER_CONNECTION, "INFO", "Gaps Search", String.format("Connection to Plex Server %s Successful", plexServer.getFriendlyName()));
-                    if (!result) {
-                        sentAllNotifications = false;
-                    }
-                } catch (Exception e) {
-                    LOGGER.error(String.format("Failed to send message when plex server connection successful to %s", notificationAgent.getName()), e);
-                    sentAllNotifications = false;
-                }
-            }
-        }
-        return sentAllNotifications;
+    public void plexServerConnectFailed(@NotNull PlexServer plexServer, @NotNull String error) {
+        send(NotificationType.PLEX_SERVER_CONNECTION, "ERROR", String.format("Connection to Plex Server %s Failed. %s", plexServer.getFriendlyName(), error));
     }
 
     @Override
-    public @NotNull Boolean plexLibraryScanFailed(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary, @NotNull String error) {
-        boolean sentAllNotifications = true;
-        for (NotificationAgent<? extends NotificationProperties> notificationAgent : notificationAgents) {
-            if (notificationAgent.isEnabled()) {
-                try {
-                    Boolean result = notificationAgent.sendMessage(NotificationType.PLEX_METADATA_UPDATE, "INFO", "Gaps Search", String.format("Scanning Plex Server %s in %s Library Failed. %s", plexServer.getFriendlyName(), plexLibrary.getTitle(), error));
-                    if (!result) {
-                        sentAllNotifications = false;
-                    }
-                } catch (Exception e) {
-                    LOGGER.error(String.format("Failed to send message when plex library scan failed to %s", notificationAgent.getName()), e);
-                    sentAllNotifications = false;
-                }
-            }
-        }
-        return sentAllNotifications;
+    public void plexServerConnectSuccessful(@NotNull PlexServer plexServer) {
+        send(NotificationType.PLEX_SERVER_CONNECTION, "INFO", String.format("Connection to Plex Server %s Successful", plexServer.getFriendlyName()));
     }
 
     @Override
-    public @NotNull Boolean plexLibraryScanSuccessful(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary) {
-        boolean sentAllNotifications = true;
-        for (NotificationAgent<? extends NotificationProperties> notificationAgent : notificationAgents) {
-            if (notificationAgent.isEnabled()) {
-                try {
-                    Boolean result = notificationAgent.sendMessage(NotificationType.PLEX_METADATA_UPDATE, "INFO", "Gaps Search", String.format("Scanning Plex Server %s in %s Library Successful", plexServer.getFriendlyName(), plexLibrary.getTitle()));
-                    if (!result) {
-                        sentAllNotifications = false;
-                    }
-                } catch (Exception e) {
-                    LOGGER.error(String.format("Failed to send message when plex library scan succeeded to %s", notificationAgent.getName()), e);
-                    sentAllNotifications = false;
-                }
-            }
-        }
-        return sentAllNotifications;
+    public void plexLibraryScanFailed(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary, @NotNull String error) {
+        send(NotificationType.PLEX_METADATA_UPDATE, "INFO", String.format("Scanning Plex Server %s in %s Library Failed. %s", plexServer.getFriendlyName(), plexLibrary.getTitle(), error));
     }
 
     @Override
-    public @NotNull Boolean tmdbConnectionFailed(@NotNull String error) {
-        boolean sentAllNotifications = true;
-        for (NotificationAgent<? extends NotificationProperties> notificationAgent : notificationAgents) {
-            if (notificationAgent.isEnabled()) {
-                try {
-                    Boolean result = notificationAgent.sendMessage(NotificationType.TMDB_API_CONNECTION, "INFO", "Gaps Search", String.format("TMDB Connection Failed. %s", error));
-                    if (!result) {
-                        sentAllNotifications = false;
-                    }
-                } catch (Exception e) {
-                    LOGGER.error(String.format("Failed to send message when TMDB connection test failed to %s", notificationAgent.getName()), e);
-                    sentAllNotifications = false;
-                }
-            }
-        }
-        return sentAllNotifications;
+    public void plexLibraryScanSuccessful(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary) {
+        send(NotificationType.PLEX_METADATA_UPDATE, "INFO", String.format("Scanning Plex Server %s in %s Library Successful", plexServer.getFriendlyName(), plexLibrary.getTitle()));
     }
 
     @Override
-    public @NotNull Boolean tmdbConnectionSuccessful() {
-        boolean sentAllNotifications = true;
-        for (NotificationAgent<? extends NotificationProperties> notificationAgent : notificationAgents) {
-            if (notificationAgent.isEnabled()) {
-                try {
-                    Boolean result = notificationAgent.sendMessage(NotificationType.TMDB_API_CONNECTION, "INFO", "Gaps Search", "TMDB Connection Successful");
-                    if (!result) {
-                        sentAllNotifications = false;
-                    }
-                } catch (Exception e) {
-                    LOGGER.error(String.format("Failed to send message when TMDB connection test succeeded to %s", notificationAgent.getName()), e);
-                    sentAllNotifications = false;
-                }
-            }
-        }
-        return sentAllNotifications;
+    public void tmdbConnectionFailed(@NotNull String error) {
+        send(NotificationType.TMDB_API_CONNECTION, "INFO", String.format("TMDB Connection Failed. %s", error));
     }
 
     @Override
-    public @NotNull Boolean recommendedMoviesSearchStarted(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary) {
-        boolean sentAllNotifications = true;
-        for (NotificationAgent<? extends NotificationProperties> notificationAgent : notificationAgents) {
-            if (notificationAgent.isEnabled()) {
-                try {
-                    Boolean result = notificationAgent.sendMessage(NotificationType.GAPS_MISSING_COLLECTIONS, "INFO", "Gaps Search", String.format("Scanning Plex Server %s on Library %s Started", plexServer.getFriendlyName(), plexLibrary.getTitle()));
-                    if (!result) {
-                        sentAllNotifications = false;
-                    }
-                } catch (Exception e) {
-                    LOGGER.error(String.format("Failed to send message when recommending movies started to %s", notificationAgent.getName()), e);
-                    sentAllNotifications = false;
-                }
-            }
-        }
-        return sentAllNotifications;
+    public void tmdbConnectionSuccessful() {
+        send(NotificationType.TMDB_API_CONNECTION, "INFO", "TMDB Connection Successful");
     }
 
     @Override
-    public @NotNull Boolean recommendedMoviesSearchFailed(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary, @NotNull String error) {
-        boolean sentAllNotifications = true;
-        for (NotificationAgent<? extends NotificationProperties> notificationAgent : notificationAgents) {
-            if (notificationAgent.isEnabled()) {
-                try {
-                    Boolean result = notificationAgent.sendMessage(NotificationType.GAPS_MISSING_COLLECTIONS, "INFO", "Gaps Search", String.format("Scanning Plex Server %s on Library %s Failed %s", plexServer.getFriendlyName(), plexLibrary.getTitle(), error));
-                    if (!result) {
-                        sentAllNotifications = false;
-                    }
-                } catch (Exception e) {
-                    LOGGER.error(String.format("Failed to send message when recommending movies failed to %s", notificationAgent.getName()), e);
-                    sentAllNotifications = false;
-                }
-            }
-        }
-        return sentAllNotifications;
+    public void recommendedMoviesSearchStarted(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary) {
+        send(NotificationType.GAPS_MISSING_COLLECTIONS, "INFO", String.format("Scanning Plex Server %s on Library %s Started", plexServer.getFriendlyName(), plexLibrary.getTitle()));
     }
 
     @Override
-    public @NotNull Boolean recommendedMoviesSearchFinished(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary) {
-        boolean sentAllNotifications = true;
-        for (NotificationAgent<? extends NotificationProperties> notificationAgent : notificationAgents) {
-            if (notificationAgent.isEnabled()) {
-                try {
-                    Boolean result = notificationAgent.sendMessage(NotificationType.GAPS_MISSING_COLLECTIONS, "INFO", "Gaps Search", String.format("Scanning Plex Server %s on Library %s Successfully Finished", plexServer.getFriendlyName(), plexLibrary.getTitle()));
-                    if (!result) {
-                        sentAllNotifications = false;
-                    }
-                } catch (Exception e) {
-                    LOGGER.error(String.format("Failed to send message when recommending movies finished to %s", notificationAgent.getName()), e);
-                    sentAllNotifications = false;
-                }
-            }
+    public void recommendedMoviesSearchFailed(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary, @NotNull String error) {
+        send(NotificationType.GAPS_MISSING_COLLECTIONS, "INFO", String.format("Scanning Plex Server %s on Library %s Failed %s", plexServer.getFriendlyName(), plexLibrary.getTitle(), error));
+    }
+
+    @Override
+    public void recommendedMoviesSearchFinished(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary, int newRecommendations) {
+        send(NotificationType.GAPS_MISSING_COLLECTIONS, "INFO", String.format("Scanning Plex Server %s on Library %s Successfully Finished. %d new movies recommended", plexServer.getFriendlyName(), plexLibrary.getTitle(),
+                newRecommendations));
+    }
+
+    private void send(@NotNull NotificationType notificationType, @NotNull String level, @NotNull String message) {
+        List<NotificationDispatcher.Event> events = digest.get();
+        if (events != null) {
+            events.add(new NotificationDispatcher.Event(notificationType, level, message));
+        } else {
+            notificationDispatcher.dispatch(notificationType, level, "Gaps Search", message);
         }
-        return sentAllNotifications;
     }
 
     @Override
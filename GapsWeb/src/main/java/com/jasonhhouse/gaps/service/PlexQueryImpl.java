@@ -11,6 +11,8 @@
 package com.jasonhhouse.gaps.service;
 
 import com.jasonhhouse.gaps.BasicMovie;
+import com.jasonhhouse.gaps.GapsConfiguration;
+import com.jasonhhouse.gaps.HttpClientConfiguration;
 import com.jasonhhouse.gaps.Pair;
 import com.jasonhhouse.gaps.Payload;
 import com.jasonhhouse.gaps.PlexServer;
@@ -18,6 +20,8 @@ import com.jasonhhouse.gaps.UrlGenerator;
 import com.jasonhhouse.gaps.properties.PlexProperties;
 import com.jasonhhouse.plex.libs.MediaContainer;
 import com.jasonhhouse.plex.libs.PlexLibrary;
+import com.jasonhhouse.plex.xml.PlexXmlParser;
+import com.jasonhhouse.plex.xml.VideoStreamReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -25,18 +29,16 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -44,11 +46,13 @@ import okhttp3.Response;
 import okhttp3.ResponseBody;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 import org.w3c.dom.Document;
@@ -66,10 +70,23 @@ public class PlexQueryImpl implements PlexQuery {
     private static final Logger LOGGER = LoggerFactory.getLogger(PlexQueryImpl.class);
 
     private final UrlGenerator urlGenerator;
+    private final SearchProgressPublisher searchProgressPublisher;
+    private final GapsConfiguration gapsConfiguration;
+    private final OkHttpClient client;
+    private final OkHttpClient quickClient;
 
     @Autowired
-    public PlexQueryImpl(@Qualifier("real") UrlGenerator urlGenerator) {
+    public PlexQueryImpl(@Qualifier("real") UrlGenerator urlGenerator, SearchProgressPublisher searchProgressPublisher, GapsConfiguration gapsConfiguration, @Qualifier(HttpClientConfiguration.PLEX) OkHttpClient client) {
         this.urlGenerator = urlGenerator;
+        this.searchProgressPublisher = searchProgressPublisher;
+        this.gapsConfiguration = gapsConfiguration;
+        this.client = client;
+        //Checking a server or its libraries should fail fast, shares the connection pool with the client
+        this.quickClient = client.newBuilder()
+                .connectTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
+                .readTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
+                .writeTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
+                .build();
     }
 
     @Override
@@ -85,18 +102,12 @@ public class PlexQueryImpl implements PlexQuery {
                 .addQueryParameter("X-Plex-Token", plexServer.getPlexToken())
                 .build();
 
-        OkHttpClient client = new OkHttpClient.Builder()
-                .connectTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .readTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .writeTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .build();
-
         try {
             Request request = new Request.Builder()
                     .url(url)
                     .build();
 
-            try (Response response = client.newCall(request).execute()) {
+            try (Response response = quickClient.newCall(request).execute()) {
                 String body = response.body() != null ? response.body().string() : null;
 
                 if (StringUtils.isBlank(body)) {
@@ -106,9 +117,7 @@ public class PlexQueryImpl implements PlexQuery {
                 }
 
                 InputStream inputStream = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
-                JAXBContext jaxbContext = JAXBContext.newInstance(MediaContainer.class);
-                Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-                MediaContainer mediaContainer = (MediaContainer) jaxbUnmarshaller.unmarshal(inputStream);
+                MediaContainer mediaContainer = PlexXmlParser.unmarshal(inputStream, MediaContainer.class);
 
                 //Remove everything except movie folders
                 List<PlexLibrary> plexLibraries = mediaContainer.getPlexLibraries().stream().filter(plexLibrary -> plexLibrary.getType().equalsIgnoreCase("movie")).collect(Collectors.toList());
@@ -145,20 +154,12 @@ public class PlexQueryImpl implements PlexQuery {
                 .addQueryParameter("X-Plex-Token", plexServer.getPlexToken())
                 .build();
 
-        //ToDo
-        //Need to control time out here, using gaps object
-        OkHttpClient client = new OkHttpClient.Builder()
-                .connectTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .readTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .writeTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .build();
-
         try {
             Request request = new Request.Builder()
                     .url(url)
                     .build();
 
-            try (Response response = client.newCall(request).execute()) {
+            try (Response response = quickClient.newCall(request).execute()) {
                 NodeList dtmNodeList = parseXml(response, url, "/MediaContainer");
                 Node node = dtmNodeList.item(0);
 
@@ -197,7 +198,7 @@ public class PlexQueryImpl implements PlexQuery {
                 String reason = String.format("Error connecting to Plex to get library list: %s", url);
                 LOGGER.error(reason, e);
                 return Payload.PLEX_CONNECTION_FAILED.setExtras("url:" + url);
-            } catch (ParserConfigurationException | XPathExpressionException | SAXException e) {
+            } catch (XPathExpressionException | SAXException e) {
                 String reason = String.format("Error parsing XML from Plex: %s", url);
                 LOGGER.error(reason, e);
                 return Payload.PARSING_PLEX_FAILED.setExtras("url:" + url);
@@ -213,12 +214,6 @@ public class PlexQueryImpl implements PlexQuery {
     public @NotNull com.jasonhhouse.plex.video.MediaContainer findAllPlexVideos(@NotNull String url) {
         LOGGER.info("findAllPlexVideos()");
 
-        OkHttpClient client = new OkHttpClient.Builder()
-                .connectTimeout(180, TimeUnit.SECONDS)
-                .writeTimeout(180, TimeUnit.SECONDS)
-                .readTimeout(180, TimeUnit.SECONDS)
-                .build();
-
         if (StringUtils.isEmpty(url)) {
             LOGGER.info("No URL added to findAllPlexVideos().");
             return new com.jasonhhouse.plex.video.MediaContainer();
@@ -242,9 +237,7 @@ public class PlexQueryImpl implements PlexQuery {
                 }
 
                 InputStream inputStream = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
-                JAXBContext jaxbContext = JAXBContext.newInstance(com.jasonhhouse.plex.video.MediaContainer.class);
-                Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-                mediaContainer = (com.jasonhhouse.plex.video.MediaContainer) jaxbUnmarshaller.unmarshal(inputStream);
+                mediaContainer = PlexXmlParser.unmarshal(inputStream, com.jasonhhouse.plex.video.MediaContainer.class);
 
             } catch (IOException e) {
                 String reason = String.format("Error connecting to Plex to get Movie list: %s", url);
@@ -273,79 +266,116 @@ public class PlexQueryImpl implements PlexQuery {
             return;
         }
 
-        OkHttpClient client = new OkHttpClient.Builder()
-                .connectTimeout(180, TimeUnit.SECONDS)
-                .writeTimeout(180, TimeUnit.SECONDS)
-                .readTimeout(180, TimeUnit.SECONDS)
-                .build();
-
+        List<BasicMovie> moviesToResolve = new ArrayList<>();
         for (BasicMovie basicMovie : basicMovies) {
             if (basicMovie.getRatingKey() == -1) {
                 LOGGER.info("No key found for the movie {}", basicMovie.getName());
-                continue;
+            } else if (basicMovie.getTmdbId() != -1) {
+                LOGGER.debug("TMDB id already known for the movie {}", basicMovie.getName());
+            } else {
+                moviesToResolve.add(basicMovie);
             }
+        }
 
-            HttpUrl httpUrl = urlGenerator.generatePlexMetadataUrl(plexServer, plexLibrary, basicMovie.getRatingKey());
+        int metadataThreads = gapsConfiguration.getPlex().getMetadataThreads();
+        LOGGER.info("Finding ids for {} of {} movies with {} threads", moviesToResolve.size(), basicMovies.size(), metadataThreads);
 
-            Request request = new Request.Builder()
-                    .url(httpUrl)
-                    .build();
+        AtomicInteger resolvedMovieCount = new AtomicInteger(basicMovies.size() - moviesToResolve.size());
+        searchProgressPublisher.startMetadata(plexServer.getMachineIdentifier(), plexLibrary.getKey(), basicMovies.size(), resolvedMovieCount);
+        ExecutorService executorService = Executors.newFixedThreadPool(metadataThreads, new CustomizableThreadFactory("Gaps-Plex-"));
+        try {
+            List<Future<Void>> futures = new ArrayList<>(moviesToResolve.size());
+            for (BasicMovie basicMovie : moviesToResolve) {
+                futures.add(executorService.submit(() -> {
+                    findMovieIds(basicMovie, plexServer, plexLibrary);
+                    resolvedMovieCount.incrementAndGet();
+                    return null;
+                }));
+            }
 
-            try (Response response = client.newCall(request).execute()) {
-                String body = response.body() != null ? response.body().string() : null;
+            for (Future<Void> future : futures) {
+                waitForMetadata(future);
+            }
+        } finally {
+            executorService.shutdownNow();
+            searchProgressPublisher.finishMetadata(plexServer.getMachineIdentifier(), plexLibrary.getKey());
+        }
+    }
 
-                if (StringUtils.isBlank(body)) {
-                    LOGGER.error("Body returned empty from Plex for the movie {}", basicMovie.getName());
-                    continue;
-                }
+    private void findMovieIds(@NotNull BasicMovie basicMovie, @NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary) {
+        HttpUrl httpUrl = urlGenerator.generatePlexMetadataUrl(plexServer, plexLibrary, basicMovie.getRatingKey());
 
-                InputStream fileIS = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
-                DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-                DocumentBuilder builder = builderFactory.newDocumentBuilder();
-                Document xmlDocument = builder.parse(fileIS);
-                XPath xPath = XPathFactory.newInstance().newXPath();
-                String expression = "/MediaContainer/Video/Guid";
-                NodeList nodeList = (NodeList) xPath.compile(expression).evaluate(xmlDocument, XPathConstants.NODESET);
+        Request request = new Request.Builder()
+                .url(httpUrl)
+                .build();
 
-                if (nodeList.getLength() == 0) {
-                    LOGGER.warn("No guids found in url: {}", httpUrl);
-                    continue;
-                }
+        try (Response response = client.newCall(request).execute()) {
+            String body = response.body() != null ? response.body().string() : null;
 
-                for (int i = 0; i < nodeList.getLength(); i++) {
-                    Node node = nodeList.item(i);
+            if (StringUtils.isBlank(body)) {
+                LOGGER.error("Body returned empty from Plex for the movie {}", basicMovie.getName());
+                return;
+            }
 
-                    Node nodeTitle = node.getAttributes().getNamedItem("id");
+            InputStream fileIS = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+            Document xmlDocument = PlexXmlParser.parse(fileIS);
+            NodeList nodeList = PlexXmlParser.evaluate(xmlDocument, "/MediaContainer/Video/Guid");
 
-                    if (nodeTitle == null) {
-                        LOGGER.error("Missing id from Guid element in Plex");
-                        continue;
-                    }
+            if (nodeList.getLength() == 0) {
+                LOGGER.warn("No guids found in url: {}", httpUrl);
+                return;
+            }
 
-                    //Files can't have : so need to remove to find matches correctly
-                    String urlId = nodeTitle.getNodeValue();
-                    String id = urlId.replaceAll("[A-Za-z]+://", "");
-                    if (urlId.contains("imdb")) {
-                        basicMovie.setImdbId(id);
-                    } else if (urlId.contains("tmdb")) {
-                        basicMovie.setTmdbId(Integer.parseInt(id));
-                    } else {
-                        LOGGER.warn("Can't find ID to match {}", urlId);
-                    }
+            for (int i = 0; i < nodeList.getLength(); i++) {
+                Node node = nodeList.item(i);
+
+                Node nodeTitle = node.getAttributes().getNamedItem("id");
+
+                if (nodeTitle == null) {
+                    LOGGER.error("Missing id from Guid element in Plex");
+                    continue;
                 }
 
-            } catch (IOException e) {
-                String reason = String.format("Error connecting to Plex to get Movie list: %s", httpUrl);
-                LOGGER.error(reason, e);
-                throw new ResponseStatusException(HttpStatus.NOT_FOUND, reason, e);
-            } catch (ParserConfigurationException | XPathExpressionException | SAXException e) {
-                String reason = String.format("Error parsing XML from Plex: %s", httpUrl);
-                LOGGER.error(reason, e);
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, reason, e);
+                //Files can't have : so need to remove to find matches correctly
+                String urlId = nodeTitle.getNodeValue();
+                String id = urlId.replaceAll("[A-Za-z]+://", "");
+                if (urlId.contains("imdb")) {
+                    basicMovie.setImdbId(id);
+                } else if (urlId.contains("tmdb")) {
+                    basicMovie.setTmdbId(Integer.parseInt(id));
+                } else {
+                    LOGGER.warn("Can't find ID to match {}", urlId);
+                }
             }
 
+        } catch (IOException e) {
+            String reason = String.format("Error connecting to Plex to get Movie list: %s", httpUrl);
+            LOGGER.error(reason, e);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, reason, e);
+        } catch (XPathExpressionException | SAXException e) {
+            String reason = String.format("Error parsing XML from Plex: %s", httpUrl);
+            LOGGER.error(reason, e);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, reason, e);
         }
+    }
 
+    private void waitForMetadata(@NotNull Future<Void> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            String reason = "Interrupted while finding movie ids in Plex";
+            LOGGER.error(reason, e);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, reason, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ResponseStatusException) {
+                throw (ResponseStatusException) cause;
+            }
+            String reason = "Error finding movie ids in Plex";
+            LOGGER.error(reason, cause);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, reason, cause);
+        }
     }
 
     @Override
@@ -377,101 +407,43 @@ public class PlexQueryImpl implements PlexQuery {
 
         List<BasicMovie> ownedBasicMovies = new ArrayList<>();
 
-        OkHttpClient client = new OkHttpClient.Builder()
-                .connectTimeout(180, TimeUnit.SECONDS)
-                .writeTimeout(180, TimeUnit.SECONDS)
-                .readTimeout(180, TimeUnit.SECONDS)
-                .build();
-
         try {
             Request request = new Request.Builder()
                     .url(url)
                     .build();
 
             try (Response response = client.newCall(request).execute()) {
-                String body = response.body() != null ? response.body().string() : null;
+                ResponseBody responseBody = response.body();
 
-                if (StringUtils.isBlank(body)) {
+                if (responseBody == null || responseBody.contentLength() == 0) {
                     String reason = "Body returned empty from Plex";
                     LOGGER.error(reason);
                     throw new ResponseStatusException(HttpStatus.BAD_REQUEST, reason);
                 }
 
-                InputStream fileIS = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
-                DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-                DocumentBuilder builder = builderFactory.newDocumentBuilder();
-                Document xmlDocument = builder.parse(fileIS);
-                XPath xPath = XPathFactory.newInstance().newXPath();
-                String expression = "/MediaContainer/Video";
-                NodeList nodeList = (NodeList) xPath.compile(expression).evaluate(xmlDocument, XPathConstants.NODESET);
+                int videoCount = VideoStreamReader.forEachVideo(responseBody.byteStream(), attributes -> {
+                    BasicMovie basicMovie = toOwnedMovie(previousMovies, attributes);
+                    if (basicMovie != null) {
+                        ownedBasicMovies.add(basicMovie);
+                    }
+                });
 
-                if (nodeList.getLength() == 0) {
+                if (videoCount == 0) {
                     LOGGER.warn("No movies found in url: {}", url);
                     return ownedBasicMovies;
                 }
 
-                for (int i = 0; i < nodeList.getLength(); i++) {
-                    Node node = nodeList.item(i);
-
-                    Node nodeTitle = node.getAttributes().getNamedItem("title");
-
-                    if (nodeTitle == null) {
-                        String reason = "Missing title from Video element in Plex";
-                        LOGGER.error(reason);
-                        throw new NullPointerException(reason);
-                    }
-
-                    //Files can't have : so need to remove to find matches correctly
-                    String title = nodeTitle.getNodeValue().replaceAll(":", "");
-                    if (node.getAttributes().getNamedItem("year") == null) {
-                        LOGGER.warn("Year not found for {}", title);
-                        continue;
-                    }
-                    int year = Integer.parseInt(node.getAttributes().getNamedItem("year").getNodeValue());
-
-                    Integer tmdbId = -1;
-                    String imdbId = "";
-                    if (node.getAttributes().getNamedItem("guid") != null) {
-                        String guid = node.getAttributes().getNamedItem("guid").getNodeValue();
-                        if (guid.contains("com.plexapp.agents.themoviedb")) {
-                            guid = guid.replaceAll("[A-Za-z\\.]+://", "");
-                            tmdbId = Integer.valueOf(guid.substring(0, guid.indexOf('?')));
-                        } else if (guid.contains("com.plexapp.agents.imdb")) {
-                            guid = guid.replaceAll("[A-Za-z\\.]+://", "");
-                            imdbId = guid.substring(0, guid.indexOf('?'));
-                        }
-                    }
-
-                    String thumbnail = "";
-                    if (node.getAttributes().getNamedItem("thumb") != null) {
-                        thumbnail = node.getAttributes().getNamedItem("thumb").getNodeValue();
-                    }
-
-                    String summary = "";
-                    if (node.getAttributes().getNamedItem("summary") != null) {
-                        summary = node.getAttributes().getNamedItem("summary").getNodeValue();
-                    }
-
-                    String key = "";
-                    if (node.getAttributes().getNamedItem("key") != null) {
-                        key = node.getAttributes().getNamedItem("key").getNodeValue();
-                    }
-
-                    Integer ratingKey = -1;
-                    if (node.getAttributes().getNamedItem("ratingKey") != null) {
-                        ratingKey = Integer.valueOf(node.getAttributes().getNamedItem("ratingKey").getNodeValue());
-                    }
-
-                    BasicMovie basicMovie = getOrCreateOwnedMovie(previousMovies, title, year, tmdbId, imdbId, thumbnail, summary, ratingKey, key);
-                    ownedBasicMovies.add(basicMovie);
-                }
                 LOGGER.info("{} movies found in plex", ownedBasicMovies.size());
 
             } catch (IOException e) {
-                String reason = String.format("Error connecting to Plex to get Movie list: %s", url);
-                LOGGER.error(reason, e);
-                throw new ResponseStatusException(HttpStatus.NOT_FOUND, reason, e);
-            } catch (ParserConfigurationException | XPathExpressionException | SAXException e) {
+                throw connectionError(url, e);
+            } catch (XMLStreamException e) {
+                //Plex dropping the connection part way through the body comes out of the parser wrapped
+                IOException ioException = findIOException(e);
+                if (ioException != null) {
+                    throw connectionError(url, ioException);
+                }
+
                 String reason = String.format("Error parsing XML from Plex: %s", url);
                 LOGGER.error(reason, e);
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, reason, e);
@@ -485,7 +457,86 @@ public class PlexQueryImpl implements PlexQuery {
         return ownedBasicMovies;
     }
 
-    private BasicMovie getOrCreateOwnedMovie(Map<Pair<String, Integer>, BasicMovie> previousMovies, @NotNull String title, int year, @NotNull Integer tmdbId, @NotNull String imdbId, @NotNull String thumbnail, @NotNull String summary, @NotNull Integer ratingKey, @NotNull String key) {
+    private @NotNull ResponseStatusException connectionError(@NotNull HttpUrl url, @NotNull IOException e) {
+        String reason = String.format("Error connecting to Plex to get Movie list: %s", url);
+        LOGGER.error(reason, e);
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, reason, e);
+    }
+
+    private static @Nullable IOException findIOException(@NotNull XMLStreamException e) {
+        Throwable cause = e.getNestedException() != null ? e.getNestedException() : e.getCause();
+        while (cause != null) {
+            if (cause instanceof IOException) {
+                return (IOException) cause;
+            }
+            if (cause instanceof XMLStreamException && ((XMLStreamException) cause).getNestedException() != null) {
+                cause = ((XMLStreamException) cause).getNestedException();
+            } else {
+                cause = cause.getCause();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Turns the attributes of a Plex Video element into an owned movie
+     *
+     * @return the movie, null if Plex has no year for it
+     */
+    private @Nullable BasicMovie toOwnedMovie(@NotNull Map<Pair<String, Integer>, BasicMovie> previousMovies, @NotNull Map<String, String> attributes) {
+        String nodeTitle = attributes.get("title");
+
+        if (nodeTitle == null) {
+            String reason = "Missing title from Video element in Plex";
+            LOGGER.error(reason);
+            throw new NullPointerException(reason);
+        }
+
+        //Files can't have : so need to remove to find matches correctly
+        String title = nodeTitle.replaceAll(":", "");
+        if (attributes.get("year") == null) {
+            LOGGER.warn("Year not found for {}", title);
+            return null;
+        }
+        int year = Integer.parseInt(attributes.get("year"));
+
+        Integer tmdbId = -1;
+        String imdbId = "";
+        if (attributes.get("guid") != null) {
+            String guid = attributes.get("guid");
+            if (guid.contains("com.plexapp.agents.themoviedb")) {
+                guid = guid.replaceAll("[A-Za-z\\.]+://", "");
+                tmdbId = Integer.valueOf(guid.substring(0, guid.indexOf('?')));
+            } else if (guid.contains("com.plexapp.agents.imdb")) {
+                guid = guid.replaceAll("[A-Za-z\\.]+://", "");
+                imdbId = guid.substring(0, guid.indexOf('?'));
+            }
+        }
+
+        String thumbnail = attributes.getOrDefault("thumb", "");
+        String summary = attributes.getOrDefault("summary", "");
+        String key = attributes.getOrDefault("key", "");
+
+        Integer ratingKey = -1;
+        if (attributes.get("ratingKey") != null) {
+            ratingKey = Integer.valueOf(attributes.get("ratingKey"));
+        }
+
+        Long addedAt = -1L;
+        if (attributes.get("addedAt") != null) {
+            addedAt = Long.valueOf(attributes.get("addedAt"));
+        }
+
+        Long updatedAt = addedAt;
+        if (attributes.get("updatedAt") != null) {
+            updatedAt = Long.valueOf(attributes.get("updatedAt"));
+        }
+
+        return getOrCreateOwnedMovie(previousMovies, title, year, tmdbId, imdbId, thumbnail, summary, ratingKey, key, addedAt, updatedAt);
+    }
+
+    private BasicMovie getOrCreateOwnedMovie(Map<Pair<String, Integer>, BasicMovie> previousMovies, @NotNull String title, int year, @NotNull Integer tmdbId, @NotNull String imdbId, @NotNull String thumbnail, @NotNull String summary, @NotNull Integer ratingKey, @NotNull String key,
+                                             @NotNull Long addedAt, @NotNull Long updatedAt) {
         Pair<String, Integer> moviePair = new Pair<>(title, year);
         if (previousMovies.containsKey(moviePair)) {
             BasicMovie previousBasicMovie = previousMovies.get(moviePair);
@@ -494,6 +545,8 @@ public class PlexQueryImpl implements PlexQuery {
                     .setOverview(summary)
                     .setKey(key)
                     .setRatingKey(ratingKey)
+                    .setAddedAt(addedAt)
+                    .setUpdatedAt(updatedAt)
                     .setImdbId(previousBasicMovie.getImdbId())
                     .setCollectionTitle(previousBasicMovie.getCollectionTitle())
                     .setLanguage(previousBasicMovie.getLanguage())
@@ -506,13 +559,15 @@ public class PlexQueryImpl implements PlexQuery {
                     .setOverview(summary)
                     .setKey(key)
                     .setRatingKey(ratingKey)
+                    .setAddedAt(addedAt)
+                    .setUpdatedAt(updatedAt)
                     .setTmdbId(tmdbId)
                     .setImdbId(imdbId)
                     .build();
         }
     }
 
-    private <T> T parseXml(@NotNull Response response, @NotNull HttpUrl url, @NotNull String expression) throws XPathExpressionException, IOException, SAXException, ParserConfigurationException {
+    private @NotNull NodeList parseXml(@NotNull Response response, @NotNull HttpUrl url, @NotNull String expression) throws XPathExpressionException, IOException, SAXException {
         ResponseBody responseBody = response.body();
         if (responseBody == null) {
             LOGGER.warn("Empty response body");
@@ -527,11 +582,8 @@ public class PlexQueryImpl implements PlexQuery {
         }
 
         InputStream fileIS = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
-        DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = builderFactory.newDocumentBuilder();
-        Document xmlDocument = builder.parse(fileIS);
-        XPath xPath = XPathFactory.newInstance().newXPath();
-        return (T) xPath.compile(expression).evaluate(xmlDocument, XPathConstants.NODESET);
+        Document xmlDocument = PlexXmlParser.parse(fileIS);
+        return PlexXmlParser.evaluate(xmlDocument, expression);
     }
 
 }
@@ -12,11 +12,11 @@ package com.jasonhhouse.gaps.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jasonhhouse.gaps.HttpClientConfiguration;
 import com.jasonhhouse.radarr_v3.Movie;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -25,6 +25,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
@@ -33,10 +35,15 @@ import org.springframework.web.server.ResponseStatusException;
 public class RadarrV3Service {
     private static final Logger LOGGER = LoggerFactory.getLogger(RadarrV3Service.class);
 
-    private static final long TIMEOUT = 2500;
-
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
+    private final OkHttpClient client;
+
+    @Autowired
+    public RadarrV3Service(@Qualifier(HttpClientConfiguration.RADARR) OkHttpClient client) {
+        this.client = client;
+    }
+
     public @NotNull List<Movie> getMovies(@NotNull String address, @NotNull Integer port, @NotNull String apiKey) {
 
         HttpUrl url = new HttpUrl.Builder()
@@ -49,12 +56,6 @@ public class RadarrV3Service {
                 .addQueryParameter("apikey", apiKey)
                 .build();
 
-        OkHttpClient client = new OkHttpClient.Builder()
-                .connectTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .readTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .writeTimeout(TIMEOUT, TimeUnit.MILLISECONDS)
-                .build();
-
         try {
             Request request = new Request.Builder()
                     .url(url)
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.jasonhhouse.gaps.GapsConfiguration;
+import com.jasonhhouse.gaps.MovieIndex;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Writes the RSS feed of a library while a search is still running without rewriting it for every new recommendation.
+ * New recommendations are collected and the feed is written once the flush interval has passed or enough of them
+ * have piled up, whichever comes first. {@link #finish(String, Integer, MovieIndex)} always writes the final feed, so
+ * it has to be called when the search ends, even if it failed or was cancelled.
+ */
+@Service
+public class RssPublisher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RssPublisher.class);
+
+    private final FileIoService fileIoService;
+    private final Duration flushInterval;
+    private final int flushEvery;
+    private final Map<String, PendingFeed> feeds;
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public RssPublisher(FileIoService fileIoService, GapsConfiguration gapsConfiguration) {
+        this(fileIoService, gapsConfiguration.getRss().getFlushInterval(), gapsConfiguration.getRss().getFlushEvery());
+    }
+
+    RssPublisher(@NotNull FileIoService fileIoService, @NotNull Duration flushInterval, int flushEvery) {
+        if (flushEvery < 1) {
+            throw new IllegalArgumentException("RSS flushEvery must be at least 1");
+        }
+        this.fileIoService = fileIoService;
+        this.flushInterval = flushInterval;
+        this.flushEvery = flushEvery;
+        this.feeds = new ConcurrentHashMap<>();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("Gaps-Rss-"));
+    }
+
+    /**
+     * Called after a movie was added to the recommendations of the library
+     *
+     * @param recommended every recommendation so far, read when the feed is written
+     */
+    public void movieAdded(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull MovieIndex recommended) {
+        PendingFeed feed = feeds.computeIfAbsent(feedKey(machineIdentifier, key), ignored -> new PendingFeed(machineIdentifier, key));
+
+        boolean flushNow;
+        synchronized (feed) {
+            feed.recommended = recommended;
+            feed.additions++;
+            flushNow = feed.additions >= flushEvery;
+            if (!flushNow && feed.scheduled == null) {
+                feed.scheduled = scheduler.schedule(() -> flush(feed, false), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (flushNow) {
+            flush(feed, false);
+        }
+    }
+
+    /**
+     * Writes the final feed of the library and forgets about it
+     */
+    public void finish(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull MovieIndex recommended) {
+        PendingFeed feed = feeds.computeIfAbsent(feedKey(machineIdentifier, key), ignored -> new PendingFeed(machineIdentifier, key));
+        synchronized (feed) {
+            feed.recommended = recommended;
+        }
+        flush(feed, true);
+        feeds.remove(feedKey(machineIdentifier, key), feed);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        feeds.values().forEach(feed -> flush(feed, false));
+    }
+
+    private void flush(@NotNull PendingFeed feed, boolean always) {
+        //Writes of one library go out one at a time, and each takes the newest recommendations so the last write wins
+        synchronized (feed.writeLock) {
+            MovieIndex recommended;
+            int additions;
+            synchronized (feed) {
+                if (feed.scheduled != null) {
+                    feed.scheduled.cancel(false);
+                    feed.scheduled = null;
+                }
+                additions = feed.additions;
+                feed.additions = 0;
+                recommended = feed.recommended;
+            }
+
+            if (recommended == null || (additions == 0 && !always)) {
+                return;
+            }
+
+            LOGGER.debug("Writing RSS feed for {} {} with {} new movies", feed.machineIdentifier, feed.key, additions);
+            fileIoService.writeRssFile(feed.machineIdentifier, feed.key, new LinkedHashSet<>(recommended.values()));
+        }
+    }
+
+    private static @NotNull String feedKey(@NotNull String machineIdentifier, @NotNull Integer key) {
+        return machineIdentifier + ":" + key;
+    }
+
+    private static final class PendingFeed {
+        private final String machineIdentifier;
+        private final Integer key;
+        private final Object writeLock;
+        private MovieIndex recommended;
+        private int additions;
+        private ScheduledFuture<?> scheduled;
+
+        PendingFeed(@NotNull String machineIdentifier, @NotNull Integer key) {
+            this.machineIdentifier = machineIdentifier;
+            this.key = key;
+            this.writeLock = new Object();
+        }
+    }
+}
@@ -11,6 +11,7 @@
 package com.jasonhhouse.gaps.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jasonhhouse.gaps.GapsConfiguration;
 import com.jasonhhouse.gaps.GapsUrlGenerator;
 import com.jasonhhouse.gaps.Schedule;
 import com.jasonhhouse.gaps.SchedulePayload;
@@ -42,10 +43,11 @@ public class SchedulerService {
     private ScheduledFuture<?> scheduledFuture;
 
     @Autowired
-    public SchedulerService(FileIoService fileIoService, TmdbService tmdbService, GapsSearch gapsSearch, @Qualifier("Gaps") TaskScheduler scheduler, PlexQuery plexQuery, GapsUrlGenerator gapsUrlGenerator, NotificationService notificationService) {
+    public SchedulerService(FileIoService fileIoService, TmdbService tmdbService, GapsSearch gapsSearch, @Qualifier("Gaps") TaskScheduler scheduler, PlexQuery plexQuery, GapsUrlGenerator gapsUrlGenerator, NotificationService notificationService,
+                            GapsConfiguration gapsConfiguration) {
         this.fileIoService = fileIoService;
         this.scheduler = scheduler;
-        this.searchGapsTask = new SearchGapsTask(gapsSearch, tmdbService, fileIoService, plexQuery, gapsUrlGenerator, notificationService);
+        this.searchGapsTask = new SearchGapsTask(gapsSearch, tmdbService, fileIoService, plexQuery, gapsUrlGenerator, notificationService, gapsConfiguration.getNotifications().getDigest());
     }
 
     public void setSchedule(SchedulePayload schedulePayload) {
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.jasonhhouse.gaps.SearchJob;
+import com.jasonhhouse.gaps.SearchMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps track of the running searches, at most one per Plex library. Searches of different libraries run side by side
+ * and share the TMDB rate limiter and caches. The last few finished jobs are kept so their outcome can still be
+ * looked up by id.
+ */
+@Service
+public class SearchJobRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchJobRegistry.class);
+    private static final int FINISHED_JOBS = 25;
+
+    private final Map<String, SearchJob> jobs;
+    private final Map<String, SearchJob> finishedJobs;
+
+    public SearchJobRegistry() {
+        this.jobs = new ConcurrentHashMap<>();
+        this.finishedJobs = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SearchJob> eldest) {
+                return size() > FINISHED_JOBS;
+            }
+        };
+    }
+
+    /**
+     * @return the new job, or null if the library is already being searched
+     */
+    public @Nullable SearchJob start(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull SearchMode searchMode) {
+        SearchJob searchJob = new SearchJob(machineIdentifier, key, searchMode);
+        SearchJob running = jobs.putIfAbsent(libraryKey(machineIdentifier, key), searchJob);
+        if (running != null) {
+            LOGGER.warn("Library {} {} is already being searched by {}", machineIdentifier, key, running.getId());
+            return null;
+        }
+        return searchJob;
+    }
+
+    /**
+     * Forgets about a job once its search ended
+     */
+    public void finish(@NotNull SearchJob searchJob) {
+        synchronized (finishedJobs) {
+            finishedJobs.put(searchJob.getId(), searchJob);
+        }
+        jobs.remove(libraryKey(searchJob.getMachineIdentifier(), searchJob.getKey()), searchJob);
+    }
+
+    public @Nullable SearchJob find(@NotNull String machineIdentifier, @NotNull Integer key) {
+        return jobs.get(libraryKey(machineIdentifier, key));
+    }
+
+    /**
+     * @return running or recently finished job
+     */
+    public @Nullable SearchJob findById(@NotNull String id) {
+        for (SearchJob searchJob : jobs.values()) {
+            if (searchJob.getId().equals(id)) {
+                return searchJob;
+            }
+        }
+        synchronized (finishedJobs) {
+            return finishedJobs.get(id);
+        }
+    }
+
+    /**
+     * @return true if the library was being searched
+     */
+    public boolean cancel(@NotNull String machineIdentifier, @NotNull Integer key) {
+        SearchJob searchJob = find(machineIdentifier, key);
+        if (searchJob == null) {
+            return false;
+        }
+        searchJob.cancel();
+        return true;
+    }
+
+    public void cancelAll() {
+        jobs.values().forEach(SearchJob::cancel);
+    }
+
+    /**
+     * @return running jobs, oldest first
+     */
+    public @NotNull List<SearchJob> getJobs() {
+        List<SearchJob> searchJobs = new ArrayList<>(jobs.values());
+        searchJobs.sort(Comparator.comparing(SearchJob::getStarted));
+        return searchJobs;
+    }
+
+    public boolean isSearching() {
+        return !jobs.isEmpty();
+    }
+
+    private static @NotNull String libraryKey(@NotNull String machineIdentifier, @NotNull Integer key) {
+        return machineIdentifier + ":" + key;
+    }
+}
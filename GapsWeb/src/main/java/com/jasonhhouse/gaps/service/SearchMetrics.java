@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.jasonhhouse.gaps.SearchMode;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.HttpUrl;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Search pipeline metrics, published through the actuator. TMDB calls are timed per endpoint, the TMDB caches report
+ * their hits and misses, and every search records how long it took per library so a slow overnight run can be traced
+ * back to where the time went.
+ */
+@Service
+public class SearchMetrics {
+
+    static final String TMDB_REQUESTS = "gaps.tmdb.requests";
+    static final String TMDB_RATE_LIMIT_WAIT = "gaps.tmdb.rate.limit.wait";
+    static final String TMDB_CACHE = "gaps.tmdb.cache";
+    static final String SEARCH_QUEUE = "gaps.search.queue";
+    static final String SEARCH_PROCESSED = "gaps.search.movies.processed";
+    static final String SEARCH_DURATION = "gaps.search.duration";
+
+    private final MeterRegistry meterRegistry;
+    private final Timer rateLimitWait;
+    private final AtomicInteger queuedMovies;
+    private final AtomicInteger processedMovies;
+    private final AtomicInteger runningSearches;
+
+    @Autowired
+    public SearchMetrics(MeterRegistry meterRegistry, TmdbDetailCache tmdbDetailCache, TmdbCollectionCache tmdbCollectionCache) {
+        this.meterRegistry = meterRegistry;
+        this.queuedMovies = new AtomicInteger();
+        this.processedMovies = new AtomicInteger();
+        this.runningSearches = new AtomicInteger();
+
+        rateLimitWait = Timer.builder(TMDB_RATE_LIMIT_WAIT)
+                .description("Time search workers waited on the TMDB rate limiter")
+                .register(meterRegistry);
+
+        Gauge.builder(SEARCH_QUEUE, queuedMovies, AtomicInteger::get)
+                .description("Movies still waiting to be searched")
+                .register(meterRegistry);
+        Gauge.builder(SEARCH_PROCESSED, processedMovies, AtomicInteger::get)
+                .description("Movies searched so far by the running searches")
+                .register(meterRegistry);
+
+        FunctionCounter.builder(TMDB_CACHE, tmdbDetailCache, TmdbDetailCache::getHits)
+                .tags("cache", "details", "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder(TMDB_CACHE, tmdbDetailCache, TmdbDetailCache::getMisses)
+                .tags("cache", "details", "result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder(TMDB_CACHE, tmdbCollectionCache, TmdbCollectionCache::getHits)
+                .tags("cache", "collections", "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder(TMDB_CACHE, tmdbCollectionCache, TmdbCollectionCache::getMisses)
+                .tags("cache", "collections", "result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param url    TMDB url that was called, the endpoint type is taken from the path, like search, find, movie or
+     *               collection
+     * @param status HTTP status TMDB answered with
+     */
+    public void recordTmdbRequest(@NotNull HttpUrl url, int status, long nanos) {
+        Timer.builder(TMDB_REQUESTS)
+                .description("Calls to TMDB by endpoint type")
+                .tags("endpoint", tmdbEndpoint(url), "status", String.valueOf(status))
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRateLimitWait(long nanos) {
+        rateLimitWait.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Searches of different libraries may run at the same time, the queue holds the movies of all of them
+     */
+    public void searchStarted(int moviesToSearch) {
+        if (runningSearches.getAndIncrement() == 0) {
+            processedMovies.set(0);
+        }
+        queuedMovies.addAndGet(moviesToSearch);
+    }
+
+    public void movieSearched() {
+        queuedMovies.decrementAndGet();
+        processedMovies.incrementAndGet();
+    }
+
+    /**
+     * Called when a search ends however it ended, with the movies it never got to
+     */
+    public void searchStopped(int moviesNotSearched) {
+        queuedMovies.addAndGet(-moviesNotSearched);
+        runningSearches.decrementAndGet();
+    }
+
+    public void searchFinished(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull SearchMode searchMode, long nanos) {
+        Timer.builder(SEARCH_DURATION)
+                .description("Time taken to search a Plex library")
+                .tags("machineIdentifier", machineIdentifier, "library", String.valueOf(key), "mode", searchMode.name())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    static @NotNull String tmdbEndpoint(@NotNull HttpUrl url) {
+        //TMDB urls look like /3/{endpoint}/...
+        return url.pathSize() > 1 ? url.pathSegments().get(1) : "unknown";
+    }
+}
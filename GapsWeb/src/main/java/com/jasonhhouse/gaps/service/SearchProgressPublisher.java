@@ -0,0 +1,242 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jasonhhouse.gaps.BasicMovie;
+import com.jasonhhouse.gaps.GapsConfiguration;
+import com.jasonhhouse.gaps.SearchJob;
+import com.jasonhhouse.gaps.SearchProgress;
+import com.jasonhhouse.gaps.SearchResults;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sends the progress of running searches over the websocket, each library on its own topic like
+ * /searchProgress/abc123/1. The searched movie count is sampled on a fixed interval and only sent when something
+ * changed, together with the TMDB ids recommended since the last message. The full movie goes out on
+ * {@link #NEW_MOVIE_FOUND_URL} once, when it is recommended. A client that connects while a search
+ * is running asks for {@link #snapshot(String, Integer)} to catch up.
+ * <p>
+ * Looking up the movie ids in Plex before a search is sampled the same way on {@link #PLEX_METADATA_PROGRESS_URL}.
+ */
+@Service
+public class SearchProgressPublisher {
+
+    public static final String SEARCH_PROGRESS_URL = "/searchProgress";
+    public static final String NEW_MOVIE_FOUND_URL = "/newMovieFound";
+    public static final String PLEX_METADATA_PROGRESS_URL = "/plexMetadataProgress";
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchProgressPublisher.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final SimpMessagingTemplate template;
+    private final Duration progressInterval;
+    private final Map<String, Progress> progresses;
+    private final Map<String, Progress> metadataProgresses;
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public SearchProgressPublisher(SimpMessagingTemplate template, GapsConfiguration gapsConfiguration) {
+        this(template, gapsConfiguration.getSearch().getProgressInterval());
+    }
+
+    SearchProgressPublisher(@NotNull SimpMessagingTemplate template, @NotNull Duration progressInterval) {
+        if (progressInterval.isNegative() || progressInterval.isZero()) {
+            throw new IllegalArgumentException("Search progressInterval must be positive");
+        }
+        this.template = template;
+        this.progressInterval = progressInterval;
+        this.progresses = new ConcurrentHashMap<>();
+        this.metadataProgresses = new ConcurrentHashMap<>();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("Gaps-Progress-"));
+    }
+
+    /**
+     * Starts sending the progress of a library, replacing what was kept from its last search
+     *
+     * @param searchedMovieCount read on every tick, the search keeps counting in it
+     */
+    public void start(@NotNull String machineIdentifier, @NotNull Integer key, int totalMovieCount, @NotNull AtomicInteger searchedMovieCount) {
+        schedule(progresses, new Progress(SEARCH_PROGRESS_URL, machineIdentifier, key, totalMovieCount, searchedMovieCount));
+    }
+
+    /**
+     * Starts sending how many movies of a library have their ids looked up in Plex
+     *
+     * @param resolvedMovieCount read on every tick, the lookup keeps counting in it
+     */
+    public void startMetadata(@NotNull String machineIdentifier, @NotNull Integer key, int totalMovieCount, @NotNull AtomicInteger resolvedMovieCount) {
+        schedule(metadataProgresses, new Progress(PLEX_METADATA_PROGRESS_URL, machineIdentifier, key, totalMovieCount, resolvedMovieCount));
+    }
+
+    /**
+     * Sends the last count of the lookup, nothing is kept afterwards
+     */
+    public void finishMetadata(@NotNull String machineIdentifier, @NotNull Integer key) {
+        Progress progress = metadataProgresses.remove(progressKey(machineIdentifier, key));
+        if (progress == null) {
+            return;
+        }
+
+        progress.stop();
+        tick(progress, true);
+    }
+
+    /**
+     * Called once for each new recommendation. The movie is sent in full right away, its id is part of the next delta.
+     */
+    public void movieFound(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull BasicMovie basicMovie) {
+        Progress progress = progresses.get(progressKey(machineIdentifier, key));
+        if (progress == null) {
+            LOGGER.warn("No search running for {} {}", machineIdentifier, key);
+            return;
+        }
+
+        synchronized (progress) {
+            progress.movies.add(basicMovie);
+            progress.newTmdbIds.add(basicMovie.getTmdbId());
+        }
+
+        send(SearchJob.topic(NEW_MOVIE_FOUND_URL, machineIdentifier, key), new SearchResults(progress.searchedMovieCount.get(), progress.totalMovieCount, basicMovie));
+    }
+
+    /**
+     * Sends the last delta of the library. The snapshot is kept until the next search starts.
+     */
+    public void finish(@NotNull String machineIdentifier, @NotNull Integer key) {
+        Progress progress = progresses.get(progressKey(machineIdentifier, key));
+        if (progress == null) {
+            return;
+        }
+
+        progress.stop();
+        tick(progress, true);
+    }
+
+    /**
+     * @return counts and every movie recommended by the running or last search of the library, null if none was run
+     */
+    public @Nullable SearchProgress snapshot(@NotNull String machineIdentifier, @NotNull Integer key) {
+        Progress progress = progresses.get(progressKey(machineIdentifier, key));
+        if (progress == null) {
+            return null;
+        }
+
+        synchronized (progress) {
+            List<Integer> tmdbIds = progress.movies.stream().map(BasicMovie::getTmdbId).collect(Collectors.toList());
+            return new SearchProgress(progress.machineIdentifier, progress.key, progress.searching, progress.searchedMovieCount.get(), progress.totalMovieCount, tmdbIds,
+                    new ArrayList<>(progress.movies));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void schedule(@NotNull Map<String, Progress> running, @NotNull Progress progress) {
+        Progress earlier = running.put(progressKey(progress.machineIdentifier, progress.key), progress);
+        if (earlier != null) {
+            earlier.stop();
+        }
+
+        long interval = progressInterval.toMillis();
+        synchronized (progress) {
+            progress.scheduled = scheduler.scheduleAtFixedRate(() -> tick(progress, false), 0, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void tick(@NotNull Progress progress, boolean last) {
+        SearchProgress delta;
+        synchronized (progress) {
+            if (!progress.searching) {
+                return;
+            }
+
+            int searchedMovieCount = progress.searchedMovieCount.get();
+            if (!last && searchedMovieCount == progress.lastSearchedMovieCount && progress.newTmdbIds.isEmpty()) {
+                return;
+            }
+
+            if (last) {
+                progress.searching = false;
+            }
+            progress.lastSearchedMovieCount = searchedMovieCount;
+            delta = new SearchProgress(progress.machineIdentifier, progress.key, progress.searching, searchedMovieCount, progress.totalMovieCount, new ArrayList<>(progress.newTmdbIds), null);
+            progress.newTmdbIds.clear();
+        }
+
+        send(SearchJob.topic(progress.url, progress.machineIdentifier, progress.key), delta);
+    }
+
+    private void send(@NotNull String destination, @NotNull Object payload) {
+        try {
+            template.convertAndSend(destination, objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            LOGGER.error(String.format("Failed to send %s", payload), e);
+        }
+    }
+
+    private static @NotNull String progressKey(@NotNull String machineIdentifier, @NotNull Integer key) {
+        return machineIdentifier + ":" + key;
+    }
+
+    private static final class Progress {
+        private final String url;
+        private final String machineIdentifier;
+        private final Integer key;
+        private final int totalMovieCount;
+        private final AtomicInteger searchedMovieCount;
+        private final List<BasicMovie> movies;
+        private final List<Integer> newTmdbIds;
+        private boolean searching;
+        private int lastSearchedMovieCount;
+        private ScheduledFuture<?> scheduled;
+
+        Progress(@NotNull String url, @NotNull String machineIdentifier, @NotNull Integer key, int totalMovieCount, @NotNull AtomicInteger searchedMovieCount) {
+            this.url = url;
+            this.machineIdentifier = machineIdentifier;
+            this.key = key;
+            this.totalMovieCount = totalMovieCount;
+            this.searchedMovieCount = searchedMovieCount;
+            this.movies = new ArrayList<>();
+            this.newTmdbIds = new ArrayList<>();
+            this.searching = true;
+            this.lastSearchedMovieCount = -1;
+        }
+
+        synchronized void stop() {
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+        }
+    }
+}
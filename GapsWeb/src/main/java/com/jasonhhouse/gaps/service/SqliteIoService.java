@@ -0,0 +1,308 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jasonhhouse.gaps.BasicMovie;
+import com.jasonhhouse.gaps.GapsConfiguration;
+import com.jasonhhouse.gaps.Payload;
+import com.jasonhhouse.gaps.PlexServer;
+import com.jasonhhouse.gaps.Rss;
+import com.jasonhhouse.plex.libs.PlexLibrary;
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps owned movies, recommended movies and the RSS feed of each library in SQLite tables instead of one JSON file
+ * per library. Movies are stored as JSON next to indexed TMDB and IMDB id columns, so lookups like "is this movie
+ * owned" don't need to read the whole library.
+ * <p>
+ * Turned on with info.app.storage=sqlite. Everything else, like the properties and movie ids, is still kept in files.
+ * On start the existing JSON files of every configured library are copied into the tables, libraries added later are
+ * copied the first time they are used.
+ */
+@Service
+@ConditionalOnProperty(prefix = "info.app", name = "storage", havingValue = "sqlite")
+public class SqliteIoService extends FileIoService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqliteIoService.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String OWNED_MOVIE = "owned_movie";
+    private static final String RECOMMENDED_MOVIE = "recommended_movie";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<String> migrated;
+    private final Set<Path> databaseFiles;
+
+    @Autowired
+    public SqliteIoService(GapsConfiguration gapsConfiguration, JdbcTemplate jdbcTemplate) {
+        super(gapsConfiguration);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        this.migrated = ConcurrentHashMap.newKeySet();
+        this.databaseFiles = ConcurrentHashMap.newKeySet();
+    }
+
+    @PostConstruct
+    public void init() {
+        LOGGER.info("init()");
+        createTables();
+        findDatabaseFiles();
+
+        for (PlexServer plexServer : readProperties().getPlexServers()) {
+            for (PlexLibrary plexLibrary : plexServer.getPlexLibraries()) {
+                migrate(plexServer.getMachineIdentifier(), plexLibrary.getKey());
+            }
+        }
+    }
+
+    @Override
+    public @NotNull List<BasicMovie> readRecommendedMovies(@NotNull String machineIdentifier, @NotNull Integer key) {
+        LOGGER.info("readRecommendedMovies( {}, {} )", machineIdentifier, key);
+        return readMovies(RECOMMENDED_MOVIE, machineIdentifier, key);
+    }
+
+    @Override
+    public @NotNull List<BasicMovie> readOwnedMovies(@NotNull String machineIdentifier, @NotNull Integer key) {
+        LOGGER.info("readOwnedMovies( {}, {} )", machineIdentifier, key);
+        return readMovies(OWNED_MOVIE, machineIdentifier, key);
+    }
+
+    @Override
+    public void writeRecommendedToFile(@NotNull Set<BasicMovie> recommended, @NotNull String machineIdentifier, @NotNull Integer key) {
+        LOGGER.info("writeRecommendedToFile( {}, {} )", machineIdentifier, key);
+        writeMovies(RECOMMENDED_MOVIE, recommended, machineIdentifier, key);
+    }
+
+    @Override
+    public void writeOwnedMoviesToFile(@NotNull List<BasicMovie> ownedBasicMovies, @NotNull String machineIdentifier, @NotNull Integer key) {
+        LOGGER.info("writeOwnedMoviesToFile( {}, {} )", machineIdentifier, key);
+        writeMovies(OWNED_MOVIE, ownedBasicMovies, machineIdentifier, key);
+    }
+
+    @Override
+    public boolean hasOwnedMovies(@NotNull String machineIdentifier, @NotNull Integer key) {
+        migrate(machineIdentifier, key);
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + OWNED_MOVIE + " WHERE machine_identifier = ? AND library_key = ?",
+                Integer.class, machineIdentifier, key);
+        return count != null && count > 0;
+    }
+
+    @Override
+    public boolean isOwned(@NotNull String machineIdentifier, @NotNull Integer key, int tmdbId) {
+        migrate(machineIdentifier, key);
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + OWNED_MOVIE + " WHERE machine_identifier = ? AND library_key = ? AND tmdb_id = ?",
+                Integer.class, machineIdentifier, key, tmdbId);
+        return count != null && count > 0;
+    }
+
+    @Override
+    public @NotNull Boolean doesRssFileExist(@NotNull String machineIdentifier, @NotNull Integer key) {
+        migrate(machineIdentifier, key);
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM rss_feed WHERE machine_identifier = ? AND library_key = ?", Integer.class, machineIdentifier, key);
+        return count != null && count > 0;
+    }
+
+    @Override
+    public @NotNull String getRssFile(String machineIdentifier, @NotNull Integer key) {
+        migrate(machineIdentifier, key);
+        List<String> feeds = jdbcTemplate.queryForList("SELECT feed FROM rss_feed WHERE machine_identifier = ? AND library_key = ?", String.class, machineIdentifier, key);
+        return feeds.isEmpty() ? "" : feeds.get(0);
+    }
+
+    @Override
+    public void writeRssFile(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull Set<BasicMovie> recommended) {
+        LOGGER.info("writeRssFile( {}, {} )", machineIdentifier, key);
+        try {
+            List<Rss> rssList = recommended.stream().map(movie -> new Rss(movie.getImdbId(), movie.getYear(), movie.getTmdbId(), movie.getName(), movie.getPosterUrl())).collect(Collectors.toList());
+            writeFeed(machineIdentifier, key, objectMapper.writeValueAsString(rssList));
+        } catch (JsonProcessingException e) {
+            LOGGER.error(String.format("Can't write RSS feed for %s %d", machineIdentifier, key), e);
+        }
+    }
+
+    @Override
+    public @NotNull Payload nuke() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM " + OWNED_MOVIE);
+                jdbcTemplate.update("DELETE FROM " + RECOMMENDED_MOVIE);
+                jdbcTemplate.update("DELETE FROM rss_feed");
+                jdbcTemplate.update("DELETE FROM json_migration");
+            });
+            migrated.clear();
+        } catch (DataAccessException e) {
+            LOGGER.error(Payload.NUKE_UNSUCCESSFUL.getReason(), e);
+            return Payload.NUKE_UNSUCCESSFUL;
+        }
+
+        return super.nuke();
+    }
+
+    /**
+     * The database usually lives in the storage folder. Its connections stay open, so the file and its journals have
+     * to survive nuke, the tables were already emptied.
+     */
+    @Override
+    protected boolean keepOnNuke(@NotNull File file) {
+        return databaseFiles.contains(file.getAbsoluteFile().toPath().normalize());
+    }
+
+    /**
+     * Copies the JSON files of a library into the tables the first time the library is seen
+     */
+    synchronized void migrate(@NotNull String machineIdentifier, @NotNull Integer key) {
+        if (migrated.contains(machineIdentifier + ":" + key)) {
+            return;
+        }
+
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM json_migration WHERE machine_identifier = ? AND library_key = ?", Integer.class, machineIdentifier, key);
+        if (count != null && count > 0) {
+            migrated.add(machineIdentifier + ":" + key);
+            return;
+        }
+
+        LOGGER.info("Moving JSON files for {} {} into SQLite", machineIdentifier, key);
+        List<BasicMovie> owned = super.readOwnedMovies(machineIdentifier, key);
+        List<BasicMovie> recommended = super.readRecommendedMovies(machineIdentifier, key);
+        String feed = super.doesRssFileExist(machineIdentifier, key) ? super.getRssFile(machineIdentifier, key) : "";
+
+        transactionTemplate.executeWithoutResult(status -> {
+            replaceMovies(OWNED_MOVIE, owned, machineIdentifier, key);
+            replaceMovies(RECOMMENDED_MOVIE, recommended, machineIdentifier, key);
+            if (!feed.isEmpty()) {
+                replaceFeed(machineIdentifier, key, feed);
+            }
+            jdbcTemplate.update("INSERT INTO json_migration (machine_identifier, library_key) VALUES (?, ?)", machineIdentifier, key);
+        });
+        migrated.add(machineIdentifier + ":" + key);
+        LOGGER.info("Moved {} owned and {} recommended movies for {} {}", owned.size(), recommended.size(), machineIdentifier, key);
+    }
+
+    private void findDatabaseFiles() {
+        for (Map<String, Object> database : jdbcTemplate.queryForList("PRAGMA database_list")) {
+            Object file = database.get("file");
+            if (file == null || file.toString().isEmpty()) {
+                continue;
+            }
+
+            Path path = Paths.get(file.toString()).toAbsolutePath().normalize();
+            for (String suffix : new String[]{"", "-journal", "-wal", "-shm"}) {
+                databaseFiles.add(path.resolveSibling(path.getFileName() + suffix));
+            }
+        }
+        LOGGER.info("Database files {}", databaseFiles);
+    }
+
+    private void createTables() {
+        for (String table : new String[]{OWNED_MOVIE, RECOMMENDED_MOVIE}) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                    "machine_identifier TEXT NOT NULL, " +
+                    "library_key INTEGER NOT NULL, " +
+                    "position INTEGER NOT NULL, " +
+                    "tmdb_id INTEGER NOT NULL, " +
+                    "imdb_id TEXT, " +
+                    "name TEXT NOT NULL, " +
+                    "year INTEGER NOT NULL, " +
+                    "movie TEXT NOT NULL, " +
+                    "PRIMARY KEY (machine_identifier, library_key, position))");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table + "_tmdb_id ON " + table + " (machine_identifier, library_key, tmdb_id)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table + "_imdb_id ON " + table + " (machine_identifier, library_key, imdb_id)");
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS rss_feed (" +
+                "machine_identifier TEXT NOT NULL, " +
+                "library_key INTEGER NOT NULL, " +
+                "feed TEXT NOT NULL, " +
+                "PRIMARY KEY (machine_identifier, library_key))");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS json_migration (" +
+                "machine_identifier TEXT NOT NULL, " +
+                "library_key INTEGER NOT NULL, " +
+                "PRIMARY KEY (machine_identifier, library_key))");
+    }
+
+    private @NotNull List<BasicMovie> readMovies(@NotNull String table, @NotNull String machineIdentifier, @NotNull Integer key) {
+        migrate(machineIdentifier, key);
+        List<String> movies = jdbcTemplate.queryForList("SELECT movie FROM " + table + " WHERE machine_identifier = ? AND library_key = ? ORDER BY position",
+                String.class, machineIdentifier, key);
+
+        List<BasicMovie> basicMovies = new ArrayList<>(movies.size());
+        for (String movie : movies) {
+            try {
+                basicMovies.add(objectMapper.readValue(movie, BasicMovie.class));
+            } catch (JsonProcessingException e) {
+                LOGGER.error(String.format("Can't read movie from %s: %s", table, movie), e);
+            }
+        }
+        return basicMovies;
+    }
+
+    private void writeMovies(@NotNull String table, @NotNull Collection<BasicMovie> basicMovies, @NotNull String machineIdentifier, @NotNull Integer key) {
+        migrate(machineIdentifier, key);
+        try {
+            transactionTemplate.executeWithoutResult(status -> replaceMovies(table, basicMovies, machineIdentifier, key));
+        } catch (DataAccessException e) {
+            LOGGER.error(String.format("Can't write movies to %s for %s %d", table, machineIdentifier, key), e);
+        }
+    }
+
+    private void writeFeed(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull String feed) {
+        migrate(machineIdentifier, key);
+        try {
+            transactionTemplate.executeWithoutResult(status -> replaceFeed(machineIdentifier, key, feed));
+        } catch (DataAccessException e) {
+            LOGGER.error(String.format("Can't write RSS feed for %s %d", machineIdentifier, key), e);
+        }
+    }
+
+    private void replaceMovies(@NotNull String table, @NotNull Collection<BasicMovie> basicMovies, @NotNull String machineIdentifier, @NotNull Integer key) {
+        jdbcTemplate.update("DELETE FROM " + table + " WHERE machine_identifier = ? AND library_key = ?", machineIdentifier, key);
+
+        List<Object[]> rows = new ArrayList<>(basicMovies.size());
+        int position = 0;
+        for (BasicMovie basicMovie : basicMovies) {
+            try {
+                rows.add(new Object[]{machineIdentifier, key, position++, basicMovie.getTmdbId(), basicMovie.getImdbId(), basicMovie.getName(), basicMovie.getYear(),
+                        objectMapper.writeValueAsString(basicMovie)});
+            } catch (JsonProcessingException e) {
+                LOGGER.error(String.format("Can't write movie %s", basicMovie), e);
+            }
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO " + table + " (machine_identifier, library_key, position, tmdb_id, imdb_id, name, year, movie) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    private void replaceFeed(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull String feed) {
+        jdbcTemplate.update("DELETE FROM rss_feed WHERE machine_identifier = ? AND library_key = ?", machineIdentifier, key);
+        jdbcTemplate.update("INSERT INTO rss_feed (machine_identifier, library_key, feed) VALUES (?, ?, ?)", machineIdentifier, key, feed);
+    }
+}
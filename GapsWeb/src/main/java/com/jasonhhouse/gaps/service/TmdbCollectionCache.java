@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.jasonhhouse.gaps.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jasonhhouse.gaps.GapsConfiguration;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the TMDB collections Gaps has already seen, keyed by collection id, in the storage folder. Collections barely
+ * change, so a search only goes to TMDB for collections it has never seen. Entries older than the configured TTL are
+ * still handed out, but a background refresh is started so the next search gets the new data.
+ */
+@Service
+public class TmdbCollectionCache extends JsonFileCache<Integer> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TmdbCollectionCache.class);
+
+    private final Set<Integer> refreshing;
+    private final ExecutorService refresher;
+
+    @Autowired
+    public TmdbCollectionCache(GapsConfiguration gapsConfiguration) {
+        this(Paths.get(gapsConfiguration.getStorageFolder(), gapsConfiguration.getProperties().getCollections()), gapsConfiguration.getTmdb().getCollectionTtl());
+    }
+
+    TmdbCollectionCache(@NotNull Path file, @NotNull Duration ttl) {
+        super(file, "collections", Integer.class, ttl, new ConcurrentHashMap<>());
+        this.refreshing = ConcurrentHashMap.newKeySet();
+        this.refresher = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("Gaps-Collections-"));
+    }
+
+    /**
+     * Find the collection, going to TMDB through the loader only if it has never been fetched
+     *
+     * @param collectionId TMDB collection id
+     * @param loader       fetches the collection from TMDB, returns null if TMDB has nothing usable
+     * @return the collection as TMDB returned it, null if it could not be found
+     */
+    public @Nullable JsonNode getCollection(int collectionId, @NotNull JsonLoader loader) throws IOException {
+        CachedJson cachedCollection = cached(collectionId);
+        if (cachedCollection == null) {
+            LOGGER.debug("Collection {} not cached", collectionId);
+            miss();
+            return fetch(collectionId, loader);
+        }
+
+        hit();
+
+        if (isStale(cachedCollection) && refreshing.add(collectionId)) {
+            LOGGER.debug("Collection {} is stale, refreshing in the background", collectionId);
+            refresher.execute(() -> refresh(collectionId, loader));
+        }
+
+        return cachedCollection.getJson();
+    }
+
+    /**
+     * @return true if the collection was never fetched or is older than the TTL
+     */
+    public boolean needsRefresh(int collectionId) {
+        CachedJson cachedCollection = cached(collectionId);
+        return cachedCollection == null || isStale(cachedCollection);
+    }
+
+    @Override
+    public void shutdown() {
+        refresher.shutdownNow();
+        super.shutdown();
+    }
+
+    private void refresh(int collectionId, @NotNull JsonLoader loader) {
+        try {
+            fetch(collectionId, loader);
+            save();
+        } catch (IOException e) {
+            LOGGER.warn(String.format("Could not refresh collection %d, keeping the old copy", collectionId), e);
+        } finally {
+            refreshing.remove(collectionId);
+        }
+    }
+}
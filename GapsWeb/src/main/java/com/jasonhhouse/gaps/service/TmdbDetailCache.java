@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.jasonhhouse.gaps.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jasonhhouse.gaps.GapsConfiguration;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps TMDB movie details by TMDB id and language, so owned movies and recommended movies don't need a /movie/{id}
+ * call on every search. The cache holds at most the configured number of movies, dropping the least recently used
+ * ones first, and is kept in the storage folder between restarts. Details older than the configured TTL are fetched
+ * again, the old copy is only used if TMDB can't be reached.
+ */
+@Service
+public class TmdbDetailCache extends JsonFileCache<String> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TmdbDetailCache.class);
+
+    @Autowired
+    public TmdbDetailCache(GapsConfiguration gapsConfiguration) {
+        this(Paths.get(gapsConfiguration.getStorageFolder(), gapsConfiguration.getProperties().getMovieDetails()), gapsConfiguration.getTmdb().getDetailCacheSize(),
+                gapsConfiguration.getTmdb().getDetailTtl());
+    }
+
+    TmdbDetailCache(@NotNull Path file, int maxSize, @NotNull Duration ttl) {
+        super(file, "movie details", String.class, ttl, leastRecentlyUsed(maxSize));
+    }
+
+    /**
+     * Find the movie details, going to TMDB through the loader only if they aren't cached or are older than the TTL
+     *
+     * @param tmdbId       TMDB movie id
+     * @param languageCode language the details were asked for
+     * @param loader       fetches the details from TMDB, returns null if TMDB has nothing usable
+     * @return the movie details, null if they could not be found
+     */
+    public @Nullable JsonNode getDetails(int tmdbId, @NotNull String languageCode, @NotNull JsonLoader loader) throws IOException {
+        String cacheKey = tmdbId + ":" + languageCode;
+        CachedJson cachedDetails = cached(cacheKey);
+
+        if (cachedDetails != null && !isStale(cachedDetails)) {
+            hit();
+            return cachedDetails.getJson();
+        }
+
+        miss();
+        JsonNode movieDetails;
+        try {
+            movieDetails = fetch(cacheKey, loader);
+        } catch (IOException e) {
+            if (cachedDetails == null) {
+                throw e;
+            }
+            LOGGER.warn(String.format("Could not refresh details of %s, keeping the old copy", cacheKey), e);
+            return cachedDetails.getJson();
+        }
+
+        if (movieDetails == null && cachedDetails != null) {
+            return cachedDetails.getJson();
+        }
+        return movieDetails;
+    }
+
+    private static @NotNull Map<String, CachedJson> leastRecentlyUsed(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("TMDB detail cache size must be at least 1");
+        }
+
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedJson> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+}
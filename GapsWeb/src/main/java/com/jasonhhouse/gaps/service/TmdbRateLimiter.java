@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.jasonhhouse.gaps.GapsConfiguration;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Token bucket shared by everything that calls TMDB. The bucket holds up to burst tokens and refills at
+ * requestsPerSecond, so the total request rate never goes over the TMDB budget no matter how many threads are
+ * searching.
+ */
+@Service
+public class TmdbRateLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TmdbRateLimiter.class);
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+
+    @Autowired
+    public TmdbRateLimiter(GapsConfiguration gapsConfiguration) {
+        this(gapsConfiguration.getTmdb().getBurst(), gapsConfiguration.getTmdb().getRequestsPerSecond());
+    }
+
+    TmdbRateLimiter(int burst, int requestsPerSecond) {
+        if (burst < 1 || requestsPerSecond < 1) {
+            throw new IllegalArgumentException("TMDB burst and requests per second must be at least 1");
+        }
+        LOGGER.info("TMDB rate limit {} requests per second with a burst of {}", requestsPerSecond, burst);
+        this.capacity = burst;
+        this.tokensPerNano = requestsPerSecond / (double) TimeUnit.SECONDS.toNanos(1);
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+        this.pausedUntil = lastRefill;
+    }
+
+    /**
+     * Blocks until a request to TMDB is allowed
+     *
+     * @throws InterruptedException if the waiting thread is interrupted, which is how searches are cancelled
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = reserve()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Stops handing out tokens for the given time. Used when TMDB answers with 429 and a Retry-After header.
+     *
+     * @param millis how long every caller should hold off
+     */
+    public synchronized void pause(long millis) {
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        if (until - pausedUntil > 0) {
+            pausedUntil = until;
+            lastRefill = until;
+            tokens = 0;
+        }
+    }
+
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        if (pausedUntil - now > 0) {
+            return pausedUntil - now;
+        }
+
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+}
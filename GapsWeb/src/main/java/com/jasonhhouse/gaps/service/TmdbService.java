@@ -12,6 +12,7 @@ package com.jasonhhouse.gaps.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jasonhhouse.gaps.HttpClientConfiguration;
 import com.jasonhhouse.gaps.Payload;
 import java.io.IOException;
 import okhttp3.HttpUrl;
@@ -22,6 +23,8 @@ import okhttp3.ResponseBody;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -29,6 +32,13 @@ public class TmdbService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TmdbService.class);
 
+    private final OkHttpClient client;
+
+    @Autowired
+    public TmdbService(@Qualifier(HttpClientConfiguration.TMDB) OkHttpClient client) {
+        this.client = client;
+    }
+
     public @NotNull Payload testTmdbKey(String key) {
         LOGGER.info("testTmdbKey( {} )", key);
 
@@ -44,9 +54,6 @@ public class TmdbService {
 
         LOGGER.info("url: {}", url);
 
-        OkHttpClient client = new OkHttpClient.Builder()
-                .build();
-
         Request request = new Request.Builder()
                 .url(url)
                 .build();
@@ -9,7 +9,7 @@
  *
  */
 
-/* global Handlebars */
+/* global Handlebars, SockJS, Stomp */
 /* eslint no-undef: "error" */
 
 import { getOwnedMoviesForTable } from '../modules/common.min.js';
@@ -18,8 +18,10 @@ let libraryTitle;
 let noMovieContainer;
 let movieContainer;
 let movieSearchingContainer;
+let metadataProgress;
 let plexServers;
 let moviesTable;
+let stompClient;
 
 function switchPlexLibrary(machineIdentifier, key) {
   const plexServer = plexServers[machineIdentifier];
@@ -34,15 +36,37 @@ function switchPlexLibrary(machineIdentifier, key) {
   getOwnedMoviesForTable(`/libraries/${machineIdentifier}/${key}`, movieContainer, noMovieContainer, moviesTable);
 }
 
+function showMetadataProgress(obj) {
+  if (!obj) {
+    metadataProgress.html('');
+  } else {
+    const data = Object.assign(obj);
+    data.percentage = Math.trunc((obj.searchedMovieCount / obj.totalMovieCount) * 100);
+
+    const progressTemplate = $('#updateMetadataProgress').html();
+    const theTemplate = Handlebars.compile(progressTemplate);
+    metadataProgress.html(theTemplate(data));
+  }
+}
+
 function searchForMovies() {
   movieSearchingContainer.show();
   noMovieContainer.css({ display: 'none' });
   moviesTable.data().clear();
   moviesTable.rows().invalidate().draw();
+  showMetadataProgress();
 
   const machineIdentifier = libraryTitle.attr('data-machineIdentifier');
   const key = libraryTitle.attr('data-key');
 
+  // Looking up the ids of a large library takes a while, Gaps reports how far it got
+  let subscription;
+  if (stompClient && stompClient.connected) {
+    subscription = stompClient.subscribe(`/plexMetadataProgress/${machineIdentifier}/${key}`, (status) => {
+      showMetadataProgress(JSON.parse(status.body));
+    });
+  }
+
   $.ajax({
     type: 'GET',
     url: `/plex/movies/${machineIdentifier}/${key}`,
@@ -52,6 +76,12 @@ function searchForMovies() {
       moviesTable.rows.add(data).draw();
       movieContainer.show(100);
     },
+    complete() {
+      if (subscription) {
+        subscription.unsubscribe();
+      }
+      showMetadataProgress();
+    },
   });
 }
 
@@ -60,6 +90,7 @@ jQuery(($) => {
   noMovieContainer = $('#noMovieContainer');
   movieContainer = $('#movieContainer');
   movieSearchingContainer = $('#movieSearchingContainer');
+  metadataProgress = $('#metadataProgress');
   plexServers = JSON.parse($('#plexServers').val());
   const plexServer = JSON.parse($('#plexServer').val());
   const key = JSON.parse($('#libraryKey').val());
@@ -102,6 +133,9 @@ jQuery(($) => {
 
   getOwnedMoviesForTable(`/libraries/${plexServer.machineIdentifier}/${key}`, movieContainer, noMovieContainer, moviesTable);
 
+  stompClient = Stomp.over(new SockJS('/gs-guide-websocket'));
+  stompClient.connect({});
+
   // Exposing function for onClick()
   window.searchForMovies = searchForMovies;
   window.switchPlexLibrary = switchPlexLibrary;
@@ -30,20 +30,9 @@ let searchResults;
 let searchTitle;
 let searchDescription;
 let movieCounter;
+let foundTmdbIds;
 let socket;
-
-function switchPlexLibrary(machineIdentifier, key) {
-  libraryKey = key;
-  plexServer = plexServers[machineIdentifier];
-  const plexLibrary = plexServer.plexLibraries.find((tempPlexLibrary) => tempPlexLibrary.key === parseInt(key, 10));
-  libraryTitle.text(`${plexServer.friendlyName} - ${plexLibrary.title}`);
-
-  notSearchedYetContainer.css({ display: 'none' });
-  moviesTable.data().clear();
-  moviesTable.rows().invalidate().draw();
-
-  getRecommendedMoviesForTable(`/recommended/${machineIdentifier}/${libraryKey}`, movieContainer, noMovieContainer, notSearchedYetContainer, moviesTable);
-}
+let subscriptions = [];
 
 function cancel() {
   stompClient.send(`/recommended/cancel/${plexServer.machineIdentifier}/${libraryKey}`);
@@ -73,7 +62,42 @@ function showSearchStatus(obj) {
   }
 }
 
-function searchForMovies() {
+function addMovie(movie) {
+  if (foundTmdbIds.has(movie.tmdbId)) {
+    return;
+  }
+  foundTmdbIds.add(movie.tmdbId);
+  movieCounter += 1;
+  moviesTable.row.add(movie).draw();
+  searchResults.push(`${movie.name} (${movie.year}) in collection '${movie.collection}'`);
+}
+
+function catchUpWithSearch() {
+  $.ajax({
+    type: 'GET',
+    url: `/recommended/progress/${plexServer.machineIdentifier}/${libraryKey}`,
+    contentType: 'application/json',
+    success(snapshot) {
+      if (!snapshot || !snapshot.searching) {
+        return;
+      }
+
+      movieContainer.show(100);
+      searchContainer.show(100);
+      notSearchedYetContainer.css({ display: 'none' });
+      noMovieContainer.css({ display: 'none' });
+      searchTitle.text('Searching for Movies');
+      moviesTable.data().clear();
+      moviesTable.rows().invalidate().draw();
+      movieCounter = 0;
+      foundTmdbIds = new Set();
+      snapshot.movies.forEach(addMovie);
+      showSearchStatus(snapshot);
+    },
+  });
+}
+
+function searchForMovies(searchMode = 'FULL') {
   movieContainer.show(100);
   searchContainer.show(100);
   notSearchedYetContainer.css({ display: 'none' });
@@ -83,6 +107,7 @@ function searchForMovies() {
 
   // reset movie counter;
   movieCounter = 0;
+  foundTmdbIds = new Set();
   searchTitle.text('Searching for Movies');
   searchDescription.text("Gaps is looking through your Plex libraries. This could take a while so just sit tight, and we'll find all the missing movies for you.");
 
@@ -90,13 +115,72 @@ function searchForMovies() {
   // Change to searching with recommended
   $.ajax({
     type: 'PUT',
-    url: `/recommended/find/${plexServer.machineIdentifier}/${libraryKey}`,
+    url: `/recommended/find/${plexServer.machineIdentifier}/${libraryKey}?searchMode=${searchMode}`,
     contentType: 'application/json',
   });
 
   showSearchStatus();
 }
 
+function subscribeToLibrary() {
+  subscriptions.forEach((subscription) => subscription.unsubscribe());
+  subscriptions = [];
+
+  const libraryTopic = `${plexServer.machineIdentifier}/${libraryKey}`;
+
+  subscriptions.push(stompClient.subscribe(`/finishedSearching/${libraryTopic}`, (message) => {
+    searchContainer.css({ display: 'none' });
+
+    const payload = JSON.parse(message.body);
+
+    backButton.text('Restart');
+    if (payload && payload.code === Payload.SEARCH_SUCCESSFUL) {
+      searchTitle.text('Search Complete');
+      searchDescription.text(`${movieCounter} movies to add to complete your collections. Below is everything Gaps found that is missing from your movie collections.`);
+      setCopyToClipboardEnabled(true);
+    } else {
+      searchTitle.text('Search Failed');
+      searchDescription.text(payload.reason);
+      setCopyToClipboardEnabled(false);
+      movieContainer.css({ display: 'none' });
+      notSearchedYetContainer.css({ display: 'none' });
+      noMovieContainer.show(100);
+    }
+  }));
+
+  subscriptions.push(stompClient.subscribe(`/searchProgress/${libraryTopic}`, (status) => {
+    showSearchStatus(JSON.parse(status.body));
+  }));
+
+  // Only new recommendations come with the whole movie
+  subscriptions.push(stompClient.subscribe(`/newMovieFound/${libraryTopic}`, (status) => {
+    const obj = JSON.parse(status.body);
+    if (obj.nextMovie) {
+      addMovie(obj.nextMovie);
+    }
+  }));
+
+  // A search may already be running, e.g. after a reload
+  catchUpWithSearch();
+}
+
+function switchPlexLibrary(machineIdentifier, key) {
+  libraryKey = key;
+  plexServer = plexServers[machineIdentifier];
+  const plexLibrary = plexServer.plexLibraries.find((tempPlexLibrary) => tempPlexLibrary.key === parseInt(key, 10));
+  libraryTitle.text(`${plexServer.friendlyName} - ${plexLibrary.title}`);
+
+  notSearchedYetContainer.css({ display: 'none' });
+  moviesTable.data().clear();
+  moviesTable.rows().invalidate().draw();
+
+  getRecommendedMoviesForTable(`/recommended/${machineIdentifier}/${libraryKey}`, movieContainer, noMovieContainer, notSearchedYetContainer, moviesTable);
+
+  if (stompClient && stompClient.connected) {
+    subscribeToLibrary();
+  }
+}
+
 function disconnect() {
   if (stompClient !== null && stompClient.status === 'CONNECTED') {
     stompClient.disconnect();
@@ -136,6 +220,8 @@ jQuery(($) => {
   backButton = $('#cancel');
 
   searchResults = [];
+  movieCounter = 0;
+  foundTmdbIds = new Set();
   searchContainer = $('#searchContainer');
   searchTitle = $('#searchTitle');
   searchDescription = $('#searchDescription');
@@ -180,38 +266,7 @@ jQuery(($) => {
 
   socket = new SockJS('/gs-guide-websocket');
   stompClient = Stomp.over(socket);
-  stompClient.connect({}, () => {
-    stompClient.subscribe('/finishedSearching', (message) => {
-      searchContainer.css({ display: 'none' });
-
-      const payload = JSON.parse(message.body);
-
-      backButton.text('Restart');
-      if (payload && payload.code === Payload.SEARCH_SUCCESSFUL) {
-        searchTitle.text('Search Complete');
-        searchDescription.text(`${movieCounter} movies to add to complete your collections. Below is everything Gaps found that is missing from your movie collections.`);
-        setCopyToClipboardEnabled(true);
-      } else {
-        searchTitle.text('Search Failed');
-        searchDescription.text(payload.reason);
-        setCopyToClipboardEnabled(false);
-        movieContainer.css({ display: 'none' });
-        notSearchedYetContainer.css({ display: 'none' });
-        noMovieContainer.show(100);
-      }
-    });
-
-    stompClient.subscribe('/newMovieFound', (status) => {
-      const obj = JSON.parse(status.body);
-      showSearchStatus(obj);
-
-      if (obj.nextMovie) {
-        movieCounter += 1;
-        moviesTable.row.add(obj.nextMovie).draw();
-        searchResults.push(`${obj.nextMovie.name} (${obj.nextMovie.year}) in collection '${obj.nextMovie.collection}'`);
-      }
-    });
-  });
+  stompClient.connect({}, subscribeToLibrary);
 
   // Exposing function for onClick()
   window.searchForMovies = searchForMovies;
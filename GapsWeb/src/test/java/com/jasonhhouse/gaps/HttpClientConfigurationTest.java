@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HttpClientConfigurationTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HttpClientConfiguration httpClientConfiguration;
+    private HttpServer httpServer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        GapsConfiguration gapsConfiguration = TestGapsConfiguration.withoutFolder();
+        httpClientConfiguration = new HttpClientConfiguration(gapsConfiguration, meterRegistry);
+
+        httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        httpServer.createContext("/", exchange -> {
+            byte[] body = "<MediaContainer/>".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        httpServer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        httpServer.stop(0);
+    }
+
+    @Test
+    void recordsRequestsPerUpstream() throws IOException {
+        OkHttpClient plexClient = httpClientConfiguration.getPlexClient();
+        for (int i = 0; i < 3; i++) {
+            call(plexClient);
+        }
+        call(httpClientConfiguration.getRadarrClient());
+
+        Timer plexTimer = meterRegistry.find(HttpClientConfiguration.METRIC_NAME).tag("upstream", HttpClientConfiguration.PLEX).timer();
+        Timer radarrTimer = meterRegistry.find(HttpClientConfiguration.METRIC_NAME).tag("upstream", HttpClientConfiguration.RADARR).timer();
+        assertNotNull(plexTimer, "Should record Plex requests");
+        assertNotNull(radarrTimer, "Should record Radarr requests");
+        assertEquals(3, plexTimer.count(), "Should count every Plex request");
+        assertEquals(1, radarrTimer.count(), "Should count every Radarr request");
+    }
+
+    @Test
+    void clientsPerUpstream() {
+        OkHttpClient tmdbClient = httpClientConfiguration.getTmdbClient();
+        OkHttpClient plexClient = httpClientConfiguration.getPlexClient();
+
+        assertNotSame(tmdbClient.connectionPool(), plexClient.connectionPool(), "Each upstream should have its own connection pool");
+        assertEquals(180_000, plexClient.readTimeoutMillis(), "Plex libraries can take a long time to list");
+        assertNull(tmdbClient.cache(), "TMDB cache should be off when the size is zero");
+    }
+
+    private void call(OkHttpClient client) throws IOException {
+        Request request = new Request.Builder()
+                .url("http://localhost:" + httpServer.getAddress().getPort() + "/")
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(200, response.code(), "Should reach the test server");
+        }
+    }
+}
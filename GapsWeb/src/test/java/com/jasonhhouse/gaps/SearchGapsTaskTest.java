@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps;
+
+import com.jasonhhouse.gaps.properties.PlexProperties;
+import com.jasonhhouse.gaps.service.FileIoService;
+import com.jasonhhouse.gaps.service.GapsSearch;
+import com.jasonhhouse.gaps.service.NotificationService;
+import com.jasonhhouse.gaps.service.PlexQuery;
+import com.jasonhhouse.gaps.service.TmdbService;
+import com.jasonhhouse.plex.libs.PlexLibrary;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import okhttp3.HttpUrl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SearchGapsTaskTest {
+
+    private final List<String> searched = new CopyOnWriteArrayList<>();
+    private GapsSearch gapsSearch;
+    private PlexQuery plexQuery;
+    private GapsUrlGenerator gapsUrlGenerator;
+    private NotificationService notificationService;
+    private PlexProperties plexProperties;
+    private SearchGapsTask searchGapsTask;
+
+    @BeforeEach
+    void setUp() {
+        gapsSearch = mock(GapsSearch.class);
+        plexQuery = mock(PlexQuery.class);
+        gapsUrlGenerator = mock(GapsUrlGenerator.class);
+        notificationService = mock(NotificationService.class);
+        TmdbService tmdbService = mock(TmdbService.class);
+        FileIoService fileIoService = mock(FileIoService.class);
+
+        plexProperties = new PlexProperties();
+        when(fileIoService.readProperties()).thenReturn(plexProperties);
+        when(tmdbService.testTmdbKey(any())).thenReturn(Payload.TMDB_KEY_VALID);
+        when(gapsUrlGenerator.generatePlexLibraryUrl(any(), any())).thenReturn(HttpUrl.get("http://localhost:32400/library/sections/1/all"));
+        when(plexQuery.getLibraries(any())).thenReturn(Payload.PLEX_LIBRARIES_FOUND);
+        when(plexQuery.findAllPlexMovies(anyMap(), any())).thenReturn(new ArrayList<>());
+        //Taking the servers from the iterator is what sends the notifications of their scans
+        doAnswer(invocation -> {
+            Iterator<PlexServer> plexServers = invocation.getArgument(0);
+            plexServers.forEachRemaining(plexServer -> searched.add(plexServer.getFriendlyName()));
+            return null;
+        }).when(gapsSearch).runAll(any(), eq(SearchMode.INCREMENTAL));
+
+        searchGapsTask = new SearchGapsTask(gapsSearch, tmdbService, fileIoService, plexQuery, gapsUrlGenerator, notificationService, false);
+    }
+
+    @Test
+    void skipsServerThatFailsProbe() {
+        PlexServer up = plexServer("Up", 1);
+        PlexServer down = plexServer("Down", 2);
+        when(plexQuery.queryPlexServer(up)).thenReturn(Payload.PLEX_CONNECTION_SUCCEEDED);
+        when(plexQuery.queryPlexServer(down)).thenReturn(Payload.PLEX_CONNECTION_FAILED);
+
+        searchGapsTask.run();
+
+        verify(plexQuery, never()).getLibraries(down);
+        verify(gapsUrlGenerator, never()).generatePlexLibraryUrl(eq(down), any());
+        verify(notificationService).plexServerConnectFailed(eq(down), anyString());
+        verify(notificationService).plexLibraryScanFailed(eq(down), any(), contains("Skipped"));
+        verify(notificationService).plexLibraryScanSuccessful(eq(up), any());
+        assertEquals(List.of("Up"), searched, "Should only search the server that answered");
+    }
+
+    @Test
+    void skipsRemainingLibrariesOnceServerStopsAnswering() {
+        PlexServer plexServer = plexServer("Flaky", 1);
+        PlexLibrary second = new PlexLibrary();
+        second.setKey(2);
+        second.setTitle("Kids");
+        plexServer.getPlexLibraries().add(second);
+        when(plexQuery.queryPlexServer(plexServer)).thenReturn(Payload.PLEX_CONNECTION_SUCCEEDED);
+        when(plexQuery.findAllPlexMovies(anyMap(), any())).thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Timed out", new IOException("Timed out")));
+
+        searchGapsTask.run();
+
+        verify(plexQuery, times(1)).findAllPlexMovies(anyMap(), any());
+        verify(notificationService).plexLibraryScanFailed(eq(plexServer), any(), contains("Timed out"));
+        verify(notificationService).plexLibraryScanFailed(eq(plexServer), any(), contains("Skipped"));
+        assertTrue(searched.isEmpty(), "Should not search a server that stopped answering");
+    }
+
+    @Test
+    void searchesServerWhileOthersAreStillScanned() {
+        PlexServer fast = plexServer("Fast", 1);
+        PlexServer slow = plexServer("Slow", 2);
+        CountDownLatch fastSearched = new CountDownLatch(1);
+        AtomicBoolean searchedWhileScanning = new AtomicBoolean();
+        when(plexQuery.queryPlexServer(fast)).thenReturn(Payload.PLEX_CONNECTION_SUCCEEDED);
+        when(plexQuery.queryPlexServer(slow)).thenAnswer(invocation -> {
+            searchedWhileScanning.set(fastSearched.await(5, TimeUnit.SECONDS));
+            return Payload.PLEX_CONNECTION_SUCCEEDED;
+        });
+        doAnswer(invocation -> {
+            Iterator<PlexServer> plexServers = invocation.getArgument(0);
+            plexServers.forEachRemaining(plexServer -> {
+                searched.add(plexServer.getFriendlyName());
+                fastSearched.countDown();
+            });
+            return null;
+        }).when(gapsSearch).runAll(any(), eq(SearchMode.INCREMENTAL));
+
+        searchGapsTask.run();
+
+        assertTrue(searchedWhileScanning.get(), "Should search the first server scanned without waiting for the others");
+        assertEquals(List.of("Fast", "Slow"), searched, "Should search servers in the order their scans finish");
+        verify(notificationService).plexLibraryScanSuccessful(eq(slow), any());
+    }
+
+    private PlexServer plexServer(String friendlyName, int key) {
+        PlexServer plexServer = new PlexServer(friendlyName, friendlyName.toLowerCase(), "token", "localhost", 32400);
+        PlexLibrary plexLibrary = new PlexLibrary();
+        plexLibrary.setKey(key);
+        plexLibrary.setTitle("Movies");
+        plexServer.getPlexLibraries().add(plexLibrary);
+        plexProperties.addPlexServer(plexServer);
+        return plexServer;
+    }
+}
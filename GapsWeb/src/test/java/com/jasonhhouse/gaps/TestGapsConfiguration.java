@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Builds the configuration tests run with, so a new setting only needs its default added here
+ */
+public final class TestGapsConfiguration {
+
+    private TestGapsConfiguration() {
+    }
+
+    /**
+     * @return the defaults with files kept in the folder
+     */
+    public static @NotNull GapsConfiguration withFolder(@NotNull Path folder) {
+        return withFolder(folder, tmdb(40));
+    }
+
+    public static @NotNull GapsConfiguration withFolder(@NotNull Path folder, @NotNull GapsConfiguration.Tmdb tmdb) {
+        return create(folder.toString(), new GapsConfiguration.Properties("rssFeed.json", "gaps.properties", "movieIds.json", "ownedMovies.json",
+                "recommendedMovies.json", "collections.json", "movieDetails.json", "watermark.json", "checkpoint.json"), tmdb);
+    }
+
+    /**
+     * @return the defaults for tests that never touch the storage folder
+     */
+    public static @NotNull GapsConfiguration withoutFolder() {
+        return create("", null, tmdb(40));
+    }
+
+    public static @NotNull GapsConfiguration.Tmdb tmdb(int requestsPerSecond) {
+        return new GapsConfiguration.Tmdb(requestsPerSecond, requestsPerSecond, 8, Duration.ofDays(7), 10000, Duration.ofDays(30));
+    }
+
+    private static @NotNull GapsConfiguration create(@NotNull String storageFolder, GapsConfiguration.Properties properties, @NotNull GapsConfiguration.Tmdb tmdb) {
+        return new GapsConfiguration("Gaps", "", "", false, false, storageFolder, properties, tmdb, new GapsConfiguration.Plex(4),
+                new GapsConfiguration.Http(10, Duration.ofMinutes(5), DataSize.ofBytes(0)), new GapsConfiguration.Rss(Duration.ofSeconds(5), 25),
+                new GapsConfiguration.Notifications(100, 3, Duration.ofSeconds(2), Duration.ofSeconds(30), true),
+                new GapsConfiguration.Search(Duration.ofSeconds(1), 2, Duration.ofMinutes(1)));
+    }
+}
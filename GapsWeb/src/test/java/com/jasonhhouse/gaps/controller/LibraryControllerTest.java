@@ -0,0 +1,25 @@
+package com.jasonhhouse.gaps.controller;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.junit.Assert.assertEquals;
+
+public class LibraryControllerTest extends AbstractTest {
+
+    @Override
+    @Before
+    public void setUp() {
+        super.setUp();
+    }
+
+    @Test
+    public void getOwnedFromUnknownLibrary() throws Exception {
+        MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.get("/libraries/unknown/1/owned/348")).andReturn();
+
+        assertEquals(404, mvcResult.getResponse().getStatus());
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.jasonhhouse.gaps.controller;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.junit.Assert.assertEquals;
+
+public class SearchJobControllerTest extends AbstractTest {
+
+    @Override
+    @Before
+    public void setUp() {
+        super.setUp();
+    }
+
+    @Test
+    public void getSearchJobs() throws Exception {
+        MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.get("/searches").accept(MediaType.APPLICATION_JSON_VALUE)).andReturn();
+
+        assertEquals(200, mvcResult.getResponse().getStatus());
+        assertEquals("[]", mvcResult.getResponse().getContentAsString());
+    }
+
+    @Test
+    public void getUnknownSearchJob() throws Exception {
+        MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.get("/searches/unknown").accept(MediaType.APPLICATION_JSON_VALUE)).andReturn();
+        assertEquals(404, mvcResult.getResponse().getStatus());
+
+        mvcResult = mvc.perform(MockMvcRequestBuilders.delete("/searches/unknown").accept(MediaType.APPLICATION_JSON_VALUE)).andReturn();
+        assertEquals(404, mvcResult.getResponse().getStatus());
+    }
+
+}
@@ -13,6 +13,7 @@ package com.jasonhhouse.gaps.notifications;
 
 import com.jasonhhouse.gaps.NotificationType;
 import com.jasonhhouse.gaps.service.FakeIoService;
+import okhttp3.OkHttpClient;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,7 +27,7 @@ class DiscordNotificationAgentTest {
 
     @BeforeEach
     void setUp() {
-        discordNotificationAgent = new DiscordNotificationAgent(new FakeIoService());
+        discordNotificationAgent = new DiscordNotificationAgent(new FakeIoService(), new OkHttpClient());
     }
 
     @Test
@@ -14,6 +14,7 @@ package com.jasonhhouse.gaps.notifications;
 import com.jasonhhouse.gaps.NotificationType;
 import com.jasonhhouse.gaps.service.FakeIoService;
 import com.jasonhhouse.gaps.service.IO;
+import okhttp3.OkHttpClient;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -28,7 +29,7 @@ class TelegramNotificationAgentTest {
 
     @BeforeEach
     void setUp() {
-        telegramNotificationAgent = new TelegramNotificationAgent(new FakeIoService());
+        telegramNotificationAgent = new TelegramNotificationAgent(new FakeIoService(), new OkHttpClient());
     }
 
     @Test
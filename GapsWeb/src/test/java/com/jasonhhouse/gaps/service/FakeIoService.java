@@ -12,9 +12,11 @@
 package com.jasonhhouse.gaps.service;
 
 import com.jasonhhouse.gaps.BasicMovie;
+import com.jasonhhouse.gaps.LibraryWatermark;
 import com.jasonhhouse.gaps.NotificationType;
 import com.jasonhhouse.gaps.Payload;
 import com.jasonhhouse.gaps.PlexServer;
+import com.jasonhhouse.gaps.SearchCheckpoint;
 import com.jasonhhouse.gaps.properties.DiscordProperties;
 import com.jasonhhouse.gaps.properties.EmailProperties;
 import com.jasonhhouse.gaps.properties.GotifyProperties;
@@ -28,7 +30,9 @@ import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class FakeIoService implements IO {
     @Override
@@ -66,6 +70,41 @@ public class FakeIoService implements IO {
         return null;
     }
 
+    @Override
+    public boolean hasOwnedMovies(@NotNull String machineIdentifier, @NotNull Integer key) {
+        return false;
+    }
+
+    @Override
+    public boolean isOwned(@NotNull String machineIdentifier, @NotNull Integer key, int tmdbId) {
+        return false;
+    }
+
+    @Override
+    public @Nullable LibraryWatermark readWatermark(@NotNull String machineIdentifier, @NotNull Integer key) {
+        return null;
+    }
+
+    @Override
+    public void writeWatermark(@NotNull LibraryWatermark libraryWatermark, @NotNull String machineIdentifier, @NotNull Integer key) {
+
+    }
+
+    @Override
+    public @Nullable SearchCheckpoint readCheckpoint(@NotNull String machineIdentifier, @NotNull Integer key) {
+        return null;
+    }
+
+    @Override
+    public void writeCheckpoint(@NotNull SearchCheckpoint searchCheckpoint, @NotNull String machineIdentifier, @NotNull Integer key) {
+
+    }
+
+    @Override
+    public void deleteCheckpoint(@NotNull String machineIdentifier, @NotNull Integer key) {
+
+    }
+
     @Override
     public void writeMovieIdsToFile(@NotNull Set<BasicMovie> everyBasicMovie) {
 
@@ -81,6 +120,11 @@ public class FakeIoService implements IO {
         return null;
     }
 
+    @Override
+    public void forEachMovieId(@NotNull Consumer<BasicMovie> consumer) {
+
+    }
+
     @Override
     public void writeProperties(@NotNull PlexProperties plexProperties) {
 
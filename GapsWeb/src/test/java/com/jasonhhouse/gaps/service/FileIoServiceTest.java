@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.jasonhhouse.gaps.BasicMovie;
+import com.jasonhhouse.gaps.GapsConfiguration;
+import com.jasonhhouse.gaps.PlexServer;
+import com.jasonhhouse.gaps.SearchCheckpoint;
+import com.jasonhhouse.gaps.TestGapsConfiguration;
+import com.jasonhhouse.gaps.properties.PlexProperties;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileIoServiceTest {
+
+    @TempDir
+    Path folder;
+
+    private FileIoService fileIoService;
+
+    @BeforeEach
+    void setUp() {
+        GapsConfiguration gapsConfiguration = TestGapsConfiguration.withFolder(folder);
+        fileIoService = new FileIoService(gapsConfiguration);
+    }
+
+    @Test
+    void streamsMovieIds() {
+        Set<BasicMovie> movies = new TreeSet<>(List.of(new BasicMovie.Builder("Alien", 1979).setTmdbId(348).build(),
+                new BasicMovie.Builder("Aliens", 1986).setTmdbId(679).build()));
+        fileIoService.writeMovieIdsToFile(movies);
+
+        List<BasicMovie> streamed = new ArrayList<>();
+        fileIoService.forEachMovieId(streamed::add);
+
+        assertEquals(2, streamed.size(), "Should read every movie");
+        assertEquals(348, streamed.get(0).getTmdbId(), "Should read movies in file order");
+        assertEquals(movies, fileIoService.readMovieIdsFromFile(), "Should read the same movies as a set");
+    }
+
+    @Test
+    void replacesMovieIdsWithoutLeavingTempFiles() throws IOException {
+        fileIoService.writeMovieIdsToFile(new TreeSet<>(List.of(new BasicMovie.Builder("Alien", 1979).setTmdbId(348).build())));
+        fileIoService.writeMovieIdsToFile(new TreeSet<>(List.of(new BasicMovie.Builder("Aliens", 1986).setTmdbId(679).build())));
+
+        List<BasicMovie> streamed = new ArrayList<>();
+        fileIoService.forEachMovieId(streamed::add);
+
+        assertEquals(1, streamed.size(), "Should only read the movies written last");
+        assertEquals(679, streamed.get(0).getTmdbId(), "Should read the movies written last");
+        try (Stream<Path> files = Files.list(folder)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")), "Should not leave temp files behind");
+        }
+    }
+
+    @Test
+    void keepsMoviesBeforeBrokenOne() throws IOException {
+        Files.writeString(folder.resolve("movieIds.json"), "[\n{\"name\":\"Alien\",\"year\":1979,\"tmdbId\":348},\n{\"name\":\"Aliens\",");
+
+        List<BasicMovie> streamed = new ArrayList<>();
+        fileIoService.forEachMovieId(streamed::add);
+
+        assertEquals(1, streamed.size(), "Should keep the movie read before the broken one");
+    }
+
+    @Test
+    void writesAndDeletesCheckpoint() {
+        assertNull(fileIoService.readCheckpoint("abc123", 1), "Should not have a checkpoint before a search");
+
+        BasicMovie alien = new BasicMovie.Builder("Alien", 1979).setTmdbId(348).build();
+        BasicMovie aliens = new BasicMovie.Builder("Aliens", 1986).setTmdbId(679).build();
+        fileIoService.writeCheckpoint(new SearchCheckpoint(1L, List.of(alien), List.of(alien, aliens), List.of(aliens)), "abc123", 1);
+
+        SearchCheckpoint searchCheckpoint = fileIoService.readCheckpoint("abc123", 1);
+        assertNotNull(searchCheckpoint);
+        assertEquals(List.of(alien), searchCheckpoint.getCompleted(), "Should keep the completed movies");
+        assertEquals(2, searchCheckpoint.getSearched().size(), "Should keep the searched movies");
+        assertEquals(679, searchCheckpoint.getRecommended().get(0).getTmdbId(), "Should keep the recommendations");
+
+        fileIoService.deleteCheckpoint("abc123", 1);
+        assertNull(fileIoService.readCheckpoint("abc123", 1), "Should forget the checkpoint once the search finished");
+    }
+
+    @Test
+    void readsOwnCopyOfProperties() {
+        PlexProperties plexProperties = new PlexProperties();
+        plexProperties.setMovieDbApiKey("key");
+        plexProperties.addPlexServer(new PlexServer("Plex", "abc123", "token", "localhost", 32400));
+        fileIoService.writeProperties(plexProperties);
+
+        PlexProperties read = fileIoService.readProperties();
+        read.setMovieDbApiKey("changed");
+        read.getPlexServers().get(0).setFriendlyName("changed");
+        read.addPlexServer(new PlexServer("Other", "def456", "token", "localhost", 32400));
+        plexProperties.setMovieDbApiKey("changed after write");
+
+        PlexProperties reread = fileIoService.readProperties();
+        assertEquals("key", reread.getMovieDbApiKey(), "Changes should not show up until written");
+        assertEquals(1, reread.getPlexServers().size(), "Added servers should not show up until written");
+        assertEquals("Plex", reread.getPlexServers().get(0).getFriendlyName(), "Changed servers should not show up until written");
+    }
+
+    @Test
+    void readsPropertiesChangedOnDisk() throws IOException, InterruptedException {
+        PlexProperties plexProperties = new PlexProperties();
+        plexProperties.setMovieDbApiKey("key");
+        fileIoService.writeProperties(plexProperties);
+        fileIoService.watchProperties();
+        try {
+            assertEquals("key", fileIoService.readProperties().getMovieDbApiKey(), "Should read written key");
+
+            Files.writeString(folder.resolve("gaps.properties"), "{\"movieDbApiKey\":\"edited\"}");
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!"edited".equals(fileIoService.readProperties().getMovieDbApiKey()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals("edited", fileIoService.readProperties().getMovieDbApiKey(), "Should read key changed outside of Gaps");
+        } finally {
+            fileIoService.stopWatchingProperties();
+        }
+    }
+
+    @Test
+    void readsNothingWithoutFile() {
+        assertTrue(fileIoService.readMovieIdsFromFile().isEmpty(), "Should have no movies without a file");
+        assertTrue(fileIoService.readOwnedMovies("abc123", 1).isEmpty(), "Should have no owned movies without a file");
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JsonFileCacheTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void missingEntryNotCached() throws IOException {
+        NameCache nameCache = new NameCache(folder.resolve("names.json"));
+        AtomicInteger calls = new AtomicInteger();
+
+        assertNull(nameCache.get(10, () -> {
+            calls.incrementAndGet();
+            return null;
+        }), "Missing entry should be null");
+        nameCache.get(10, () -> name(calls, "Zatoichi"));
+
+        assertEquals(2, calls.get(), "Should ask TMDB again for missing entries");
+    }
+
+    @Test
+    void survivesRestart() throws IOException {
+        Path file = folder.resolve("names.json");
+        NameCache nameCache = new NameCache(file);
+        AtomicInteger calls = new AtomicInteger();
+        nameCache.get(10, () -> name(calls, "Zatoichi"));
+        nameCache.save();
+
+        NameCache restarted = new NameCache(file);
+        JsonNode name = restarted.get(10, () -> name(calls, "Other"));
+
+        assertEquals("Zatoichi", name.get("name").textValue(), "Should read entry from disk");
+        assertEquals(1, calls.get(), "Should not call TMDB after restart");
+        assertEquals(1, restarted.size(), "Should have one entry");
+    }
+
+    @Test
+    void readsFilesFromBeforeTheSharedFormat() throws IOException {
+        Path file = folder.resolve("names.json");
+        Files.writeString(file, "{\"10\":{\"fetchedAt\":" + System.currentTimeMillis() + ",\"collection\":{\"id\":10,\"name\":\"Zatoichi\"}}}");
+        AtomicInteger calls = new AtomicInteger();
+
+        JsonNode name = new NameCache(file).get(10, () -> name(calls, "Other"));
+
+        assertEquals("Zatoichi", name.get("name").textValue(), "Should read entry written by the old collection cache");
+        assertEquals(0, calls.get(), "Should not call TMDB for entries on disk");
+    }
+
+    @Test
+    void doesNotSaveWithoutChanges() throws IOException {
+        Path file = folder.resolve("names.json");
+        NameCache nameCache = new NameCache(file);
+
+        nameCache.save();
+
+        assertFalse(Files.exists(file), "Should not write a file when nothing was fetched");
+    }
+
+    private JsonNode name(AtomicInteger calls, String name) {
+        calls.incrementAndGet();
+        return objectMapper.createObjectNode()
+                .put("id", 10)
+                .put("name", name);
+    }
+
+    private static final class NameCache extends JsonFileCache<Integer> {
+
+        NameCache(@NotNull Path file) {
+            super(file, "names", Integer.class, Duration.ofDays(1), new ConcurrentHashMap<>());
+        }
+
+        @Nullable JsonNode get(int id, @NotNull JsonLoader loader) throws IOException {
+            CachedJson cachedJson = cached(id);
+            return cachedJson != null ? cachedJson.getJson() : fetch(id, loader);
+        }
+    }
+}
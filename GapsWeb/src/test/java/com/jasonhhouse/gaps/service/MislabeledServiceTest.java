@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.jasonhhouse.gaps.Mislabeled;
+import com.jasonhhouse.plex.video.Media;
+import com.jasonhhouse.plex.video.MediaContainer;
+import com.jasonhhouse.plex.video.Part;
+import com.jasonhhouse.plex.video.Video;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.text.similarity.LevenshteinDistance;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MislabeledServiceTest {
+
+    @Test
+    void ignoresCaseWhenFileIsLonger() {
+        assertEquals(5 / 6.0, MislabeledService.similarityBelow("Alien", "ALIENS", 0.99), 0.0001, "Should compare both names in lower case");
+        assertNull(MislabeledService.similarityBelow("ALIEN", "alien", 1.0), "Should match names only differing in case");
+    }
+
+    @Test
+    void sameResultAsFullDistance() {
+        LevenshteinDistance levenshteinDistance = new LevenshteinDistance();
+        Random random = new Random(42);
+        double[] percentages = {0.0, 0.3, 0.5, 0.75, 0.8, 0.9, 0.95, 1.0};
+
+        for (int i = 0; i < 20_000; i++) {
+            String title = randomName(random);
+            //Half the files are a few edits away from the title
+            String file = random.nextBoolean() ? randomName(random) : edit(title, random);
+            double percentage = percentages[random.nextInt(percentages.length)];
+
+            String longer = title.length() < file.length() ? file.toLowerCase() : title.toLowerCase();
+            String shorter = title.length() < file.length() ? title.toLowerCase() : file.toLowerCase();
+            double similarity = longer.isEmpty() ? 1.0 : (longer.length() - levenshteinDistance.apply(longer, shorter)) / (double) longer.length();
+            Double expected = similarity < percentage ? similarity : null;
+
+            assertEquals(expected, MislabeledService.similarityBelow(title, file, percentage), String.format("'%s' and '%s' at %s", title, file, percentage));
+        }
+    }
+
+    @Test
+    void keepsOrderOfVideos() {
+        MediaContainer mediaContainer = new MediaContainer();
+        List<Video> videos = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String file = i % 5 == 0 ? "Something Else " + i : "Movie " + i;
+            videos.add(video("Movie " + i, "/movies/" + file + " (2000)/" + file + " (2000).mkv"));
+        }
+        mediaContainer.setVideos(videos);
+
+        List<Mislabeled> mislabeled = new MislabeledService().findMatchPercentage(mediaContainer, 0.8);
+
+        assertEquals(100, mislabeled.size(), "Should find every file named after something else");
+        for (int i = 0; i < mislabeled.size(); i++) {
+            assertEquals("Movie " + i * 5, mislabeled.get(i).getPlexTitle(), "Should keep the order of the library");
+        }
+    }
+
+    private static Video video(String title, String file) {
+        Part part = new Part();
+        part.setFile(file);
+        Media media = new Media();
+        media.setParts(List.of(part));
+        Video video = new Video();
+        video.setTitle(title);
+        video.setMedia(List.of(media));
+        return video;
+    }
+
+    private static String randomName(Random random) {
+        String letters = "abcdeABCDE 12";
+        StringBuilder name = new StringBuilder();
+        int length = random.nextInt(16);
+        for (int i = 0; i < length; i++) {
+            name.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        return name.toString();
+    }
+
+    private static String edit(String name, Random random) {
+        StringBuilder edited = new StringBuilder(name);
+        int edits = random.nextInt(4);
+        for (int i = 0; i < edits; i++) {
+            int position = edited.length() == 0 ? 0 : random.nextInt(edited.length());
+            switch (random.nextInt(3)) {
+                case 0:
+                    edited.insert(position, 'x');
+                    break;
+                case 1:
+                    if (edited.length() > 0) {
+                        edited.deleteCharAt(position);
+                    }
+                    break;
+                default:
+                    if (edited.length() > 0) {
+                        edited.setCharAt(position, 'y');
+                    }
+            }
+        }
+        return edited.toString();
+    }
+}
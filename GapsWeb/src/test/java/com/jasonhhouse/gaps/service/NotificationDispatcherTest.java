@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.jasonhhouse.gaps.NotificationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotificationDispatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void returnsBeforeSlowAgentSends() throws InterruptedException {
+        RecordingNotificationAgent slowAgent = new RecordingNotificationAgent(List.of(NotificationType.TEST), 0, 500);
+        NotificationDispatcher notificationDispatcher = new NotificationDispatcher(List.of(slowAgent), meterRegistry, 10, 1, Duration.ZERO, Duration.ofSeconds(5));
+
+        long start = System.nanoTime();
+        notificationDispatcher.dispatch(NotificationType.TEST, "INFO", "Gaps", "Hello");
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 400, "Should not wait for the agent");
+
+        slowAgent.awaitMessages(1);
+        assertEquals(1, slowAgent.getMessages().size(), "Should send the message in the background");
+        notificationDispatcher.shutdown();
+    }
+
+    @Test
+    void retriesFailedMessage() throws InterruptedException {
+        RecordingNotificationAgent flakyAgent = new RecordingNotificationAgent(List.of(NotificationType.TEST), 2, 0);
+        NotificationDispatcher notificationDispatcher = new NotificationDispatcher(List.of(flakyAgent), meterRegistry, 10, 3, Duration.ofMillis(10), Duration.ofSeconds(5));
+
+        notificationDispatcher.dispatch(NotificationType.TEST, "INFO", "Gaps", "Hello");
+        flakyAgent.awaitMessages(1);
+        notificationDispatcher.shutdown();
+
+        assertEquals(1, flakyAgent.getMessages().size(), "Should send the message on the third try");
+        assertEquals(1, count("sent"), "Should count the message as sent");
+    }
+
+    @Test
+    void givesUpAfterTimeouts() {
+        RecordingNotificationAgent hangingAgent = new RecordingNotificationAgent(List.of(NotificationType.TEST), 0, 10_000);
+        NotificationDispatcher notificationDispatcher = new NotificationDispatcher(List.of(hangingAgent), meterRegistry, 10, 2, Duration.ofMillis(10), Duration.ofMillis(50));
+
+        notificationDispatcher.dispatch(NotificationType.TEST, "INFO", "Gaps", "Hello");
+        notificationDispatcher.shutdown();
+
+        assertTrue(hangingAgent.getMessages().isEmpty(), "Should not have sent anything");
+        assertEquals(1, count("failed"), "Should count the message as failed");
+    }
+
+    @Test
+    void dropsWhenQueueIsFull() {
+        RecordingNotificationAgent slowAgent = new RecordingNotificationAgent(List.of(NotificationType.TEST), 0, 200);
+        NotificationDispatcher notificationDispatcher = new NotificationDispatcher(List.of(slowAgent), meterRegistry, 1, 1, Duration.ZERO, Duration.ofSeconds(5));
+
+        for (int i = 0; i < 5; i++) {
+            notificationDispatcher.dispatch(NotificationType.TEST, "INFO", "Gaps", "Hello " + i);
+        }
+        notificationDispatcher.shutdown();
+
+        assertEquals(2, slowAgent.getMessages().size(), "Should send the running and the queued message");
+        assertEquals(3, count("dropped"), "Should count the rest as dropped");
+    }
+
+    private double count(String outcome) {
+        Counter counter = meterRegistry.find(NotificationDispatcher.METRIC_NAME).tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -11,56 +11,91 @@
 
 package com.jasonhhouse.gaps.service;
 
+import com.jasonhhouse.gaps.NotificationType;
 import com.jasonhhouse.gaps.PlexServer;
-import com.jasonhhouse.gaps.notifications.DiscordNotificationAgent;
-import com.jasonhhouse.gaps.notifications.EmailNotificationAgent;
-import com.jasonhhouse.gaps.notifications.GotifyNotificationAgent;
 import com.jasonhhouse.gaps.notifications.NotificationAgent;
-import com.jasonhhouse.gaps.notifications.PushBulletNotificationAgent;
-import com.jasonhhouse.gaps.notifications.PushOverNotificationAgent;
-import com.jasonhhouse.gaps.notifications.SlackNotificationAgent;
-import com.jasonhhouse.gaps.notifications.TelegramNotificationAgent;
 import com.jasonhhouse.gaps.properties.NotificationProperties;
-import java.util.ArrayList;
+import com.jasonhhouse.plex.libs.PlexLibrary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.util.List;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class NotificationServiceTest {
 
+    private RecordingNotificationAgent recordingNotificationAgent;
+    private NotificationDispatcher notificationDispatcher;
     private NotificationService notificationService;
 
     @BeforeEach
     void setUp() {
-        List<NotificationAgent<? extends NotificationProperties>> notificationTypeList = new ArrayList<>();
-
-        notificationTypeList.add(new DiscordNotificationAgent(new FakeIoService()));
-        notificationTypeList.add(new EmailNotificationAgent(new FakeIoService()));
-        notificationTypeList.add(new GotifyNotificationAgent(new FakeIoService()));
-        notificationTypeList.add(new PushBulletNotificationAgent(new FakeIoService()));
-        notificationTypeList.add(new PushOverNotificationAgent(new FakeIoService()));
-        notificationTypeList.add(new SlackNotificationAgent(new FakeIoService()));
-        notificationTypeList.add(new TelegramNotificationAgent(new FakeIoService()));
+        recordingNotificationAgent = new RecordingNotificationAgent(List.of(NotificationType.TEST, NotificationType.PLEX_SERVER_CONNECTION));
+        List<NotificationAgent<? extends NotificationProperties>> notificationAgents = List.of(recordingNotificationAgent);
+        notificationDispatcher = new NotificationDispatcher(notificationAgents, new SimpleMeterRegistry(), 10, 1, Duration.ZERO, Duration.ofSeconds(5));
+        notificationService = new NotificationService(notificationAgents, notificationDispatcher);
+    }
 
-        notificationService = new NotificationService(notificationTypeList);
+    @AfterEach
+    void tearDown() {
+        notificationDispatcher.shutdown();
     }
 
     @Test
-    public void plexServerConnectFailed() {
+    public void plexServerConnectFailed() throws InterruptedException {
         PlexServer plexServer = new PlexServer();
         plexServer.setFriendlyName("Friendly Name");
         String error = "";
 
-        Boolean result = notificationService.plexServerConnectFailed(plexServer, error);
-        assertTrue(result, "Should have sent plex server connect failed message");
+        notificationService.plexServerConnectFailed(plexServer, error);
+        recordingNotificationAgent.awaitMessages(1);
+
+        assertEquals(List.of("Connection to Plex Server Friendly Name Failed. "), recordingNotificationAgent.getMessages(), "Should have sent plex server connect failed message");
     }
 
     @Test
     public void tmdbConnectionFailed() {
-        Boolean result = notificationService.tmdbConnectionFailed("");
-        assertFalse(result, "Should have failed to send plex server connect failed");
+        notificationService.tmdbConnectionFailed("");
+        notificationDispatcher.shutdown();
+
+        assertTrue(recordingNotificationAgent.getMessages().isEmpty(), "Should not send TMDB message to agent not enabled for it");
+    }
+
+    @Test
+    public void digestSendsOneMessagePerAgent() throws InterruptedException {
+        RecordingNotificationAgent searchAgent = new RecordingNotificationAgent(List.of(NotificationType.GAPS_MISSING_COLLECTIONS));
+        List<NotificationAgent<? extends NotificationProperties>> notificationAgents = List.of(recordingNotificationAgent, searchAgent);
+        NotificationDispatcher digestDispatcher = new NotificationDispatcher(notificationAgents, new SimpleMeterRegistry(), 10, 1, Duration.ZERO, Duration.ofSeconds(5));
+        NotificationService digestService = new NotificationService(notificationAgents, digestDispatcher);
+
+        PlexServer plexServer = new PlexServer();
+        plexServer.setFriendlyName("Friendly Name");
+        PlexLibrary movies = new PlexLibrary();
+        movies.setTitle("Movies");
+        PlexLibrary kids = new PlexLibrary();
+        kids.setTitle("Kids");
+
+        digestService.startDigest();
+        digestService.plexServerConnectSuccessful(plexServer);
+        digestService.recommendedMoviesSearchFinished(plexServer, movies, 3);
+        digestService.recommendedMoviesSearchFinished(plexServer, kids, 0);
+        assertTrue(searchAgent.getMessages().isEmpty(), "Should hold events back during the digest");
+        digestService.finishDigest();
+        digestDispatcher.shutdown();
+
+        assertEquals(List.of("Connection to Plex Server Friendly Name Successful"), recordingNotificationAgent.getMessages(), "Should only get the events it wants");
+        assertEquals(1, searchAgent.getMessages().size(), "Should get one message for both libraries");
+        assertTrue(searchAgent.getMessages().get(0).contains("Movies Successfully Finished. 3 new movies recommended"), "Should count new movies of first library");
+        assertTrue(searchAgent.getMessages().get(0).contains("Kids Successfully Finished. 0 new movies recommended"), "Should count new movies of second library");
+    }
+
+    @Test
+    public void testWaitsForResult() {
+        assertTrue(notificationService.test(), "Test message should be sent while waiting");
+        assertEquals(1, recordingNotificationAgent.getMessages().size(), "Should have sent the test message");
     }
-}
\ No newline at end of file
+}
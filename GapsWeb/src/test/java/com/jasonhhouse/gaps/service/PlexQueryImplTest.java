@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.jasonhhouse.gaps.BasicMovie;
+import com.jasonhhouse.gaps.GapsConfiguration;
+import com.jasonhhouse.gaps.GapsUrlGenerator;
+import com.jasonhhouse.gaps.PlexServer;
+import com.jasonhhouse.gaps.TestGapsConfiguration;
+import com.jasonhhouse.plex.libs.PlexLibrary;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlexQueryImplTest {
+
+    private final List<String> progressMessages = new CopyOnWriteArrayList<>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private HttpServer httpServer;
+    private SearchProgressPublisher searchProgressPublisher;
+    private PlexQueryImpl plexQuery;
+    private PlexServer plexServer;
+    private PlexLibrary plexLibrary;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        httpServer.createContext("/library/metadata", exchange -> {
+            requestCount.incrementAndGet();
+            String ratingKey = exchange.getRequestURI().getPath().substring("/library/metadata/".length());
+            byte[] body = ("<MediaContainer size=\"1\"><Video ratingKey=\"" + ratingKey + "\">" +
+                    "<Guid id=\"imdb://tt" + ratingKey + "\"/><Guid id=\"tmdb://" + ratingKey + "\"/></Video></MediaContainer>").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        httpServer.createContext("/library/sections/1/all", exchange -> {
+            //Promise more than is sent, like Plex going away part way through a large library
+            byte[] body = ("<MediaContainer size=\"2\"><Video title=\"Alien\" year=\"1979\" ratingKey=\"1\"/><Video title=").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length * 10L);
+            OutputStream outputStream = exchange.getResponseBody();
+            outputStream.write(body);
+            outputStream.flush();
+            exchange.close();
+        });
+        httpServer.start();
+
+        GapsConfiguration gapsConfiguration = TestGapsConfiguration.withoutFolder();
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> progressMessages.add((String) message.getPayload()));
+        searchProgressPublisher = new SearchProgressPublisher(template, Duration.ofHours(1));
+        plexQuery = new PlexQueryImpl(new GapsUrlGenerator(), searchProgressPublisher, gapsConfiguration, new OkHttpClient());
+
+        plexServer = new PlexServer("Plex", "machineIdentifier", "token", "localhost", httpServer.getAddress().getPort());
+        plexLibrary = new PlexLibrary();
+        plexLibrary.setKey(1);
+        plexLibrary.setTitle("Movies");
+        plexLibrary.setScanner("Plex Movie");
+    }
+
+    @AfterEach
+    void tearDown() {
+        httpServer.stop(0);
+        searchProgressPublisher.shutdown();
+    }
+
+    @Test
+    void findsIdsForEveryMovie() {
+        List<BasicMovie> basicMovies = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            basicMovies.add(new BasicMovie.Builder("Movie " + i, 2000).setRatingKey(i).build());
+        }
+
+        plexQuery.findAllMovieIds(basicMovies, plexServer, plexLibrary);
+
+        for (BasicMovie basicMovie : basicMovies) {
+            assertEquals(basicMovie.getRatingKey(), basicMovie.getTmdbId(), "Should set TMDB id from Plex");
+            assertEquals("tt" + basicMovie.getRatingKey(), basicMovie.getImdbId(), "Should set IMDB id from Plex");
+        }
+        assertEquals(50, requestCount.get(), "Should ask Plex once per movie");
+        assertTrue(progressMessages.size() <= 2, "Should sample progress instead of sending it for every movie");
+        assertTrue(progressMessages.get(progressMessages.size() - 1).contains("\"searchedMovieCount\":50"), "Should end with every movie resolved");
+    }
+
+    @Test
+    void reportsConnectionDroppedMidBodyAsConnectionError() {
+        HttpUrl url = HttpUrl.get("http://localhost:" + httpServer.getAddress().getPort() + "/library/sections/1/all");
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> plexQuery.findAllPlexMovies(new HashMap<>(), url));
+
+        assertEquals(HttpStatus.NOT_FOUND, e.getStatus(), "Should report a dropped connection like any other connection error");
+        assertTrue(e.getCause() instanceof IOException, "Should keep the IOException as cause, was " + e.getCause());
+    }
+
+    @Test
+    void skipsMoviesWithKnownIds() {
+        List<BasicMovie> basicMovies = Arrays.asList(
+                new BasicMovie.Builder("Alien", 1979).setRatingKey(1).setTmdbId(348).build(),
+                new BasicMovie.Builder("Aliens", 1986).setRatingKey(2).build(),
+                new BasicMovie.Builder("Alien 3", 1992).build());
+
+        plexQuery.findAllMovieIds(basicMovies, plexServer, plexLibrary);
+
+        assertEquals(1, requestCount.get(), "Should only ask Plex about the movie without ids");
+        assertEquals(348, basicMovies.get(0).getTmdbId(), "Should keep the known TMDB id");
+        assertEquals(2, basicMovies.get(1).getTmdbId(), "Should set TMDB id from Plex");
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.jasonhhouse.gaps.NotificationType;
+import com.jasonhhouse.gaps.notifications.NotificationAgent;
+import com.jasonhhouse.gaps.properties.SlackProperties;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Keeps every message it is asked to send instead of sending it, failing the first few tries if asked to
+ */
+public class RecordingNotificationAgent implements NotificationAgent<SlackProperties> {
+
+    private final List<NotificationType> notificationTypes;
+    private final List<String> messages;
+    private final AtomicInteger failuresLeft;
+    private final long delay;
+
+    public RecordingNotificationAgent(@NotNull List<NotificationType> notificationTypes) {
+        this(notificationTypes, 0, 0);
+    }
+
+    public RecordingNotificationAgent(@NotNull List<NotificationType> notificationTypes, int failures, long delay) {
+        this.notificationTypes = notificationTypes;
+        this.messages = new CopyOnWriteArrayList<>();
+        this.failuresLeft = new AtomicInteger(failures);
+        this.delay = delay;
+    }
+
+    @Override
+    public @NotNull Integer getId() {
+        return 99;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return "Recording Notification Agent";
+    }
+
+    @Override
+    public @NotNull Boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public @NotNull Boolean sendMessage(@NotNull NotificationType notificationType, @NotNull String level, @NotNull String title, @NotNull String message) {
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        if (failuresLeft.getAndDecrement() > 0) {
+            return false;
+        }
+
+        messages.add(message);
+        return true;
+    }
+
+    @Override
+    public @NotNull SlackProperties getNotificationProperties() {
+        return new SlackProperties(true, notificationTypes, "");
+    }
+
+    public @NotNull List<String> getMessages() {
+        return messages;
+    }
+
+    /**
+     * Waits until at least the given number of messages were sent or a few seconds passed
+     */
+    public void awaitMessages(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (messages.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Year;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The responses {@link ReplayServer} answers with. Requests are turned into a resource first:
+ * <ul>
+ *     <li>{@code 3/movie/{tmdbId}}</li>
+ *     <li>{@code 3/collection/{collectionId}}</li>
+ *     <li>{@code 3/find/{imdbId}}</li>
+ *     <li>{@code 3/search/movie/{year}/{query}}</li>
+ *     <li>{@code library/sections/{key}/all}</li>
+ * </ul>
+ */
+interface ReplayCorpus {
+
+    /**
+     * @return the body to answer with, null to answer with a TMDB not found
+     */
+    @Nullable String get(@NotNull String resource) throws IOException;
+
+    /**
+     * Responses recorded from TMDB and Plex, stored as one file per resource. TMDB responses end in .json, Plex
+     * responses in .xml, for example {@code 3/movie/348.json} or {@code library/sections/1/all.xml}.
+     */
+    static @NotNull ReplayCorpus recorded(@NotNull Path folder) {
+        return resource -> {
+            Path file = folder.resolve(resource + (resource.startsWith("library/") ? ".xml" : ".json")).normalize();
+            if (!file.startsWith(folder) || !Files.isRegularFile(file)) {
+                return null;
+            }
+            return Files.readString(file, StandardCharsets.UTF_8);
+        };
+    }
+
+    /**
+     * A made up library shaped like what TMDB and Plex send back, built as it is asked for so large libraries don't
+     * have to be held in memory.
+     * <p>
+     * Movie {@code i} has TMDB id {@code 100000 + i}. A third of the movies come from Plex with their TMDB id, a third
+     * with their IMDB id and the rest have to be searched for by title. Every tenth movie starts a collection made of
+     * it, the next three movies and two movies that are not in the library.
+     */
+    static @NotNull ReplayCorpus synthetic(int titles) {
+        return new Synthetic(titles);
+    }
+
+    final class Synthetic implements ReplayCorpus {
+
+        private static final int OWNED_ID = 100_000;
+        private static final int MISSING_ID = 900_000;
+        private static final int COLLECTION_ID = 500_000;
+        private static final int MISSING_PER_COLLECTION = 2;
+        private static final String[] WORDS = {"The", "Dark", "Return", "of", "Star", "Night", "Lost", "City", "King", "Last", "Man", "Story", "War", "Blue",
+                "Road", "Ghost", "Iron", "Wild", "Home", "Alone", "Rise", "Fall", "Empire"};
+
+        private final int titles;
+
+        private Synthetic(int titles) {
+            this.titles = titles;
+        }
+
+        /**
+         * @return how many movies the search should recommend, the movies in collections that are not owned
+         */
+        int missingMovies() {
+            return collections() * MISSING_PER_COLLECTION;
+        }
+
+        @Override
+        public @Nullable String get(@NotNull String resource) {
+            String[] parts = resource.split("/");
+            if (resource.startsWith("library/sections/")) {
+                return library();
+            } else if (resource.startsWith("3/movie/")) {
+                return movie(Integer.parseInt(parts[2]));
+            } else if (resource.startsWith("3/collection/")) {
+                return collection(Integer.parseInt(parts[2]) - COLLECTION_ID);
+            } else if (resource.startsWith("3/find/")) {
+                return find(Integer.parseInt(parts[2].substring(2)) - 1_000_000);
+            } else if (resource.startsWith("3/search/movie/")) {
+                String query = parts[parts.length - 1];
+                return search(Integer.parseInt(query.substring(query.lastIndexOf(' ') + 1)));
+            }
+            return null;
+        }
+
+        private int collections() {
+            return (titles + 9) / 10;
+        }
+
+        private boolean owned(int index) {
+            return index >= 0 && index < titles;
+        }
+
+        private static boolean inCollection(int index) {
+            return index % 10 < 4;
+        }
+
+        private static @NotNull String title(int index) {
+            return WORDS[index % WORDS.length] + ": " + WORDS[(index / WORDS.length + 3) % WORDS.length] + " " + index;
+        }
+
+        private static int year(int index) {
+            return 1950 + index % 70;
+        }
+
+        private static @NotNull String imdbId(int index) {
+            return String.format("tt%07d", 1_000_000 + index);
+        }
+
+        private @NotNull String library() {
+            StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                    .append("<MediaContainer size=\"").append(titles).append("\" librarySectionID=\"1\" librarySectionTitle=\"Movies\">");
+            for (int i = 0; i < titles; i++) {
+                String guid;
+                if (i % 3 == 0) {
+                    guid = "com.plexapp.agents.themoviedb://" + (OWNED_ID + i) + "?lang=en";
+                } else if (i % 3 == 1) {
+                    guid = "com.plexapp.agents.imdb://" + imdbId(i) + "?lang=en";
+                } else {
+                    guid = "plex://movie/" + Integer.toHexString(i);
+                }
+                xml.append("<Video ratingKey=\"").append(i).append("\" key=\"/library/metadata/").append(i).append("\" guid=\"").append(guid)
+                        .append("\" type=\"movie\" title=\"").append(title(i)).append("\" year=\"").append(year(i))
+                        .append("\" thumb=\"/library/metadata/").append(i).append("/thumb\" addedAt=\"1600000000\" updatedAt=\"1600000000\">")
+                        .append("<Media id=\"").append(i).append("\"><Part id=\"").append(i).append("\" file=\"/movies/").append(i).append(".mkv\"/></Media>")
+                        .append("</Video>");
+            }
+            return xml.append("</MediaContainer>").toString();
+        }
+
+        private @Nullable String movie(int tmdbId) {
+            if (owned(tmdbId - OWNED_ID)) {
+                int index = tmdbId - OWNED_ID;
+                String collection = inCollection(index) ? "{\"id\":" + (COLLECTION_ID + index / 10) + ",\"name\":\"Collection " + index / 10 + "\"}" : "null";
+                return details(tmdbId, title(index), year(index), imdbId(index), collection);
+            }
+
+            int missing = tmdbId - MISSING_ID;
+            if (missing >= 0 && missing < missingMovies()) {
+                int collection = missing / MISSING_PER_COLLECTION;
+                return details(tmdbId, missingTitle(missing), missingYear(missing), String.format("tt%07d", 5_000_000 + missing),
+                        "{\"id\":" + (COLLECTION_ID + collection) + ",\"name\":\"Collection " + collection + "\"}");
+            }
+            return null;
+        }
+
+        private @Nullable String collection(int collection) {
+            if (collection < 0 || collection >= collections()) {
+                return null;
+            }
+
+            StringBuilder parts = new StringBuilder();
+            for (int i = collection * 10; i < collection * 10 + 4 && owned(i); i++) {
+                parts.append(part(OWNED_ID + i, title(i), year(i))).append(',');
+            }
+            for (int k = 0; k < MISSING_PER_COLLECTION; k++) {
+                int missing = collection * MISSING_PER_COLLECTION + k;
+                parts.append(part(MISSING_ID + missing, missingTitle(missing), missingYear(missing))).append(',');
+            }
+            parts.setLength(parts.length() - 1);
+            return "{\"id\":" + (COLLECTION_ID + collection) + ",\"name\":\"Collection " + collection + "\",\"overview\":\"\",\"parts\":[" + parts + "]}";
+        }
+
+        private @Nullable String find(int index) {
+            if (!owned(index)) {
+                return "{\"movie_results\":[],\"person_results\":[],\"tv_results\":[]}";
+            }
+            return "{\"movie_results\":[" + part(OWNED_ID + index, title(index), year(index)) + "],\"person_results\":[],\"tv_results\":[]}";
+        }
+
+        private @Nullable String search(int index) {
+            if (!owned(index)) {
+                return "{\"page\":1,\"results\":[],\"total_results\":0}";
+            }
+            return "{\"page\":1,\"results\":[" + part(OWNED_ID + index, title(index), year(index)) + "],\"total_results\":1}";
+        }
+
+        private static @NotNull String missingTitle(int missing) {
+            return "Missing Part " + missing;
+        }
+
+        private static int missingYear(int missing) {
+            return Math.min(1990 + missing % 30, Year.now().getValue() - 1);
+        }
+
+        private static @NotNull String part(int tmdbId, @NotNull String title, int year) {
+            return "{\"id\":" + tmdbId + ",\"title\":\"" + title + "\",\"release_date\":\"" + year + "-06-01\",\"poster_path\":\"/" + tmdbId + ".jpg\"}";
+        }
+
+        private static @NotNull String details(int tmdbId, @NotNull String title, int year, @NotNull String imdbId, @NotNull String collection) {
+            return "{\"id\":" + tmdbId + ",\"title\":\"" + title + "\",\"release_date\":\"" + year + "-06-01\",\"imdb_id\":\"" + imdbId +
+                    "\",\"poster_path\":\"/" + tmdbId + ".jpg\",\"overview\":\"Overview of " + title + "\",\"runtime\":120,\"belongs_to_collection\":" + collection + "}";
+        }
+    }
+}
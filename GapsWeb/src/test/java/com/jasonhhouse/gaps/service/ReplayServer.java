@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Stands in for TMDB and a Plex server on localhost, answering from a {@link ReplayCorpus}. Every response is held
+ * back for the configured latency and every n-th TMDB call is answered with 429 to exercise the retry path.
+ */
+final class ReplayServer implements AutoCloseable {
+
+    private static final String NOT_FOUND = "{\"status_code\":34,\"status_message\":\"The resource you requested could not be found.\"}";
+
+    private final ReplayCorpus replayCorpus;
+    private final Duration latency;
+    private final int tooManyRequestsEvery;
+    private final int retryAfterSeconds;
+    private final HttpServer httpServer;
+    private final ExecutorService executorService;
+    private final AtomicInteger tmdbCalls;
+    private final AtomicInteger tooManyRequests;
+    private final AtomicInteger plexCalls;
+
+    /**
+     * @param tooManyRequestsEvery answer every n-th TMDB call with 429, 0 to never do that
+     */
+    ReplayServer(@NotNull ReplayCorpus replayCorpus, @NotNull Duration latency, int tooManyRequestsEvery, int retryAfterSeconds) throws IOException {
+        this.replayCorpus = replayCorpus;
+        this.latency = latency;
+        this.tooManyRequestsEvery = tooManyRequestsEvery;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.tmdbCalls = new AtomicInteger();
+        this.tooManyRequests = new AtomicInteger();
+        this.plexCalls = new AtomicInteger();
+        this.executorService = Executors.newCachedThreadPool(new CustomizableThreadFactory("Gaps-Replay-"));
+        this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.httpServer.setExecutor(executorService);
+        this.httpServer.createContext("/", this::handle);
+        this.httpServer.start();
+    }
+
+    int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * @return TMDB calls answered, including the ones answered with 429
+     */
+    int getTmdbCalls() {
+        return tmdbCalls.get();
+    }
+
+    int getTooManyRequests() {
+        return tooManyRequests.get();
+    }
+
+    int getPlexCalls() {
+        return plexCalls.get();
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executorService.shutdownNow();
+    }
+
+    private void handle(@NotNull HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!latency.isZero()) {
+                Thread.sleep(latency.toMillis());
+            }
+
+            String path = exchange.getRequestURI().getPath().substring(1);
+            if (path.startsWith("library/")) {
+                plexCalls.incrementAndGet();
+                respond(exchange, 200, "application/xml", replayCorpus.get(path));
+                return;
+            }
+
+            int call = tmdbCalls.incrementAndGet();
+            if (tooManyRequestsEvery > 0 && call % tooManyRequestsEvery == 0) {
+                tooManyRequests.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", String.valueOf(retryAfterSeconds));
+                respond(exchange, 429, "application/json", "{\"status_code\":25,\"status_message\":\"Your request count is over the allowed limit.\"}");
+                return;
+            }
+
+            String body = replayCorpus.get(resource(path, exchange.getRequestURI().getRawQuery()));
+            if (body == null) {
+                respond(exchange, 404, "application/json", NOT_FOUND);
+            } else {
+                respond(exchange, 200, "application/json", body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static @NotNull String resource(@NotNull String path, @Nullable String rawQuery) {
+        if (!path.equals("3/search/movie")) {
+            return path;
+        }
+
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                int equals = parameter.indexOf('=');
+                if (equals > 0) {
+                    parameters.put(parameter.substring(0, equals), URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        //Gaps encodes the title before adding it to the url, undo that too
+        String query = URLDecoder.decode(parameters.getOrDefault("query", ""), StandardCharsets.UTF_8);
+        return path + "/" + parameters.getOrDefault("year", "") + "/" + query;
+    }
+
+    private static void respond(@NotNull HttpExchange exchange, int code, @NotNull String contentType, @Nullable String body) throws IOException {
+        byte[] bytes = (body == null ? "" : body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(code, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.jasonhhouse.gaps.BasicMovie;
+import com.jasonhhouse.gaps.MovieIndex;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RssPublisherTest {
+
+    private static final String MACHINE_IDENTIFIER = "abc123";
+    private static final Integer KEY = 1;
+
+    @Test
+    void writesEveryFewMovies() {
+        CountingIoService countingIoService = new CountingIoService();
+        RssPublisher rssPublisher = new RssPublisher(countingIoService, Duration.ofHours(1), 3);
+        MovieIndex recommended = new MovieIndex();
+
+        for (int i = 0; i < 7; i++) {
+            recommended.add(new BasicMovie.Builder("Movie " + i, 2000 + i).setTmdbId(i).build());
+            rssPublisher.movieAdded(MACHINE_IDENTIFIER, KEY, recommended);
+        }
+
+        assertEquals(List.of(3, 6), countingIoService.writes, "Should only write after every third movie");
+
+        rssPublisher.finish(MACHINE_IDENTIFIER, KEY, recommended);
+        assertEquals(List.of(3, 6, 7), countingIoService.writes, "Should write the rest when the search ends");
+        rssPublisher.shutdown();
+    }
+
+    @Test
+    void writesAfterInterval() throws InterruptedException {
+        CountingIoService countingIoService = new CountingIoService();
+        RssPublisher rssPublisher = new RssPublisher(countingIoService, Duration.ofMillis(50), 100);
+        MovieIndex recommended = new MovieIndex();
+
+        recommended.add(new BasicMovie.Builder("Alien", 1979).setTmdbId(348).build());
+        rssPublisher.movieAdded(MACHINE_IDENTIFIER, KEY, recommended);
+        recommended.add(new BasicMovie.Builder("Aliens", 1986).setTmdbId(679).build());
+        rssPublisher.movieAdded(MACHINE_IDENTIFIER, KEY, recommended);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (countingIoService.writes.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(List.of(2), countingIoService.writes, "Should write both movies once after the interval");
+        rssPublisher.shutdown();
+    }
+
+    @Test
+    void finishWritesWithoutNewMovies() {
+        CountingIoService countingIoService = new CountingIoService();
+        RssPublisher rssPublisher = new RssPublisher(countingIoService, Duration.ofHours(1), 3);
+
+        rssPublisher.finish(MACHINE_IDENTIFIER, KEY, new MovieIndex());
+
+        assertEquals(List.of(0), countingIoService.writes, "Should always write the feed when the search ends");
+        rssPublisher.shutdown();
+    }
+
+    private static final class CountingIoService extends FileIoService {
+        private final List<Integer> writes = new CopyOnWriteArrayList<>();
+
+        CountingIoService() {
+            super(null);
+        }
+
+        @Override
+        public void writeRssFile(@NotNull String machineIdentifier, @NotNull Integer key, @NotNull Set<BasicMovie> recommended) {
+            writes.add(recommended.size());
+        }
+    }
+}
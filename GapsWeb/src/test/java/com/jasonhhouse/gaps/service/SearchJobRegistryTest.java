@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.jasonhhouse.gaps.SearchJob;
+import com.jasonhhouse.gaps.SearchMode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchJobRegistryTest {
+
+    private static final String MACHINE_IDENTIFIER = "abc123";
+
+    @Test
+    void runsOneJobPerLibrary() {
+        SearchJobRegistry searchJobRegistry = new SearchJobRegistry();
+
+        SearchJob first = searchJobRegistry.start(MACHINE_IDENTIFIER, 1, SearchMode.FULL);
+        SearchJob other = searchJobRegistry.start(MACHINE_IDENTIFIER, 2, SearchMode.FULL);
+
+        assertNotNull(first);
+        assertNotNull(other, "Should search another library at the same time");
+        assertNull(searchJobRegistry.start(MACHINE_IDENTIFIER, 1, SearchMode.INCREMENTAL), "Should not search a library twice");
+        assertEquals(2, searchJobRegistry.getJobs().size());
+
+        searchJobRegistry.finish(first);
+
+        assertNotNull(searchJobRegistry.start(MACHINE_IDENTIFIER, 1, SearchMode.INCREMENTAL), "Should search the library again once the job finished");
+    }
+
+    @Test
+    void cancelsOnlyOneLibrary() {
+        SearchJobRegistry searchJobRegistry = new SearchJobRegistry();
+        SearchJob first = searchJobRegistry.start(MACHINE_IDENTIFIER, 1, SearchMode.FULL);
+        SearchJob other = searchJobRegistry.start(MACHINE_IDENTIFIER, 2, SearchMode.FULL);
+
+        assertTrue(searchJobRegistry.cancel(MACHINE_IDENTIFIER, 1));
+        assertFalse(searchJobRegistry.cancel(MACHINE_IDENTIFIER, 3), "Should not find a job for a library that isn't searched");
+
+        assertTrue(first.isCancelled());
+        assertFalse(other.isCancelled(), "Should keep searching the other library");
+    }
+
+    @Test
+    void finishKeepsNewerJob() {
+        SearchJobRegistry searchJobRegistry = new SearchJobRegistry();
+        SearchJob first = searchJobRegistry.start(MACHINE_IDENTIFIER, 1, SearchMode.FULL);
+        searchJobRegistry.finish(first);
+        SearchJob second = searchJobRegistry.start(MACHINE_IDENTIFIER, 1, SearchMode.FULL);
+
+        searchJobRegistry.finish(first);
+
+        assertEquals(second, searchJobRegistry.find(MACHINE_IDENTIFIER, 1), "Should not forget a newer job of the library");
+        assertTrue(searchJobRegistry.isSearching());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jasonhhouse.gaps.SearchMode;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import okhttp3.HttpUrl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class SearchMetricsTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path folder;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TmdbDetailCache tmdbDetailCache;
+    private SearchMetrics searchMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        tmdbDetailCache = new TmdbDetailCache(folder.resolve("movieDetails.json"), 10, Duration.ofDays(30));
+        TmdbCollectionCache tmdbCollectionCache = new TmdbCollectionCache(folder.resolve("collections.json"), Duration.ofDays(7));
+        searchMetrics = new SearchMetrics(meterRegistry, tmdbDetailCache, tmdbCollectionCache);
+    }
+
+    @Test
+    void timesTmdbRequestsByEndpoint() {
+        searchMetrics.recordTmdbRequest(HttpUrl.get("https://api.themoviedb.org/3/search/movie?query=Alien"), 200, TimeUnit.MILLISECONDS.toNanos(20));
+        searchMetrics.recordTmdbRequest(HttpUrl.get("https://api.themoviedb.org/3/collection/8091"), 200, TimeUnit.MILLISECONDS.toNanos(30));
+        searchMetrics.recordTmdbRequest(HttpUrl.get("https://api.themoviedb.org/3/collection/8091"), 200, TimeUnit.MILLISECONDS.toNanos(40));
+
+        Timer collectionTimer = meterRegistry.find(SearchMetrics.TMDB_REQUESTS).tag("endpoint", "collection").timer();
+        assertNotNull(collectionTimer, "Should time collection calls");
+        assertEquals(2, collectionTimer.count(), "Should count both collection calls");
+        assertEquals(1, meterRegistry.find(SearchMetrics.TMDB_REQUESTS).tag("endpoint", "search").timer().count(), "Should time search calls separately");
+    }
+
+    @Test
+    void countsCacheHitsAndMisses() throws IOException {
+        tmdbDetailCache.getDetails(11, "en", () -> objectMapper.createObjectNode().put("id", 11));
+        tmdbDetailCache.getDetails(11, "en", () -> objectMapper.createObjectNode().put("id", 11));
+
+        assertEquals(1, meterRegistry.find(SearchMetrics.TMDB_CACHE).tags("cache", "details", "result", "hit").functionCounter().count(), "Should count the hit");
+        assertEquals(1, meterRegistry.find(SearchMetrics.TMDB_CACHE).tags("cache", "details", "result", "miss").functionCounter().count(), "Should count the miss");
+    }
+
+    @Test
+    void tracksSearchProgress() {
+        searchMetrics.searchStarted(3);
+        searchMetrics.movieSearched();
+
+        assertEquals(2, meterRegistry.find(SearchMetrics.SEARCH_QUEUE).gauge().value(), "Should have two movies left");
+        assertEquals(1, meterRegistry.find(SearchMetrics.SEARCH_PROCESSED).gauge().value(), "Should have one movie searched");
+
+        searchMetrics.searchFinished("machineIdentifier", 1, SearchMode.FULL, TimeUnit.SECONDS.toNanos(5));
+        searchMetrics.searchStopped(2);
+
+        assertEquals(0, meterRegistry.find(SearchMetrics.SEARCH_QUEUE).gauge().value(), "Should have nothing queued after the search");
+        assertEquals(1, meterRegistry.find(SearchMetrics.SEARCH_DURATION).tag("library", "1").timer().count(), "Should record the search duration per library");
+    }
+
+    @Test
+    void queuesMoviesOfConcurrentSearches() {
+        searchMetrics.searchStarted(3);
+        searchMetrics.searchStarted(4);
+        searchMetrics.movieSearched();
+
+        assertEquals(6, meterRegistry.find(SearchMetrics.SEARCH_QUEUE).gauge().value(), "Should queue the movies of both searches");
+
+        searchMetrics.searchStopped(2);
+
+        assertEquals(4, meterRegistry.find(SearchMetrics.SEARCH_QUEUE).gauge().value(), "Should keep the movies of the other search");
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jasonhhouse.gaps.BasicMovie;
+import com.jasonhhouse.gaps.SearchJob;
+import com.jasonhhouse.gaps.SearchProgress;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchProgressPublisherTest {
+
+    private static final String MACHINE_IDENTIFIER = "abc123";
+    private static final Integer KEY = 1;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<String[]> messages = new CopyOnWriteArrayList<>();
+    private final SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) ->
+            messages.add(new String[]{SimpMessageHeaderAccessor.getDestination(message.getHeaders()), (String) message.getPayload()}));
+
+    @Test
+    void coalescesProgressBetweenTicks() throws Exception {
+        SearchProgressPublisher publisher = new SearchProgressPublisher(template, Duration.ofHours(1));
+        AtomicInteger searchedMovieCount = new AtomicInteger();
+
+        publisher.start(MACHINE_IDENTIFIER, KEY, 100, searchedMovieCount);
+        awaitMessages(SearchProgressPublisher.SEARCH_PROGRESS_URL, 1);
+
+        for (int i = 0; i < 100; i++) {
+            searchedMovieCount.incrementAndGet();
+        }
+        publisher.movieFound(MACHINE_IDENTIFIER, KEY, new BasicMovie.Builder("Alien", 1979).setTmdbId(348).build());
+        publisher.movieFound(MACHINE_IDENTIFIER, KEY, new BasicMovie.Builder("Aliens", 1986).setTmdbId(679).build());
+
+        assertEquals(2, payloads(SearchProgressPublisher.NEW_MOVIE_FOUND_URL).size(), "Should send each new movie in full");
+        assertEquals(1, payloads(SearchProgressPublisher.SEARCH_PROGRESS_URL).size(), "Should wait for the next tick");
+
+        publisher.finish(MACHINE_IDENTIFIER, KEY);
+
+        List<JsonNode> progress = payloads(SearchProgressPublisher.SEARCH_PROGRESS_URL);
+        assertEquals(2, progress.size(), "Should send one more delta when the search ends");
+        JsonNode last = progress.get(1);
+        assertEquals(100, last.get("searchedMovieCount").intValue());
+        assertFalse(last.get("searching").booleanValue());
+        assertEquals("[348,679]", last.get("tmdbIds").toString());
+        assertFalse(last.has("movies"), "Deltas should not carry movies");
+        publisher.shutdown();
+    }
+
+    @Test
+    void sendsOnlyWhenSomethingChanged() throws Exception {
+        SearchProgressPublisher publisher = new SearchProgressPublisher(template, Duration.ofMillis(10));
+        AtomicInteger searchedMovieCount = new AtomicInteger();
+
+        publisher.start(MACHINE_IDENTIFIER, KEY, 10, searchedMovieCount);
+        awaitMessages(SearchProgressPublisher.SEARCH_PROGRESS_URL, 1);
+        Thread.sleep(100);
+        assertEquals(1, payloads(SearchProgressPublisher.SEARCH_PROGRESS_URL).size(), "Should not repeat unchanged progress");
+
+        searchedMovieCount.set(5);
+        awaitMessages(SearchProgressPublisher.SEARCH_PROGRESS_URL, 2);
+        assertEquals(5, payloads(SearchProgressPublisher.SEARCH_PROGRESS_URL).get(1).get("searchedMovieCount").intValue());
+
+        publisher.finish(MACHINE_IDENTIFIER, KEY);
+        publisher.shutdown();
+    }
+
+    @Test
+    void snapshotCatchesUpWithSearch() {
+        SearchProgressPublisher publisher = new SearchProgressPublisher(template, Duration.ofHours(1));
+        assertNull(publisher.snapshot(MACHINE_IDENTIFIER, KEY), "Should not have a snapshot before a search");
+
+        AtomicInteger searchedMovieCount = new AtomicInteger(3);
+        publisher.start(MACHINE_IDENTIFIER, KEY, 10, searchedMovieCount);
+        publisher.movieFound(MACHINE_IDENTIFIER, KEY, new BasicMovie.Builder("Alien", 1979).setTmdbId(348).build());
+
+        SearchProgress snapshot = publisher.snapshot(MACHINE_IDENTIFIER, KEY);
+        assertTrue(snapshot.isSearching());
+        assertEquals(3, snapshot.getSearchedMovieCount());
+        assertEquals(10, snapshot.getTotalMovieCount());
+        assertEquals(List.of(348), snapshot.getTmdbIds());
+        assertEquals(1, snapshot.getMovies().size());
+
+        publisher.finish(MACHINE_IDENTIFIER, KEY);
+        assertFalse(publisher.snapshot(MACHINE_IDENTIFIER, KEY).isSearching(), "Should keep the snapshot after the search");
+        publisher.shutdown();
+    }
+
+    @Test
+    void sendsMetadataProgressOnItsOwnTopic() throws Exception {
+        SearchProgressPublisher publisher = new SearchProgressPublisher(template, Duration.ofHours(1));
+        AtomicInteger resolvedMovieCount = new AtomicInteger(2);
+
+        publisher.startMetadata(MACHINE_IDENTIFIER, KEY, 10, resolvedMovieCount);
+        awaitMessages(SearchProgressPublisher.PLEX_METADATA_PROGRESS_URL, 1);
+        resolvedMovieCount.set(10);
+        publisher.finishMetadata(MACHINE_IDENTIFIER, KEY);
+
+        List<JsonNode> progress = payloads(SearchProgressPublisher.PLEX_METADATA_PROGRESS_URL);
+        assertEquals(2, progress.size(), "Should send the first and the last count");
+        assertEquals(10, progress.get(1).get("searchedMovieCount").intValue());
+        assertFalse(progress.get(1).get("searching").booleanValue());
+        assertTrue(payloads(SearchProgressPublisher.SEARCH_PROGRESS_URL).isEmpty(), "Should not send search progress");
+        assertNull(publisher.snapshot(MACHINE_IDENTIFIER, KEY), "Should not replace the snapshot of the last search");
+        publisher.shutdown();
+    }
+
+    private void awaitMessages(@NotNull String destination, int count) throws InterruptedException, IOException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (payloads(destination).size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private @NotNull List<JsonNode> payloads(@NotNull String destination) throws IOException {
+        String topic = SearchJob.topic(destination, MACHINE_IDENTIFIER, KEY);
+        List<String> bodies = messages.stream().filter(message -> topic.equals(message[0])).map(message -> message[1]).collect(Collectors.toList());
+        List<JsonNode> jsonNodes = new CopyOnWriteArrayList<>();
+        for (String body : bodies) {
+            jsonNodes.add(objectMapper.readTree(body));
+        }
+        return jsonNodes;
+    }
+}
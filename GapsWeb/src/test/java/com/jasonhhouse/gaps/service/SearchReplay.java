@@ -0,0 +1,268 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.jasonhhouse.gaps.BasicMovie;
+import com.jasonhhouse.gaps.GapsConfiguration;
+import com.jasonhhouse.gaps.GapsUrlGenerator;
+import com.jasonhhouse.gaps.PlexServer;
+import com.jasonhhouse.gaps.SearchMode;
+import com.jasonhhouse.gaps.TestGapsConfiguration;
+import com.jasonhhouse.gaps.UrlGenerator;
+import com.jasonhhouse.gaps.properties.PlexProperties;
+import com.jasonhhouse.plex.libs.PlexLibrary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+/**
+ * Runs a whole library scan and search against a {@link ReplayServer}, with the real services wired the way Spring
+ * wires them, and reports how fast it went.
+ */
+final class SearchReplay {
+
+    static final String MACHINE_IDENTIFIER = "replay";
+    static final int KEY = 1;
+
+    private final Path folder;
+    private final ReplayCorpus replayCorpus;
+    private final Duration latency;
+    private final int tooManyRequestsEvery;
+    private final int requestsPerSecond;
+
+    /**
+     * @param requestsPerSecond TMDB rate limit to search with, TMDB itself allows about 40
+     */
+    SearchReplay(@NotNull Path folder, @NotNull ReplayCorpus replayCorpus, @NotNull Duration latency, int tooManyRequestsEvery, int requestsPerSecond) {
+        this.folder = folder;
+        this.replayCorpus = replayCorpus;
+        this.latency = latency;
+        this.tooManyRequestsEvery = tooManyRequestsEvery;
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    @NotNull Report run() throws IOException {
+        GapsConfiguration gapsConfiguration = TestGapsConfiguration.withFolder(folder, TestGapsConfiguration.tmdb(requestsPerSecond));
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> true);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OkHttpClient client = new OkHttpClient();
+
+        try (ReplayServer replayServer = new ReplayServer(replayCorpus, latency, tooManyRequestsEvery, 0)) {
+            UrlGenerator urlGenerator = new ReplayUrlGenerator(replayServer.getPort());
+            FileIoService fileIoService = new FileIoService(gapsConfiguration);
+            NotificationDispatcher notificationDispatcher = new NotificationDispatcher(List.of(), meterRegistry, gapsConfiguration);
+            NotificationService notificationService = new NotificationService(List.of(), notificationDispatcher);
+            TmdbCollectionCache tmdbCollectionCache = new TmdbCollectionCache(gapsConfiguration);
+            TmdbDetailCache tmdbDetailCache = new TmdbDetailCache(gapsConfiguration);
+            RssPublisher rssPublisher = new RssPublisher(fileIoService, gapsConfiguration);
+            SearchProgressPublisher searchProgressPublisher = new SearchProgressPublisher(template, gapsConfiguration);
+            GapsSearchService gapsSearchService = new GapsSearchService(urlGenerator, template, fileIoService, new TmdbService(client), notificationService,
+                    new TmdbRateLimiter(gapsConfiguration), tmdbCollectionCache, tmdbDetailCache, gapsConfiguration, client,
+                    new SearchMetrics(meterRegistry, tmdbDetailCache, tmdbCollectionCache), rssPublisher, searchProgressPublisher, new SearchJobRegistry());
+
+            try {
+                PlexServer plexServer = new PlexServer("Replay", MACHINE_IDENTIFIER, "token", "localhost", replayServer.getPort());
+                PlexLibrary plexLibrary = new PlexLibrary();
+                plexLibrary.setKey(KEY);
+                plexLibrary.setTitle("Movies");
+                plexServer.getPlexLibraries().add(plexLibrary);
+                PlexProperties plexProperties = new PlexProperties();
+                plexProperties.setMovieDbApiKey("replay");
+                plexProperties.addPlexServer(plexServer);
+                fileIoService.writeProperties(plexProperties);
+
+                long heapBefore = resetHeapPeak();
+                long start = System.nanoTime();
+
+                PlexQuery plexQuery = new PlexQueryImpl(urlGenerator, searchProgressPublisher, gapsConfiguration, client);
+                List<BasicMovie> ownedBasicMovies = plexQuery.findAllPlexMovies(new HashMap<>(), urlGenerator.generatePlexLibraryUrl(plexServer, plexLibrary));
+                fileIoService.writeOwnedMoviesToFile(ownedBasicMovies, MACHINE_IDENTIFIER, KEY);
+
+                gapsSearchService.run(MACHINE_IDENTIFIER, KEY, SearchMode.FULL);
+
+                Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+                long heapPeak = heapPeak() - heapBefore;
+                int recommended = fileIoService.readRecommendedMovies(MACHINE_IDENTIFIER, KEY).size();
+
+                return new Report(ownedBasicMovies.size(), recommended, elapsed, replayServer.getTmdbCalls(), replayServer.getTooManyRequests(), replayServer.getPlexCalls(), heapPeak);
+            } finally {
+                gapsSearchService.shutdown();
+                searchProgressPublisher.shutdown();
+                rssPublisher.shutdown();
+                tmdbDetailCache.shutdown();
+                tmdbCollectionCache.shutdown();
+                notificationDispatcher.shutdown();
+                fileIoService.stopWatchingProperties();
+            }
+        }
+    }
+
+    /**
+     * @return heap in use after a collection, the peak starts counting from here
+     */
+    private static long resetHeapPeak() {
+        System.gc();
+        long used = 0;
+        for (MemoryPoolMXBean memoryPoolMXBean : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPoolMXBean.getType() == MemoryType.HEAP) {
+                memoryPoolMXBean.resetPeakUsage();
+                used += memoryPoolMXBean.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    private static long heapPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean memoryPoolMXBean : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPoolMXBean.getType() == MemoryType.HEAP) {
+                peak += memoryPoolMXBean.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    static final class Report {
+        private final int ownedMovies;
+        private final int recommended;
+        private final Duration elapsed;
+        private final int tmdbCalls;
+        private final int tooManyRequests;
+        private final int plexCalls;
+        private final long heapPeak;
+
+        Report(int ownedMovies, int recommended, @NotNull Duration elapsed, int tmdbCalls, int tooManyRequests, int plexCalls, long heapPeak) {
+            this.ownedMovies = ownedMovies;
+            this.recommended = recommended;
+            this.elapsed = elapsed;
+            this.tmdbCalls = tmdbCalls;
+            this.tooManyRequests = tooManyRequests;
+            this.plexCalls = plexCalls;
+            this.heapPeak = heapPeak;
+        }
+
+        int getOwnedMovies() {
+            return ownedMovies;
+        }
+
+        int getRecommended() {
+            return recommended;
+        }
+
+        int getTmdbCalls() {
+            return tmdbCalls;
+        }
+
+        int getTooManyRequests() {
+            return tooManyRequests;
+        }
+
+        int getPlexCalls() {
+            return plexCalls;
+        }
+
+        /**
+         * @return owned movies searched per minute
+         */
+        double getMoviesPerMinute() {
+            return ownedMovies * 60_000.0 / Math.max(1, elapsed.toMillis());
+        }
+
+        /**
+         * @return whole library searches per minute
+         */
+        double getSearchesPerMinute() {
+            return 60_000.0 / Math.max(1, elapsed.toMillis());
+        }
+
+        double getTmdbCallsPerOwnedMovie() {
+            return ownedMovies == 0 ? 0 : tmdbCalls / (double) ownedMovies;
+        }
+
+        /**
+         * @return most heap in use during the run above what was in use before it, in bytes
+         */
+        long getHeapPeak() {
+            return heapPeak;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d movies in %d ms: %.2f searches/min, %.0f movies/min, %.2f TMDB calls per movie (%d calls, %d answered 429), %d Plex calls, %d recommended, heap peak %d MB",
+                    ownedMovies, elapsed.toMillis(), getSearchesPerMinute(), getMoviesPerMinute(), getTmdbCallsPerOwnedMovie(), tmdbCalls, tooManyRequests, plexCalls, recommended,
+                    heapPeak / (1024 * 1024));
+        }
+    }
+
+    /**
+     * Builds the same urls as {@link GapsUrlGenerator}, but sends the TMDB ones to the replay server too
+     */
+    private static final class ReplayUrlGenerator implements UrlGenerator {
+        private final GapsUrlGenerator gapsUrlGenerator;
+        private final int port;
+
+        private ReplayUrlGenerator(int port) {
+            this.gapsUrlGenerator = new GapsUrlGenerator();
+            this.port = port;
+        }
+
+        @Override
+        public @NotNull HttpUrl generateSearchMovieUrl(@NotNull String movieDbKey, @NotNull String query, @NotNull String year, @NotNull String language) {
+            return toReplay(gapsUrlGenerator.generateSearchMovieUrl(movieDbKey, query, year, language));
+        }
+
+        @Override
+        public @NotNull HttpUrl generateFindMovieUrl(@NotNull String movieDbKey, @NotNull String imdbId, @NotNull String language) {
+            return toReplay(gapsUrlGenerator.generateFindMovieUrl(movieDbKey, imdbId, language));
+        }
+
+        @Override
+        public @NotNull HttpUrl generateMovieDetailUrl(@NotNull String movieDbKey, @NotNull String movieId, @NotNull String language) {
+            return toReplay(gapsUrlGenerator.generateMovieDetailUrl(movieDbKey, movieId, language));
+        }
+
+        @Override
+        public @NotNull HttpUrl generateCollectionUrl(@NotNull String movieDbKey, @NotNull String collectionId, @NotNull String language) {
+            return toReplay(gapsUrlGenerator.generateCollectionUrl(movieDbKey, collectionId, language));
+        }
+
+        @Override
+        public @Nullable HttpUrl generatePlexUrl(@NotNull String plexUrl) {
+            return gapsUrlGenerator.generatePlexUrl(plexUrl);
+        }
+
+        @Override
+        public @Nullable HttpUrl generatePlexLibraryUrl(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary) {
+            return gapsUrlGenerator.generatePlexLibraryUrl(plexServer, plexLibrary);
+        }
+
+        @Override
+        public @NotNull HttpUrl generatePlexMetadataUrl(@NotNull PlexServer plexServer, @NotNull PlexLibrary plexLibrary, @NotNull Integer ratingKey) {
+            return gapsUrlGenerator.generatePlexMetadataUrl(plexServer, plexLibrary, ratingKey);
+        }
+
+        private @NotNull HttpUrl toReplay(@NotNull HttpUrl url) {
+            return url.newBuilder().scheme("http").host("localhost").port(port).build();
+        }
+    }
+}
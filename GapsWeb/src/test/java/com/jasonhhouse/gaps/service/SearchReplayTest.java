@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchReplayTest {
+
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(SearchReplayTest.class);
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void searchesWholeLibraryThroughRateLimits() throws IOException {
+        ReplayCorpus.Synthetic replayCorpus = (ReplayCorpus.Synthetic) ReplayCorpus.synthetic(200);
+
+        SearchReplay.Report report = quietly(() -> new SearchReplay(folder, replayCorpus, Duration.ofMillis(1), 50, 10_000).run());
+
+        LOGGER.info("{}", report);
+        assertEquals(200, report.getOwnedMovies(), "Should read every movie from the Plex stand in");
+        assertEquals(1, report.getPlexCalls(), "Should read the library in one call");
+        assertEquals(replayCorpus.missingMovies(), report.getRecommended(), "Should recommend every missing movie even with some calls answered 429");
+        assertTrue(report.getTooManyRequests() > 0, "Should have retried calls answered 429");
+        //Owned movies need at most a lookup and their details, each collection adds itself and the details of what's missing
+        assertTrue(report.getTmdbCallsPerOwnedMovie() < 2.5, "Should not call TMDB more than needed, was " + report.getTmdbCallsPerOwnedMovie());
+    }
+
+    @Test
+    void doesNotRecommendOwnedMovieTitledDifferentlyOnTmdb() throws IOException {
+        //Plex only knows the movie by its own title, TMDB lists it in the collection under another one
+        ReplayCorpus replayCorpus = resource -> {
+            if (resource.startsWith("library/sections/")) {
+                return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><MediaContainer size=\"1\" librarySectionID=\"1\" librarySectionTitle=\"Movies\">" +
+                        "<Video ratingKey=\"1\" key=\"/library/metadata/1\" guid=\"plex://movie/1\" type=\"movie\" title=\"Harry Potter 1\" year=\"2001\" " +
+                        "thumb=\"/library/metadata/1/thumb\" addedAt=\"1600000000\" updatedAt=\"1600000000\">" +
+                        "<Media id=\"1\"><Part id=\"1\" file=\"/movies/1.mkv\"/></Media></Video></MediaContainer>";
+            } else if (resource.startsWith("3/search/movie/")) {
+                return "{\"page\":1,\"results\":[{\"id\":671,\"title\":\"Harry Potter and the Philosopher's Stone\",\"release_date\":\"2001-11-16\"}],\"total_results\":1}";
+            } else if (resource.equals("3/movie/671")) {
+                return "{\"id\":671,\"title\":\"Harry Potter and the Philosopher's Stone\",\"release_date\":\"2001-11-16\",\"imdb_id\":\"tt0241527\",\"poster_path\":\"/671.jpg\"," +
+                        "\"overview\":\"\",\"belongs_to_collection\":{\"id\":1241,\"name\":\"Harry Potter Collection\"}}";
+            } else if (resource.equals("3/movie/672")) {
+                return "{\"id\":672,\"title\":\"Harry Potter and the Chamber of Secrets\",\"release_date\":\"2002-11-13\",\"imdb_id\":\"tt0295297\",\"poster_path\":\"/672.jpg\"," +
+                        "\"overview\":\"\",\"belongs_to_collection\":{\"id\":1241,\"name\":\"Harry Potter Collection\"}}";
+            } else if (resource.equals("3/collection/1241")) {
+                return "{\"id\":1241,\"name\":\"Harry Potter Collection\",\"overview\":\"\",\"parts\":[" +
+                        "{\"id\":671,\"title\":\"Harry Potter and the Philosopher's Stone\",\"release_date\":\"2001-11-16\",\"poster_path\":\"/671.jpg\"}," +
+                        "{\"id\":672,\"title\":\"Harry Potter and the Chamber of Secrets\",\"release_date\":\"2002-11-13\",\"poster_path\":\"/672.jpg\"}]}";
+            }
+            return null;
+        };
+
+        SearchReplay.Report report = quietly(() -> new SearchReplay(folder, replayCorpus, Duration.ZERO, 0, 10_000).run());
+
+        assertEquals(1, report.getOwnedMovies(), "Should read the movie from the Plex stand in");
+        assertEquals(1, report.getRecommended(), "Should only recommend the part of the collection that is not owned");
+    }
+
+    /**
+     * Measures how the search scales, run with:
+     * <pre>
+     * mvn test -pl GapsWeb -am -Dtest=SearchReplayTest -Dgaps.replay.sizes=1000,10000,50000
+     * </pre>
+     * Set gaps.replay.corpus to a folder of recorded responses to replay those instead of a made up library.
+     * gaps.replay.latency, gaps.replay.tooManyRequestsEvery and gaps.replay.requestsPerSecond tune the stand in.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "gaps.replay.sizes", matches = ".+")
+    void reportsScaling() throws IOException {
+        Duration latency = Duration.ofMillis(Long.getLong("gaps.replay.latency", 20));
+        int tooManyRequestsEvery = Integer.getInteger("gaps.replay.tooManyRequestsEvery", 100);
+        int requestsPerSecond = Integer.getInteger("gaps.replay.requestsPerSecond", 10_000);
+        String corpus = System.getProperty("gaps.replay.corpus");
+
+        for (String size : System.getProperty("gaps.replay.sizes").split(",")) {
+            ReplayCorpus replayCorpus = corpus == null ? ReplayCorpus.synthetic(Integer.parseInt(size.trim())) : ReplayCorpus.recorded(Paths.get(corpus));
+            Path runFolder = Files.createDirectory(folder.resolve(size.trim()));
+
+            SearchReplay.Report report = quietly(() -> new SearchReplay(runFolder, replayCorpus, latency, tooManyRequestsEvery, requestsPerSecond).run());
+
+            LOGGER.info("Replay {}", report);
+            assertTrue(report.getOwnedMovies() > 0, "Should have searched the replayed library");
+        }
+    }
+
+    /**
+     * The search logs every movie, which would slow down and drown out large runs
+     */
+    private static SearchReplay.Report quietly(Replay replay) throws IOException {
+        Logger logger = (Logger) LoggerFactory.getLogger("com.jasonhhouse");
+        Level level = logger.getLevel();
+        logger.setLevel(Level.WARN);
+        try {
+            return replay.run();
+        } finally {
+            logger.setLevel(level);
+        }
+    }
+
+    private interface Replay {
+        SearchReplay.Report run() throws IOException;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.jasonhhouse.gaps.BasicMovie;
+import com.jasonhhouse.gaps.GapsConfiguration;
+import com.jasonhhouse.gaps.Payload;
+import com.jasonhhouse.gaps.PlexServer;
+import com.jasonhhouse.gaps.TestGapsConfiguration;
+import com.jasonhhouse.gaps.properties.PlexProperties;
+import com.jasonhhouse.plex.libs.PlexLibrary;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqliteIoServiceTest {
+
+    private static final String MACHINE_IDENTIFIER = "abc123";
+    private static final Integer KEY = 1;
+
+    @TempDir
+    Path folder;
+
+    private GapsConfiguration gapsConfiguration;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        gapsConfiguration = TestGapsConfiguration.withFolder(folder);
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:sqlite:" + folder.resolve("gaps.db")));
+    }
+
+    @Test
+    void writesAndReadsMovies() {
+        SqliteIoService sqliteIoService = sqliteIoService();
+        sqliteIoService.writeOwnedMoviesToFile(Arrays.asList(movie("Alien", 1979, 348), movie("Aliens", 1986, 679)), MACHINE_IDENTIFIER, KEY);
+        sqliteIoService.writeRecommendedToFile(new LinkedHashSet<>(List.of(movie("Alien 3", 1992, 8077))), MACHINE_IDENTIFIER, KEY);
+
+        List<BasicMovie> owned = sqliteIoService.readOwnedMovies(MACHINE_IDENTIFIER, KEY);
+        assertEquals(2, owned.size(), "Should read both owned movies");
+        assertEquals("Alien", owned.get(0).getName(), "Should keep the order movies were written in");
+        assertEquals(8077, sqliteIoService.readRecommendedMovies(MACHINE_IDENTIFIER, KEY).get(0).getTmdbId(), "Should read recommended movie");
+
+        sqliteIoService.writeOwnedMoviesToFile(List.of(movie("Alien", 1979, 348)), MACHINE_IDENTIFIER, KEY);
+        assertEquals(1, sqliteIoService.readOwnedMovies(MACHINE_IDENTIFIER, KEY).size(), "Writing should replace the library");
+    }
+
+    @Test
+    void findsOwnedMovie() {
+        SqliteIoService sqliteIoService = sqliteIoService();
+        assertFalse(sqliteIoService.hasOwnedMovies(MACHINE_IDENTIFIER, KEY), "Should not have owned movies yet");
+
+        sqliteIoService.writeOwnedMoviesToFile(List.of(movie("Alien", 1979, 348)), MACHINE_IDENTIFIER, KEY);
+
+        assertTrue(sqliteIoService.hasOwnedMovies(MACHINE_IDENTIFIER, KEY), "Should have owned movies");
+        assertTrue(sqliteIoService.isOwned(MACHINE_IDENTIFIER, KEY, 348), "Should own Alien");
+        assertFalse(sqliteIoService.isOwned(MACHINE_IDENTIFIER, KEY, 679), "Should not own Aliens");
+        assertFalse(sqliteIoService.isOwned(MACHINE_IDENTIFIER, 2, 348), "Should not own Alien in another library");
+    }
+
+    @Test
+    void writesRssFeed() {
+        SqliteIoService sqliteIoService = sqliteIoService();
+        assertFalse(sqliteIoService.doesRssFileExist(MACHINE_IDENTIFIER, KEY), "Should not have a feed yet");
+
+        sqliteIoService.writeRssFile(MACHINE_IDENTIFIER, KEY, new LinkedHashSet<>(List.of(movie("Alien 3", 1992, 8077))));
+
+        assertTrue(sqliteIoService.doesRssFileExist(MACHINE_IDENTIFIER, KEY), "Should have a feed");
+        assertTrue(sqliteIoService.getRssFile(MACHINE_IDENTIFIER, KEY).contains("Alien 3"), "Feed should have the recommended movie");
+    }
+
+    @Test
+    void movesJsonFilesOnce() {
+        FileIoService fileIoService = new FileIoService(gapsConfiguration);
+        fileIoService.writeOwnedMoviesToFile(List.of(movie("Alien", 1979, 348)), MACHINE_IDENTIFIER, KEY);
+        fileIoService.writeRecommendedToFile(new LinkedHashSet<>(List.of(movie("Aliens", 1986, 679))), MACHINE_IDENTIFIER, KEY);
+        fileIoService.writeRssFile(MACHINE_IDENTIFIER, KEY, new LinkedHashSet<>(List.of(movie("Aliens", 1986, 679))));
+
+        SqliteIoService sqliteIoService = sqliteIoService();
+        assertEquals(List.of(348), ownedTmdbIds(sqliteIoService), "Should move owned movies");
+        assertEquals(1, sqliteIoService.readRecommendedMovies(MACHINE_IDENTIFIER, KEY).size(), "Should move recommended movies");
+        assertTrue(sqliteIoService.getRssFile(MACHINE_IDENTIFIER, KEY).contains("Aliens"), "Should move the feed");
+
+        sqliteIoService.writeOwnedMoviesToFile(List.of(movie("Aliens", 1986, 679)), MACHINE_IDENTIFIER, KEY);
+        SqliteIoService restarted = sqliteIoService();
+        assertEquals(List.of(679), ownedTmdbIds(restarted), "Should not move the JSON files again after a restart");
+    }
+
+    @Test
+    void movesJsonFilesOfConfiguredLibrariesOnStart() throws IOException {
+        FileIoService fileIoService = new FileIoService(gapsConfiguration);
+        PlexServer plexServer = new PlexServer("Plex", MACHINE_IDENTIFIER, "token", "localhost", 32400);
+        PlexLibrary plexLibrary = new PlexLibrary();
+        plexLibrary.setKey(KEY);
+        plexServer.getPlexLibraries().add(plexLibrary);
+        PlexProperties plexProperties = new PlexProperties();
+        plexProperties.addPlexServer(plexServer);
+        fileIoService.writeProperties(plexProperties);
+        fileIoService.writeOwnedMoviesToFile(List.of(movie("Alien", 1979, 348)), MACHINE_IDENTIFIER, KEY);
+
+        SqliteIoService sqliteIoService = sqliteIoService();
+        Files.delete(folder.resolve(MACHINE_IDENTIFIER).resolve(KEY.toString()).resolve("ownedMovies.json"));
+
+        assertTrue(sqliteIoService.isOwned(MACHINE_IDENTIFIER, KEY, 348), "Should have moved the owned movies before they were first read");
+    }
+
+    @Test
+    void nukeClearsTables() {
+        SqliteIoService sqliteIoService = sqliteIoService();
+        sqliteIoService.writeOwnedMoviesToFile(List.of(movie("Alien", 1979, 348)), MACHINE_IDENTIFIER, KEY);
+
+        assertEquals(Payload.NUKE_SUCCESSFUL, sqliteIoService.nuke(), "Nuke should work");
+        assertFalse(sqliteIoService.hasOwnedMovies(MACHINE_IDENTIFIER, KEY), "Should not have owned movies after nuke");
+    }
+
+    @Test
+    void keepsDatabaseWhenNuked() {
+        //Pooled connections stay open across nuke, so the file they point at has to stay too
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource("jdbc:sqlite:" + folder.resolve("gaps.db"), true);
+        try {
+            jdbcTemplate = new JdbcTemplate(dataSource);
+            SqliteIoService sqliteIoService = sqliteIoService();
+            sqliteIoService.writeOwnedMoviesToFile(List.of(movie("Alien", 1979, 348)), MACHINE_IDENTIFIER, KEY);
+            new FileIoService(gapsConfiguration).writeRssFile(MACHINE_IDENTIFIER, 2, new LinkedHashSet<>(List.of(movie("Aliens", 1986, 679))));
+
+            assertEquals(Payload.NUKE_SUCCESSFUL, sqliteIoService.nuke(), "Nuke should work");
+            assertTrue(Files.exists(folder.resolve("gaps.db")), "Should keep the database");
+            assertFalse(Files.exists(folder.resolve(MACHINE_IDENTIFIER).resolve("2").resolve("rssFeed.json")), "Should delete the JSON files");
+
+            sqliteIoService.writeOwnedMoviesToFile(List.of(movie("Aliens", 1986, 679)), MACHINE_IDENTIFIER, KEY);
+            assertEquals(List.of(679), ownedTmdbIds(sqliteIoService), "Should write and read again after nuke");
+            assertEquals(List.of(679), ownedTmdbIds(sqliteIoService()), "Should read what was written after nuke on a new connection");
+        } finally {
+            dataSource.destroy();
+        }
+    }
+
+    private SqliteIoService sqliteIoService() {
+        SqliteIoService sqliteIoService = new SqliteIoService(gapsConfiguration, jdbcTemplate);
+        sqliteIoService.init();
+        return sqliteIoService;
+    }
+
+    private List<Integer> ownedTmdbIds(SqliteIoService sqliteIoService) {
+        return sqliteIoService.readOwnedMovies(MACHINE_IDENTIFIER, KEY).stream().map(BasicMovie::getTmdbId).collect(Collectors.toList());
+    }
+
+    private BasicMovie movie(String name, int year, int tmdbId) {
+        return new BasicMovie.Builder(name, year).setTmdbId(tmdbId).setImdbId("tt" + tmdbId).build();
+    }
+}
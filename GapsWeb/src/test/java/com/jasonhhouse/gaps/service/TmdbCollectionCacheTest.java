@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TmdbCollectionCacheTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void onlyFetchesOnce() throws IOException {
+        TmdbCollectionCache tmdbCollectionCache = new TmdbCollectionCache(folder.resolve("collections.json"), Duration.ofDays(7));
+        AtomicInteger calls = new AtomicInteger();
+
+        JsonNode first = tmdbCollectionCache.getCollection(10, () -> collection(calls, "Zatoichi"));
+        JsonNode second = tmdbCollectionCache.getCollection(10, () -> collection(calls, "Zatoichi"));
+
+        assertEquals("Zatoichi", first.get("name").textValue(), "Should return fetched collection");
+        assertEquals(first, second, "Should return cached collection");
+        assertEquals(1, calls.get(), "Should only call TMDB once");
+    }
+
+    @Test
+    void staleCollectionRefreshedInBackground() throws IOException, InterruptedException {
+        TmdbCollectionCache tmdbCollectionCache = new TmdbCollectionCache(folder.resolve("collections.json"), Duration.ZERO);
+        AtomicInteger calls = new AtomicInteger();
+        tmdbCollectionCache.getCollection(10, () -> collection(calls, "Old"));
+
+        JsonNode stale = tmdbCollectionCache.getCollection(10, () -> collection(calls, "New"));
+        assertEquals("Old", stale.get("name").textValue(), "Should return stale collection right away");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String name = stale.get("name").textValue();
+        while (!"New".equals(name) && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+            name = tmdbCollectionCache.getCollection(10, () -> collection(calls, "New")).get("name").textValue();
+        }
+        tmdbCollectionCache.shutdown();
+
+        assertEquals("New", name, "Should return refreshed collection");
+    }
+
+    @Test
+    void fetchesColdCollectionOnceForConcurrentParts() throws InterruptedException, ExecutionException {
+        //Several owned Zatoichi movies ask for the same collection at once on a cold cache
+        TmdbCollectionCache tmdbCollectionCache = new TmdbCollectionCache(folder.resolve("collections.json"), Duration.ofDays(7));
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<JsonNode>> parts = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                parts.add(executorService.submit(() -> tmdbCollectionCache.getCollection(10, () -> {
+                    fetching.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return collection(calls, "Zatoichi");
+                })));
+            }
+            fetching.await();
+            TimeUnit.MILLISECONDS.sleep(50);
+            release.countDown();
+
+            for (Future<JsonNode> part : parts) {
+                assertEquals("Zatoichi", part.get().get("name").textValue(), "Every part should get the collection");
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        assertEquals(1, calls.get(), "Should only call TMDB once for the collection");
+    }
+
+    private JsonNode collection(AtomicInteger calls, String name) {
+        calls.incrementAndGet();
+        return objectMapper.createObjectNode()
+                .put("id", 10)
+                .put("name", name);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TmdbDetailCacheTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void countsHitsAndMisses() throws IOException {
+        TmdbDetailCache tmdbDetailCache = new TmdbDetailCache(folder.resolve("movieDetails.json"), 10, Duration.ofDays(30));
+        AtomicInteger calls = new AtomicInteger();
+
+        tmdbDetailCache.getDetails(11, "en", () -> details(calls, 11));
+        tmdbDetailCache.getDetails(11, "en", () -> details(calls, 11));
+        tmdbDetailCache.getDetails(11, "de", () -> details(calls, 11));
+
+        assertEquals(2, calls.get(), "Should call TMDB once per language");
+        assertEquals(1, tmdbDetailCache.getHits(), "Should have one hit");
+        assertEquals(2, tmdbDetailCache.getMisses(), "Should have two misses");
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws IOException {
+        TmdbDetailCache tmdbDetailCache = new TmdbDetailCache(folder.resolve("movieDetails.json"), 2, Duration.ofDays(30));
+        AtomicInteger calls = new AtomicInteger();
+
+        tmdbDetailCache.getDetails(1, "en", () -> details(calls, 1));
+        tmdbDetailCache.getDetails(2, "en", () -> details(calls, 2));
+        tmdbDetailCache.getDetails(1, "en", () -> details(calls, 1));
+        tmdbDetailCache.getDetails(3, "en", () -> details(calls, 3));
+        assertEquals(2, tmdbDetailCache.size(), "Should never hold more than the max size");
+
+        tmdbDetailCache.getDetails(1, "en", () -> details(calls, 1));
+        assertEquals(3, calls.get(), "Recently used movie should still be cached");
+
+        tmdbDetailCache.getDetails(2, "en", () -> details(calls, 2));
+        assertEquals(4, calls.get(), "Least recently used movie should have been dropped");
+    }
+
+    @Test
+    void refetchesStaleDetails() throws IOException, InterruptedException {
+        TmdbDetailCache tmdbDetailCache = new TmdbDetailCache(folder.resolve("movieDetails.json"), 10, Duration.ZERO);
+        AtomicInteger calls = new AtomicInteger();
+        tmdbDetailCache.getDetails(11, "en", () -> details(calls, 11));
+
+        TimeUnit.MILLISECONDS.sleep(5);
+        tmdbDetailCache.getDetails(11, "en", () -> details(calls, 11));
+        assertEquals(2, calls.get(), "Should call TMDB again for stale details");
+
+        TimeUnit.MILLISECONDS.sleep(5);
+        JsonNode movieDetails = tmdbDetailCache.getDetails(11, "en", () -> {
+            throw new IOException("TMDB is down");
+        });
+        assertEquals("tt0076759", movieDetails.get("imdb_id").textValue(), "Should keep the stale details when TMDB can't be reached");
+    }
+
+    private JsonNode details(AtomicInteger calls, int id) {
+        calls.incrementAndGet();
+        return objectMapper.createObjectNode()
+                .put("id", id)
+                .put("imdb_id", "tt0076759");
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 Jason H House
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.jasonhhouse.gaps.service;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TmdbRateLimiterTest {
+
+    @Test
+    void burstIsNotThrottled() throws InterruptedException {
+        TmdbRateLimiter tmdbRateLimiter = new TmdbRateLimiter(10, 1);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            tmdbRateLimiter.acquire();
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsed < 500, "Burst of requests should not wait");
+    }
+
+    @Test
+    void requestsAfterBurstAreThrottled() throws InterruptedException {
+        TmdbRateLimiter tmdbRateLimiter = new TmdbRateLimiter(1, 10);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            tmdbRateLimiter.acquire();
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsed >= 250, "Three requests past the burst at 10 per second should take about 300 ms");
+    }
+
+    @Test
+    void pauseHoldsBackRequests() throws InterruptedException {
+        TmdbRateLimiter tmdbRateLimiter = new TmdbRateLimiter(10, 10);
+        tmdbRateLimiter.pause(300);
+
+        long start = System.nanoTime();
+        tmdbRateLimiter.acquire();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsed >= 250, "Requests should wait for the pause to end");
+    }
+
+    @Test
+    void invalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new TmdbRateLimiter(0, 10), "Burst must be positive");
+        assertThrows(IllegalArgumentException.class, () -> new TmdbRateLimiter(10, 0), "Rate must be positive");
+    }
+}
@@ -1,11 +1,10 @@
 package com.jasonhhouse.gaps.service;
 
 import com.jasonhhouse.gaps.Payload;
+import okhttp3.OkHttpClient;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
-import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import static org.junit.Assert.assertEquals;
@@ -13,12 +12,11 @@ import static org.junit.Assert.assertEquals;
 @RunWith(MockitoJUnitRunner.class)
 public class TmdbServiceTest {
 
-    @InjectMocks
     TmdbService tmdbService;
 
     @Before
     public void init() {
-        MockitoAnnotations.initMocks(this);
+        tmdbService = new TmdbService(new OkHttpClient());
     }
 
     @Test
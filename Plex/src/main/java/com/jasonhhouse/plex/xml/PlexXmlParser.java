@@ -0,0 +1,131 @@
+/*
+ *
+ *  Copyright 2020 Jason H House
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.jasonhhouse.plex.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import org.jetbrains.annotations.NotNull;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Parses Plex responses without building the XML machinery again for every call. JAXB contexts are thread safe and
+ * made once per class. Unmarshallers, document builders and compiled XPath expressions are not, so each thread keeps
+ * its own and reuses them for every response it parses.
+ */
+public final class PlexXmlParser {
+
+    private static final Map<Class<?>, JAXBContext> JAXB_CONTEXTS = new ConcurrentHashMap<>();
+
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = createDocumentBuilderFactory();
+    private static final XPathFactory XPATH_FACTORY = XPathFactory.newInstance();
+
+    private static final ThreadLocal<Map<Class<?>, Unmarshaller>> UNMARSHALLERS = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDERS = ThreadLocal.withInitial(PlexXmlParser::createDocumentBuilder);
+    private static final ThreadLocal<Map<String, XPathExpression>> EXPRESSIONS = ThreadLocal.withInitial(HashMap::new);
+
+    private PlexXmlParser() {
+    }
+
+    /**
+     * @param inputStream Plex XML, not closed by this method
+     * @param type        JAXB root element class to read
+     * @return the unmarshalled root element
+     * @throws JAXBException if the XML does not match the class
+     */
+    public static <T> @NotNull T unmarshal(@NotNull InputStream inputStream, @NotNull Class<T> type) throws JAXBException {
+        Map<Class<?>, Unmarshaller> unmarshallers = UNMARSHALLERS.get();
+        Unmarshaller unmarshaller = unmarshallers.get(type);
+        if (unmarshaller == null) {
+            unmarshaller = jaxbContext(type).createUnmarshaller();
+            unmarshallers.put(type, unmarshaller);
+        }
+        return type.cast(unmarshaller.unmarshal(inputStream));
+    }
+
+    /**
+     * @param inputStream Plex XML, not closed by this method
+     * @return the parsed document
+     * @throws SAXException if the XML is not valid
+     */
+    public static @NotNull Document parse(@NotNull InputStream inputStream) throws IOException, SAXException {
+        DocumentBuilder documentBuilder = DOCUMENT_BUILDERS.get();
+        documentBuilder.reset();
+        return documentBuilder.parse(inputStream);
+    }
+
+    /**
+     * Evaluate the expression against the document, compiling it only the first time this thread sees it
+     *
+     * @param document   parsed Plex XML
+     * @param expression XPath expression selecting nodes
+     * @return the selected nodes
+     * @throws XPathExpressionException if the expression is not valid
+     */
+    public static @NotNull NodeList evaluate(@NotNull Document document, @NotNull String expression) throws XPathExpressionException {
+        Map<String, XPathExpression> expressions = EXPRESSIONS.get();
+        XPathExpression xPathExpression = expressions.get(expression);
+        if (xPathExpression == null) {
+            XPath xPath;
+            synchronized (XPATH_FACTORY) {
+                xPath = XPATH_FACTORY.newXPath();
+            }
+            xPathExpression = xPath.compile(expression);
+            expressions.put(expression, xPathExpression);
+        }
+        return (NodeList) xPathExpression.evaluate(document, XPathConstants.NODESET);
+    }
+
+    static @NotNull JAXBContext jaxbContext(@NotNull Class<?> type) throws JAXBException {
+        JAXBContext jaxbContext = JAXB_CONTEXTS.get(type);
+        if (jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance(type);
+            JAXBContext existing = JAXB_CONTEXTS.putIfAbsent(type, jaxbContext);
+            if (existing != null) {
+                jaxbContext = existing;
+            }
+        }
+        return jaxbContext;
+    }
+
+    private static DocumentBuilderFactory createDocumentBuilderFactory() {
+        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setExpandEntityReferences(false);
+        documentBuilderFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        documentBuilderFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        return documentBuilderFactory;
+    }
+
+    private static DocumentBuilder createDocumentBuilder() {
+        try {
+            synchronized (DOCUMENT_BUILDER_FACTORY) {
+                return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+            }
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Could not create an XML document builder", e);
+        }
+    }
+}
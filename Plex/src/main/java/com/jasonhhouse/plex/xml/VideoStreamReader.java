@@ -0,0 +1,87 @@
+/*
+ *
+ *  Copyright 2020 Jason H House
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.jasonhhouse.plex.xml;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reads the Video elements of a Plex library listing one at a time. The response is pulled straight from the stream
+ * and only the attributes of the current Video are held, so memory stays flat no matter how big the library is.
+ */
+public final class VideoStreamReader {
+
+    private static final String MEDIA_CONTAINER = "MediaContainer";
+    private static final String VIDEO = "Video";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private VideoStreamReader() {
+    }
+
+    /**
+     * Hands the attributes of every /MediaContainer/Video element to the consumer once the element closes
+     *
+     * @param inputStream Plex library XML, not closed by this method
+     * @param consumer    called with the attribute names and values of each Video
+     * @return the number of Video elements read
+     * @throws XMLStreamException if the XML is not valid
+     */
+    public static int forEachVideo(@NotNull InputStream inputStream, @NotNull Consumer<Map<String, String>> consumer) throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+        try {
+            int count = 0;
+            int depth = 0;
+            boolean inMediaContainer = false;
+            Map<String, String> attributes = null;
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    if (depth == 1) {
+                        inMediaContainer = MEDIA_CONTAINER.equals(reader.getLocalName());
+                    } else if (depth == 2 && inMediaContainer && VIDEO.equals(reader.getLocalName())) {
+                        attributes = new HashMap<>();
+                        for (int i = 0; i < reader.getAttributeCount(); i++) {
+                            attributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 2 && attributes != null) {
+                        consumer.accept(attributes);
+                        attributes = null;
+                        count++;
+                    }
+                    depth--;
+                }
+            }
+
+            return count;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return xmlInputFactory;
+    }
+}
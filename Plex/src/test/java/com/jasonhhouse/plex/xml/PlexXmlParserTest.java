@@ -0,0 +1,68 @@
+/*
+ *
+ *  Copyright 2020 Jason H House
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.jasonhhouse.plex.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.xml.xpath.XPathExpressionException;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PlexXmlParserTest {
+
+    private static final String METADATA = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<MediaContainer size=\"1\">" +
+            "<Video ratingKey=\"1\" title=\"Alien\">" +
+            "<Guid id=\"imdb://tt0078748\"/>" +
+            "<Guid id=\"tmdb://348\"/>" +
+            "</Video>" +
+            "</MediaContainer>";
+
+    @Test
+    void evaluatesGuids() throws IOException, SAXException, XPathExpressionException {
+        for (int i = 0; i < 3; i++) {
+            NodeList nodeList = PlexXmlParser.evaluate(PlexXmlParser.parse(stream(METADATA)), "/MediaContainer/Video/Guid");
+
+            assertEquals(2, nodeList.getLength(), "Should find both guids every time");
+            assertEquals("tmdb://348", nodeList.item(1).getAttributes().getNamedItem("id").getNodeValue(), "Should read guid id");
+        }
+    }
+
+    @Test
+    void parsesOnManyThreads() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(executorService.submit(() -> PlexXmlParser.evaluate(PlexXmlParser.parse(stream(METADATA)), "/MediaContainer/Video/Guid").getLength()));
+            }
+
+            for (Future<Integer> future : futures) {
+                assertEquals(2, future.get(), "Should find both guids on every thread");
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private InputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *
+ *  Copyright 2020 Jason H House
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.jasonhhouse.plex.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLStreamException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VideoStreamReaderTest {
+
+    private static final String LIBRARY = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<MediaContainer size=\"2\" librarySectionID=\"1\">" +
+            "<Video ratingKey=\"1\" title=\"Alien\" year=\"1979\" guid=\"com.plexapp.agents.themoviedb://348?lang=en\" addedAt=\"100\" updatedAt=\"200\">" +
+            "<Media id=\"1\"><Part id=\"1\" file=\"/movies/Alien.mkv\"/></Media>" +
+            "<Genre tag=\"Horror\"/>" +
+            "</Video>" +
+            "<Video ratingKey=\"2\" title=\"Aliens &amp; Predators\" year=\"1986\"/>" +
+            "</MediaContainer>";
+
+    @Test
+    void readsEveryVideo() throws XMLStreamException {
+        List<Map<String, String>> videos = new ArrayList<>();
+
+        int count = VideoStreamReader.forEachVideo(stream(LIBRARY), videos::add);
+
+        assertEquals(2, count, "Should read two videos");
+        assertEquals("Alien", videos.get(0).get("title"), "Should read title");
+        assertEquals("com.plexapp.agents.themoviedb://348?lang=en", videos.get(0).get("guid"), "Should read guid");
+        assertEquals("200", videos.get(0).get("updatedAt"), "Should read updatedAt");
+        assertEquals("Aliens & Predators", videos.get(1).get("title"), "Should decode entities");
+    }
+
+    @Test
+    void ignoresNestedElements() throws XMLStreamException {
+        List<Map<String, String>> videos = new ArrayList<>();
+
+        VideoStreamReader.forEachVideo(stream(LIBRARY), videos::add);
+
+        assertEquals(6, videos.get(0).size(), "Should only hold the Video attributes");
+    }
+
+    @Test
+    void emptyLibrary() throws XMLStreamException {
+        assertEquals(0, VideoStreamReader.forEachVideo(stream("<MediaContainer size=\"0\"/>"), video -> {
+        }), "Should find no videos");
+    }
+
+    @Test
+    void invalidXml() {
+        assertThrows(XMLStreamException.class, () -> VideoStreamReader.forEachVideo(stream("<MediaContainer><Video title=\"Alien\">"), video -> {
+        }), "Should fail on broken XML");
+    }
+
+    private InputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}